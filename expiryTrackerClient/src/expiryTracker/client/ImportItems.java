@@ -0,0 +1,77 @@
+package expiryTracker.client;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports an inventory file of items into the server from the command line, such as one exported from another system.
+ * <p>
+ * The file is streamed to the server's <code>/items:import</code> endpoint as it is read from disk, so files of
+ * hundreds of thousands of rows are sent without being loaded into memory. The format is given by the extension of
+ * the file: <code>.csv</code> for CSV, <code>.ndjson</code> or <code>.jsonl</code> for newline delimited JSON.
+ * <p>
+ * Usage: <code>java expiryTracker.client.ImportItems FILE [SERVER_URL] [BATCH_SIZE]</code>
+ */
+public class ImportItems {
+    private static final String DEFAULT_SERVER_URL = "http://localhost:8080";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 3) {
+            System.out.println("Usage: ImportItems FILE [SERVER_URL] [BATCH_SIZE]");
+            System.exit(2);
+        }
+        Path file = Path.of(args[0]);
+        String serverUrl = args.length > 1 ? args[1] : DEFAULT_SERVER_URL;
+        String query = args.length > 2 ? "?batchSize=" + Integer.parseInt(args[2]) : "";
+
+        String fileName = file.getFileName().toString().toLowerCase();
+        String contentType;
+        if (fileName.endsWith(".csv")) {
+            contentType = "text/csv; charset=UTF-8";
+        } else if (fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl")) {
+            contentType = "application/x-ndjson; charset=UTF-8";
+        } else {
+            System.out.println("Unknown file format, expected a .csv, .ndjson or .jsonl file: " + file);
+            System.exit(2);
+            return;
+        }
+
+        System.out.println("Importing " + Files.size(file) + " bytes from " + file + " into " + serverUrl);
+        HttpRequest httpRequest = HttpRequest.newBuilder(URI.create(serverUrl + "/items:import" + query))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofFile(file))
+                .build();
+        HttpResponse<String> httpResponse = HttpClient.newHttpClient()
+                .send(httpRequest, HttpResponse.BodyHandlers.ofString());
+
+        if (!httpResponse.headers().firstValue("Content-Type").orElse("").startsWith("application/json")) {
+            System.out.println("Import failed with status " + httpResponse.statusCode() + ": " + httpResponse.body());
+            System.exit(1);
+        }
+        JsonObject report = JsonParser.parseString(httpResponse.body()).getAsJsonObject();
+        System.out.println("Imported " + report.get("itemsImported") + " item(s) of " + report.get("rowsRead")
+                + " row(s) in " + report.get("elapsedMillis") + " ms (" + report.get("rowsPerSecond") + " rows/s), "
+                + report.get("rowsRejected") + " row(s) rejected");
+        for (JsonElement error : report.getAsJsonArray("errors")) {
+            JsonObject rowError = error.getAsJsonObject();
+            System.out.println("  line " + rowError.get("line") + ": " + rowError.get("message").getAsString());
+        }
+        long unlistedErrors = report.get("rowsRejected").getAsLong() - report.getAsJsonArray("errors").size();
+        if (unlistedErrors > 0) {
+            System.out.println("  and " + unlistedErrors + " more");
+        }
+        if (report.has("stoppedBy")) {
+            System.out.println("Stopped at " + report.get("stoppedBy").getAsString());
+            System.exit(1);
+        }
+    }
+}
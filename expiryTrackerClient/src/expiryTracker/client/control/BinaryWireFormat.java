@@ -0,0 +1,113 @@
+package expiryTracker.client.control;
+
+import expiryTracker.client.model.Consumable;
+import expiryTracker.client.model.Drink;
+import expiryTracker.client.model.Food;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads the items sent by the server in its binary format, <code>application/vnd.expirytracker.binary</code>,
+ * which is smaller and much quicker to read than JSON.
+ * <p>
+ * Every message starts with a version byte, followed by a list, a single item or a change. All numbers are big-endian.
+ * <pre>
+ * list:    int item count, one record per item
+ * item:    one record
+ * change:  long version of the list, one record of the item added or removed
+ * record:  byte type ('F' or 'D'), long itemId most significant bits, long itemId least significant bits,
+ *          int expiry date epoch day, long expiry date nano of day, double price, double weight or volume,
+ *          string name, string notes
+ * string:  int length in bytes, or -1 for <code>null</code>, followed by the UTF-8 encoded string
+ * </pre>
+ */
+public final class BinaryWireFormat {
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.expirytracker.binary";
+    private static final byte VERSION = 1;
+    private static final byte FOOD_TYPE = 'F';
+    private static final byte DRINK_TYPE = 'D';
+    private static final int NULL_STRING_LENGTH = -1;
+
+    private BinaryWireFormat() {
+    }
+
+    /**
+     * Reads a list of items.
+     *
+     * @param bytes a <code>byte[]</code> holding the list
+     * @return a new <code>List<Consumable></code> of the items in the order the server sent them
+     * @throws IOException if the list can't be read or is of an unsupported version
+     */
+    public static List<Consumable> readList(byte[] bytes) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(bytes));
+        readVersion(dataInputStream);
+        int itemCount = dataInputStream.readInt();
+        List<Consumable> items = new ArrayList<>(itemCount);
+        for (int index = 0; index < itemCount; index++) {
+            items.add(readRecord(dataInputStream));
+        }
+        return items;
+    }
+
+    /**
+     * Reads the item of a change, skipping the version of the list it made.
+     *
+     * @param bytes a <code>byte[]</code> holding the change
+     * @return a new <code>Food</code> or <code>Drink</code> object of the item added or removed
+     * @throws IOException if the change can't be read or is of an unsupported version
+     */
+    public static Consumable readChangeItem(byte[] bytes) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(new ByteArrayInputStream(bytes));
+        readVersion(dataInputStream);
+        dataInputStream.readLong();
+        return readRecord(dataInputStream);
+    }
+
+    private static Consumable readRecord(DataInputStream dataInputStream) throws IOException {
+        byte type = dataInputStream.readByte();
+        UUID itemId = new UUID(dataInputStream.readLong(), dataInputStream.readLong());
+        LocalDateTime expiryDate = LocalDateTime.of(LocalDate.ofEpochDay(dataInputStream.readInt()),
+                LocalTime.ofNanoOfDay(dataInputStream.readLong()));
+        double price = dataInputStream.readDouble();
+        double weightOrVolume = dataInputStream.readDouble();
+        String name = readString(dataInputStream);
+        String notes = readString(dataInputStream);
+
+        Consumable item;
+        if (type == DRINK_TYPE) {
+            item = new Drink(name, notes, price, weightOrVolume, expiryDate);
+        } else if (type == FOOD_TYPE) {
+            item = new Food(name, notes, price, weightOrVolume, expiryDate);
+        } else {
+            throw new IOException("Unknown item type: " + type);
+        }
+        item.setItemId(itemId);
+        return item;
+    }
+
+    private static void readVersion(DataInputStream dataInputStream) throws IOException {
+        byte version = dataInputStream.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary format version " + version);
+        }
+    }
+
+    private static String readString(DataInputStream dataInputStream) throws IOException {
+        int length = dataInputStream.readInt();
+        if (length == NULL_STRING_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        dataInputStream.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
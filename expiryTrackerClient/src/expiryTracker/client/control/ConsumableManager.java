@@ -2,15 +2,14 @@ package expiryTracker.client.control;
 
 import expiryTracker.client.model.Consumable;
 import expiryTracker.client.model.ConsumableFactory;
-import expiryTracker.client.model.Drink;
-import expiryTracker.client.model.Food;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.google.gson.TypeAdapter;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
-import com.google.gson.typeadapters.RuntimeTypeAdapterFactory;
 
 import java.io.*;
 import java.lang.reflect.Type;
@@ -19,11 +18,17 @@ import java.net.URISyntaxException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 // https://www.baeldung.com/java-9-http-client
 
@@ -32,6 +37,9 @@ import java.util.UUID;
  * <p>
  * Responsible for making request to list, add, and remove <code>Consumable</code> objects
  * stored in the applications corresponding server.
+ * <p>
+ * Once <code>startChangeFeed()</code> is called, keeps a copy of the server's list up to date from the server's
+ * <code>/changes</code> feed, so that the list views are filtered from the copy instead of being requested again.
  */
 public class ConsumableManager {
     private final List<Consumable> fridge = new ArrayList<>();
@@ -41,12 +49,21 @@ public class ConsumableManager {
     private final ConsumableFactory consumableFactory = new ConsumableFactory();
 
     // objects for making Http Requests to the server
-    private HttpRequest httpRequest;
-    private HttpResponse<?> httpResponse;
     private final HttpClient httpClient = HttpClient.newHttpClient();
     private final String SERVER_URL = "http://localhost:8080";
     private static final String HEADER_NAME = "Content-Type";
     private static final String HEADER_VALUE = "application/json";
+    private static final String ACCEPT_ENCODING = "gzip";
+    // the binary format is smaller and quicker to read, servers which don't know it send JSON instead
+    private static final String ACCEPT_ITEMS = BinaryWireFormat.MEDIA_TYPE_VALUE + ", application/json;q=0.9";
+    private static final int NUM_DAYS_IN_WEEK = 7;
+    private static final long CHANGE_FEED_RETRY_MILLIS = 1000;
+
+    // the change feed updates fridge on its own thread, so fridge is only used while holding its lock
+    private volatile boolean isFridgeSynced;
+    private volatile Runnable fridgeChangeListener = () -> {
+    };
+    private String lastEventId;
 
     /**
      * Gets an instance of <code>ConsumableManger</code> Singleton
@@ -77,6 +94,10 @@ public class ConsumableManager {
      * @return a <code>List<Consumable></code> containing specific <code>Consumable</code> objects
      */
     public List<Consumable> getFilteredList(String mode) {
+        if (isFridgeSynced) {
+            return filterFridge(mode);
+        }
+
         basket.clear();
 
         // filter consumable items into a temporary list of consumables
@@ -95,8 +116,7 @@ public class ConsumableManager {
      * @return a <code>boolean</code> to determine if the server is online
      */
     public boolean isServerUp() {
-        makeHttpGETRequest("/ping");
-        return httpResponse != null;
+        return makeHttpGETRequest("/ping") != null;
     }
 
     /**
@@ -116,24 +136,23 @@ public class ConsumableManager {
         String jsonObject = customGsonObj.toJson(consumableFactory.getInstance(
                 consumableType, name, notes, price, matter, expiryDate));
 
+        HttpResponse<byte[]> httpResponse;
         try {
+            HttpRequest httpRequest;
             if (Objects.equals(consumableType, "Food")) {
-                httpRequest = HttpRequest.newBuilder(new URI(SERVER_URL + "/addItem/Food"))
-                        .POST(HttpRequest.BodyPublishers.ofString(jsonObject))
-                        .header(HEADER_NAME, HEADER_VALUE)
-                        .build();
+                httpRequest = newMutationRequest(new URI(SERVER_URL + "/addItem/Food"),
+                        HttpRequest.BodyPublishers.ofString(jsonObject));
             } else {
-                httpRequest = HttpRequest.newBuilder(new URI(SERVER_URL + "/addItem/Drink"))
-                        .POST(HttpRequest.BodyPublishers.ofString(jsonObject))
-                        .header(HEADER_NAME, HEADER_VALUE)
-                        .build();
+                httpRequest = newMutationRequest(new URI(SERVER_URL + "/addItem/Drink"),
+                        HttpRequest.BodyPublishers.ofString(jsonObject));
             }
-            httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-        } catch (URISyntaxException | IOException | InterruptedException ignored) {
+            httpResponse = httpClient.send(httpRequest, ofDecodedBytes());
+        } catch (URISyntaxException | IOException | InterruptedException e) {
+            System.out.println("Unable to add item: " + e.getMessage());
+            return;
         }
 
-        fridge.clear();
-        fridge.addAll(fromJSONArray(httpResponse.body().toString()));
+        applyMutationResponse("add", httpResponse);
     }
 
     /**
@@ -144,17 +163,228 @@ public class ConsumableManager {
     public void removeConsumableItemRequest(UUID itemIdToRemove) {
         String urlRequest = SERVER_URL + "/removeItem/" + itemIdToRemove;
 
+        HttpResponse<byte[]> httpResponse;
         try {
-            httpRequest = HttpRequest.newBuilder(new URI(urlRequest))
-                    .POST(HttpRequest.BodyPublishers.noBody())
-                    .header(HEADER_NAME, HEADER_VALUE)
-                    .build();
-            httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-        } catch (URISyntaxException | IOException | InterruptedException ignored) {
+            HttpRequest httpRequest = newMutationRequest(new URI(urlRequest), HttpRequest.BodyPublishers.noBody());
+            httpResponse = httpClient.send(httpRequest, ofDecodedBytes());
+        } catch (URISyntaxException | IOException | InterruptedException e) {
+            System.out.println("Unable to remove item: " + e.getMessage());
+            return;
+        }
+
+        applyMutationResponse("remove", httpResponse);
+    }
+
+    /**
+     * Helper method to build a POST request changing the list, which asks the server for just the change made
+     * instead of the whole updated list once the change feed keeps a copy of the list.
+     *
+     * @param uri           the <code>URI</code> of the endpoint
+     * @param bodyPublisher the <code>BodyPublisher</code> of the request body
+     * @return a new <code>HttpRequest</code>
+     */
+    private HttpRequest newMutationRequest(URI uri, HttpRequest.BodyPublisher bodyPublisher) {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri)
+                .POST(bodyPublisher)
+                .header(HEADER_NAME, HEADER_VALUE)
+                .header("Accept", ACCEPT_ITEMS)
+                .header("Accept-Encoding", ACCEPT_ENCODING);
+        if (isFridgeSynced) {
+            requestBuilder.header("Prefer", "return=minimal");
+        }
+        return requestBuilder.build();
+    }
+
+    /**
+     * Helper method to apply the response of a request changing the list: just the change made if the server sent
+     * only that, which the change feed will also bring in later, or the whole updated list otherwise.
+     *
+     * @param eventName    a <code>String</code> representing the kind of change made: add or remove
+     * @param httpResponse the <code>HttpResponse</code> of the request
+     */
+    private void applyMutationResponse(String eventName, HttpResponse<byte[]> httpResponse) {
+        if (httpResponse.statusCode() != 201) {
+            return;
+        }
+
+        if (httpResponse.headers().firstValue("Preference-Applied").isPresent()) {
+            try {
+                applyChange(eventName, isBinary(httpResponse)
+                        ? BinaryWireFormat.readChangeItem(httpResponse.body())
+                        : readChangeItem(new String(httpResponse.body(), StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                System.out.println("Unable to read the change: " + e.getMessage());
+            }
+        } else {
+            List<Consumable> items = readItems(httpResponse);
+            synchronized (fridge) {
+                fridge.clear();
+                fridge.addAll(items);
+            }
+        }
+    }
+
+    /**
+     * Sets what to do whenever the change feed has changed the copy of the list, called on the change feed's thread.
+     *
+     * @param listener a <code>Runnable</code> to run after every change
+     */
+    public void setFridgeChangeListener(Runnable listener) {
+        fridgeChangeListener = listener;
+    }
+
+    /**
+     * Starts keeping a copy of the server's list up to date in the background, from the Server-Sent Events of the
+     * server's <code>/changes</code> endpoint.
+     * <p>
+     * The whole list is only requested when the server sends a <code>reset</code> event, which it does when the feed
+     * is first connected to and when it can't send the changes missed while disconnected.
+     * Otherwise, every item added or removed is applied to the copy, and the feed is reconnected to where it left off
+     * whenever the connection is lost.
+     */
+    public void startChangeFeed() {
+        Thread changeFeedThread = new Thread(() -> {
+            while (true) {
+                try {
+                    readChangeFeed();
+                } catch (URISyntaxException | IOException | RuntimeException e) {
+                    System.out.println("Change feed disconnected: " + e.getMessage());
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                try {
+                    Thread.sleep(CHANGE_FEED_RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "change-feed");
+        changeFeedThread.setDaemon(true);
+        changeFeedThread.start();
+    }
+
+    /**
+     * Helper method to connect to the change feed and apply its events until the connection is lost.
+     */
+    private void readChangeFeed() throws URISyntaxException, IOException, InterruptedException {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(new URI(SERVER_URL + "/changes"))
+                .GET()
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            requestBuilder.header("Last-Event-ID", lastEventId);
+        }
+        HttpResponse<Stream<String>> response = httpClient.send(requestBuilder.build(),
+                HttpResponse.BodyHandlers.ofLines());
+        if (response.statusCode() != 200) {
+            throw new IOException("status " + response.statusCode());
+        }
+
+        // https://html.spec.whatwg.org/multipage/server-sent-events.html#event-stream-interpretation
+        String eventId = null;
+        String eventName = null;
+        StringBuilder eventData = new StringBuilder();
+        Iterator<String> lines = response.body().iterator();
+        while (lines.hasNext()) {
+            String line = lines.next();
+            if (line.isEmpty()) {
+                if (eventName != null) {
+                    if (eventName.equals("reset")) {
+                        resetFridge();
+                    } else {
+                        applyChange(eventName, readChangeItem(eventData.toString()));
+                    }
+                    lastEventId = eventId;
+                    fridgeChangeListener.run();
+                }
+                eventId = null;
+                eventName = null;
+                eventData.setLength(0);
+            } else if (line.startsWith("id:")) {
+                eventId = line.substring("id:".length()).trim();
+            } else if (line.startsWith("event:")) {
+                eventName = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:")) {
+                eventData.append(line.substring("data:".length()));
+            }
         }
+    }
+
+    /**
+     * Helper method to replace the copy of the list with the whole list, after a <code>reset</code> event of the
+     * change feed.
+     */
+    private void resetFridge() throws URISyntaxException, IOException, InterruptedException {
+        HttpRequest listRequest = HttpRequest.newBuilder(new URI(SERVER_URL + "/listAll"))
+                .GET()
+                .header(HEADER_NAME, HEADER_VALUE)
+                .header("Accept", ACCEPT_ITEMS)
+                .header("Accept-Encoding", ACCEPT_ENCODING)
+                .build();
+        List<Consumable> items = readItems(httpClient.send(listRequest, ofDecodedBytes()));
+        synchronized (fridge) {
+            fridge.clear();
+            fridge.addAll(items);
+        }
+        isFridgeSynced = true;
+    }
+
+    /**
+     * Helper method to read the item added or removed by a change, from an event of the change feed or the response to
+     * a change sent as JSON.
+     *
+     * @param eventData a <code>String</code> JSON object holding the version of the list and the item changed
+     * @return the <code>Consumable</code> object added or removed
+     */
+    private Consumable readChangeItem(String eventData) {
+        JsonObject change = JsonParser.parseString(eventData).getAsJsonObject();
+        return customGsonObj.fromJson(change.get("item"), Consumable.class);
+    }
+
+    /**
+     * Helper method to apply an added or removed item to the copy of the list, from an event of the change feed or
+     * the response to a change.
+     *
+     * @param eventName a <code>String</code> representing the kind of change: add or remove
+     * @param item      the <code>Consumable</code> object added or removed
+     */
+    private void applyChange(String eventName, Consumable item) {
+        synchronized (fridge) {
+            // the list may already hold the change if it was requested after the change was made
+            fridge.removeIf(fridgeItem -> fridgeItem.getItemId().equals(item.getItemId()));
+            if (eventName.equals("add")) {
+                int index = Collections.binarySearch(fridge, item);
+                fridge.add(index >= 0 ? index : -index - 1, item);
+            }
+        }
+    }
 
-        fridge.clear();
-        fridge.addAll(fromJSONArray(httpResponse.body().toString()));
+    /**
+     * Helper method to filter the copy of the list kept by the change feed the same way as the server does.
+     *
+     * @param mode a <code>String</code> specifying specific <code>Consumable</code> objects to put into the list
+     * @return a new <code>List<Consumable></code> containing specific <code>Consumable</code> objects
+     */
+    private List<Consumable> filterFridge(String mode) {
+        LocalDate todayDate = LocalDate.now();
+        List<Consumable> filteredList = new ArrayList<>();
+        synchronized (fridge) {
+            for (Consumable item : fridge) {
+                LocalDate expiryDay = item.getExpiryDate().toLocalDate();
+                boolean isIncluded = switch (mode) {
+                    case "Expired" -> expiryDay.isBefore(todayDate);
+                    case "Not Expired" -> !expiryDay.isBefore(todayDate);
+                    case "Expiring in 7 Days" -> !expiryDay.isBefore(todayDate)
+                            && !expiryDay.isAfter(todayDate.plusDays(NUM_DAYS_IN_WEEK));
+                    case "All" -> true;
+                    default -> false;
+                };
+                if (isIncluded) {
+                    filteredList.add(item);
+                }
+            }
+        }
+        return filteredList;
     }
 
     /**
@@ -173,45 +403,102 @@ public class ConsumableManager {
      * @return a <code>List <Consumable></code> representing the passed back deserialized JSON Array object
      */
     private List<Consumable> getListFromRequest(String listRequestType) {
-        makeHttpGETRequest(listRequestType);
-        return fromJSONArray(httpResponse.body().toString());
+        HttpResponse<byte[]> httpResponse = makeHttpGETRequest(listRequestType);
+        if (httpResponse == null || httpResponse.statusCode() != 200) {
+            return new ArrayList<>();
+        }
+        return readItems(httpResponse);
     }
 
     /**
      * Helper method for making GET requests
      *
      * @param requestedEndpointMapping a <code>String</code> indicating a specific GET request endpoint
+     * @return the <code>HttpResponse</code> of the request, or <code>null</code> if it couldn't be made
      */
-    private void makeHttpGETRequest(String requestedEndpointMapping) {
+    private HttpResponse<byte[]> makeHttpGETRequest(String requestedEndpointMapping) {
         try {
-            httpRequest = HttpRequest.newBuilder(new URI(SERVER_URL + requestedEndpointMapping))
+            HttpRequest httpRequest = HttpRequest.newBuilder(new URI(SERVER_URL + requestedEndpointMapping))
                     .GET()
                     .header(HEADER_NAME, HEADER_VALUE)
+                    .header("Accept", ACCEPT_ITEMS)
+                    .header("Accept-Encoding", ACCEPT_ENCODING)
                     .build();
-            httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
+            return httpClient.send(httpRequest, ofDecodedBytes());
         } catch (URISyntaxException | IOException | InterruptedException ignored) {
+            return null;
+        }
+    }
+
+    /**
+     * Helper method to get a <code>BodyHandler</code> reading the body of a response as bytes, decompressing it first
+     * if the server gzipped it. <code>HttpClient</code> doesn't decompress bodies itself, so every request sending
+     * <code>Accept-Encoding: gzip</code> has to be read with it.
+     *
+     * @return a <code>BodyHandler<byte[]></code> for responses which may be gzipped
+     */
+    private static HttpResponse.BodyHandler<byte[]> ofDecodedBytes() {
+        return responseInfo -> {
+            boolean isGzipped = responseInfo.headers().firstValue("Content-Encoding")
+                    .filter(contentEncoding -> contentEncoding.equalsIgnoreCase("gzip"))
+                    .isPresent();
+            return HttpResponse.BodySubscribers.mapping(HttpResponse.BodySubscribers.ofByteArray(), body -> {
+                if (!isGzipped) {
+                    return body;
+                }
+                try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    return inputStream.readAllBytes();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        };
+    }
+
+    /**
+     * Helper method to determine whether the server sent the body of a response in its binary format.
+     *
+     * @param response an <code>HttpResponse<byte[]></code> from the server
+     * @return <code>true</code> if the body is in the binary format, <code>false</code> if it is JSON
+     */
+    private static boolean isBinary(HttpResponse<byte[]> response) {
+        return response.headers().firstValue(HEADER_NAME)
+                .filter(contentType -> contentType.startsWith(BinaryWireFormat.MEDIA_TYPE_VALUE))
+                .isPresent();
+    }
+
+    /**
+     * Helper method to read the list of items in the body of a response, in whichever format the server sent it.
+     *
+     * @param response an <code>HttpResponse<byte[]></code> holding a list of items
+     * @return a <code>List<Consumable></code> of the items, empty if the list can't be read
+     */
+    private List<Consumable> readItems(HttpResponse<byte[]> response) {
+        if (!isBinary(response)) {
+            return fromJSONArray(new String(response.body(), StandardCharsets.UTF_8));
+        }
+        try {
+            return BinaryWireFormat.readList(response.body());
+        } catch (IOException e) {
+            System.out.println("Unable to read the list of items: " + e.getMessage());
+            return new ArrayList<>();
         }
     }
 
     /**
      * Constructs a custom Gson object with <code>TypeAdapters</code> for classes LocalDateTime and
-     * <code>RuntimeTypeAdapterFactory</code> for <code>Consumable</code>
+     * <code>Consumable</code>
      * and its subclasses <code>Food</code> and <code>Drink</code>.
+     * <p>
+     * Items are converted by <code>ConsumableTypeAdapter</code>, which tags them with <code>food</code> or
+     * <code>drink</code> and streams their fields without reflection.
      *
      * @return a new custom <code>Gson</code> object for serializing/deserializing of class <code>LocalDateTime</code>
      * and subclasses <code>Food</code> & <code>Drink</code> objects of <code>Consumable</code> superclass
      */
     private Gson newCustomGsonObj() {
-        // modified code provided to determine types of subclass objects reading into superclass list
-        // https://mvnrepository.com/artifact/com.google.code.gson/gson-extras/2.8.5
-        // https://stackoverflow.com/questions/48855124/unable-to-deserialize-with-runtimetypeadapterfactory-does-not-define-a-field
-        RuntimeTypeAdapterFactory<Consumable> adapter =
-                RuntimeTypeAdapterFactory
-                        .of(Consumable.class, "type")
-                        .registerSubtype(Food.class, Food.class.getName())
-                        .registerSubtype(Drink.class, Drink.class.getName());
-
-        return new GsonBuilder().registerTypeAdapterFactory(adapter).registerTypeAdapter(LocalDateTime.class,
+        return new GsonBuilder().registerTypeAdapterFactory(ConsumableTypeAdapter.FACTORY)
+                .registerTypeAdapter(LocalDateTime.class,
                 new TypeAdapter<LocalDateTime>() {
                     @Override
                     public void write(JsonWriter jsonWriter,
@@ -228,9 +515,6 @@ public class ConsumableManager {
 
     /**
      * Converts passed in JSON Array object into a <code>List<Conusmable></code>.
-     * <p>
-     * Reassigns the object's subclass name back <code>Consumable</code> field <code>type</code> to each object
-     * for <code>Gson</code> to serialize after deserializing for the 2nd and subsequent runs of the application.
      *
      * @param jsonArrayObject a <code>String</code> JSON Array object to be deserialized
      */
@@ -241,18 +525,7 @@ public class ConsumableManager {
         // https://stackoverflow.com/questions/18544133/parsing-json-array-into-java-util-list-with-gson
         Type typeListConsumable = new TypeToken<List<Consumable>>() {
         }.getType();
-        List<Consumable> list = customGsonObj.fromJson(jsonArrayObject, typeListConsumable);
-
-        // set the type back to each object for gson to serialize after deserializing
-        for (Consumable consumable : fridge) {
-            if (consumable instanceof Food) {
-                consumable.setType(consumable.getClass().getName());
-            } else if (consumable instanceof Drink) {
-                consumable.setType(consumable.getClass().getName());
-            }
-        }
-
-        return list;
+        return customGsonObj.fromJson(jsonArrayObject, typeListConsumable);
     }
 }
 
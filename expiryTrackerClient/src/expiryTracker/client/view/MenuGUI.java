@@ -71,6 +71,19 @@ public class MenuGUI {
         // piece together mainPanel to the frame
         appFrame.add(mainPanel);
         appFrame.setVisible(true);
+
+        // show changes made by this or any other client as the server sends them
+        consumableManager.setFridgeChangeListener(() -> SwingUtilities.invokeLater(this::refreshItemPanel));
+        consumableManager.startChangeFeed();
+    }
+
+    /**
+     * Displays the current list view again, filtered from the list kept up to date by the change feed.
+     */
+    private void refreshItemPanel() {
+        populateScrollPane(consumableManager.getFilteredList(listMode));
+        itemPanel.revalidate();
+        itemPanel.repaint();
     }
 
     /**
@@ -160,9 +173,7 @@ public class MenuGUI {
         button.addActionListener(event -> {
             selectedButton(button);
             listMode = button.getText();
-            populateScrollPane(consumableManager.getFilteredList(listMode));
-            itemPanel.revalidate();
-            itemPanel.repaint();
+            refreshItemPanel();
         });
 
         buttonPanel.add(button);
@@ -323,9 +334,7 @@ public class MenuGUI {
         JButton deleteBtn = new JButton("Delete");
         deleteBtn.addActionListener(event -> {
             consumableManager.removeConsumableItemRequest(item.getItemId());
-            this.populateScrollPane(consumableManager.getFilteredList(listMode));
-            itemPanel.revalidate();
-            itemPanel.repaint();
+            refreshItemPanel();
         });
         return deleteBtn;
     }
@@ -339,9 +348,7 @@ public class MenuGUI {
         addBtn.setAlignmentX(Component.CENTER_ALIGNMENT);
         addBtn.addActionListener(event -> {
             new AddItemGUI(appFrame);
-            this.populateScrollPane(consumableManager.getFilteredList(listMode));
-            itemPanel.revalidate();
-            itemPanel.repaint();
+            refreshItemPanel();
         });
 
         mainPanel.add(addBtn);
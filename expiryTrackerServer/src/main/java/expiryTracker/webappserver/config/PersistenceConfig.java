@@ -0,0 +1,51 @@
+package expiryTracker.webappserver.config;
+
+import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.control.persistence.DurabilityMode;
+import expiryTracker.webappserver.control.store.ConsumableStore;
+import expiryTracker.webappserver.control.store.FileConsumableStore;
+import expiryTracker.webappserver.control.store.H2ConsumableStore;
+import expiryTracker.webappserver.control.store.InMemoryConsumableStore;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spring configuration exposing the <code>ConsumableManager</code> Singleton as a bean,
+ * backed by the <code>ConsumableStore</code> chosen with the settings from <code>application.properties</code>.
+ */
+@Configuration
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class PersistenceConfig {
+
+    /**
+     * Creates the <code>ConsumableStore</code> selected by <code>expirytracker.persistence.store</code>,
+     * which is closed by the <code>ConsumableManager</code> when the application shuts down.
+     *
+     * @param persistenceProperties the settings for persisting the list
+     * @return the <code>ConsumableStore</code> for the <code>ConsumableManager</code> to delegate to
+     */
+    @Bean(destroyMethod = "")
+    public ConsumableStore consumableStore(PersistenceProperties persistenceProperties) {
+        if (persistenceProperties.getMode() == DurabilityMode.MEMORY) {
+            return new InMemoryConsumableStore();
+        }
+        return switch (persistenceProperties.getStore()) {
+            case FILE -> new FileConsumableStore(persistenceProperties);
+            case MEMORY -> new InMemoryConsumableStore();
+            case H2 -> new H2ConsumableStore(persistenceProperties.getDatabaseUrl(), persistenceProperties.getMode());
+        };
+    }
+
+    /**
+     * Creates the <code>ConsumableManager</code> Singleton delegating to the passed in store, which is closed when the
+     * application shuts down, closing its feed of changes and the store.
+     *
+     * @param consumableStore the <code>ConsumableStore</code> keeping the items
+     * @return the <code>ConsumableManager</code> the controllers work with
+     */
+    @Bean(destroyMethod = "close")
+    public ConsumableManager consumableManager(ConsumableStore consumableStore) {
+        return ConsumableManager.getInstance(consumableStore);
+    }
+}
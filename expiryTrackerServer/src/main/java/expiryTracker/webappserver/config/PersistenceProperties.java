@@ -0,0 +1,163 @@
+package expiryTracker.webappserver.config;
+
+import expiryTracker.webappserver.control.persistence.DurabilityMode;
+import expiryTracker.webappserver.control.persistence.SnapshotFormat;
+import expiryTracker.webappserver.control.store.StoreType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for how the server persists its list of <code>Consumable</code> items,
+ * bound from the <code>expirytracker.persistence.*</code> properties in <code>application.properties</code>.
+ */
+@ConfigurationProperties(prefix = "expirytracker.persistence")
+public class PersistenceProperties {
+    private StoreType store = StoreType.FILE;
+    private String filePath = "itemList.json";
+    private String databaseUrl = "jdbc:h2:file:./itemList";
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+    private DataSize journalSizeThreshold = DataSize.ofMegabytes(8);
+    private SnapshotFormat snapshotFormat = SnapshotFormat.BINARY;
+    private DurabilityMode mode = DurabilityMode.SYNC;
+    private int queueCapacity = 10_000;
+    private Duration flushInterval = Duration.ofMillis(50);
+    private boolean prettyPrint = false;
+
+    /**
+     * Gets the backend the items are stored in. The <code>memory</code> mode always stores them in memory only.
+     *
+     * @return the <code>StoreType</code> of the backend
+     */
+    public StoreType getStore() {
+        return store;
+    }
+
+    public void setStore(StoreType store) {
+        this.store = store;
+    }
+
+    /**
+     * Gets the path of the item list file of the <code>file</code> store, relative to the working directory.
+     * Its snapshots and journal segments are kept next to it.
+     *
+     * @return a <code>String</code> representing the path of the item list file
+     */
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Gets the JDBC URL of the embedded database of the <code>h2</code> store.
+     *
+     * @return a <code>String</code> representing the JDBC URL of the database
+     */
+    public String getDatabaseUrl() {
+        return databaseUrl;
+    }
+
+    public void setDatabaseUrl(String databaseUrl) {
+        this.databaseUrl = databaseUrl;
+    }
+
+    /**
+     * Gets how often a snapshot of the list is taken in the background.
+     * A zero or negative interval disables periodic snapshots.
+     *
+     * @return a <code>Duration</code> between two periodic snapshots
+     */
+    public Duration getSnapshotInterval() {
+        return snapshotInterval;
+    }
+
+    public void setSnapshotInterval(Duration snapshotInterval) {
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Gets the size the current journal segment may grow to before a snapshot is taken early,
+     * regardless of the snapshot interval.
+     *
+     * @return a <code>DataSize</code> of the current journal segment that triggers a snapshot
+     */
+    public DataSize getJournalSizeThreshold() {
+        return journalSizeThreshold;
+    }
+
+    public void setJournalSizeThreshold(DataSize journalSizeThreshold) {
+        this.journalSizeThreshold = journalSizeThreshold;
+    }
+
+    /**
+     * Gets the format new snapshots are written in. Snapshots already on disk are read in whichever format
+     * they were written in, so the format can be switched between restarts.
+     *
+     * @return the <code>SnapshotFormat</code> of new snapshots
+     */
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    /**
+     * Gets how far a change has been persisted by the time it is acknowledged.
+     *
+     * @return the <code>DurabilityMode</code> changes are persisted with
+     */
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    public void setMode(DurabilityMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Gets the number of journal records which may wait to be written before changes block until the disk catches up.
+     *
+     * @return the capacity of the journal's queue
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Gets how long journal records are collected into one batch before being forced to disk in the
+     * <code>async</code> mode. The <code>sync</code> mode always flushes right away.
+     *
+     * @return a <code>Duration</code> to wait for more records before flushing a batch
+     */
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Gets whether JSON snapshots are pretty printed, which makes them easier to read while debugging
+     * but larger and slower to write. Responses are never pretty printed.
+     *
+     * @return <code>true</code> if JSON snapshots are pretty printed
+     */
+    public boolean isPrettyPrint() {
+        return prettyPrint;
+    }
+
+    public void setPrettyPrint(boolean prettyPrint) {
+        this.prettyPrint = prettyPrint;
+    }
+}
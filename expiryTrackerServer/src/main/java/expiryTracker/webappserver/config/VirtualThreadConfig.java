@@ -0,0 +1,52 @@
+package expiryTracker.webappserver.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Spring configuration running every request on its own virtual thread instead of Tomcat's pool of platform threads,
+ * enabled with <code>expirytracker.server.virtual-threads=true</code>.
+ * <p>
+ * A request blocked on disk, such as waiting for its change to be written in the <code>sync</code> mode, then only
+ * parks its virtual thread rather than holding on to one of a limited number of platform threads, so the number of
+ * requests served at once is bounded by <code>server.tomcat.max-connections</code> instead of
+ * <code>server.tomcat.threads.max</code>.
+ * <p>
+ * Virtual threads need JDK 21 or later at runtime. On an older JDK the server keeps its platform threads.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "expirytracker.server", name = "virtual-threads", havingValue = "true")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        return protocolHandler -> {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor == null) {
+                System.out.println("Virtual threads need JDK 21 or later, serving requests on platform threads: "
+                        + Runtime.version());
+                return;
+            }
+            protocolHandler.setExecutor(executor);
+        };
+    }
+
+    /**
+     * Creates an <code>ExecutorService</code> starting a new virtual thread for every task, looked up at runtime
+     * so that the server still builds and runs on JDKs without virtual threads.
+     *
+     * @return a new virtual thread per task <code>ExecutorService</code>, or <code>null</code> if the JDK has none
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
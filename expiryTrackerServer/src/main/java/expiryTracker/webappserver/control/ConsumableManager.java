@@ -1,142 +1,432 @@
 package expiryTracker.webappserver.control;
 
-import expiryTracker.webappserver.control.utils.RuntimeTypeAdapterFactory;
+import expiryTracker.webappserver.control.cache.ViewCache;
+import expiryTracker.webappserver.control.cache.ViewCacheStats;
+import expiryTracker.webappserver.control.changes.ChangeEvent;
+import expiryTracker.webappserver.control.changes.ChangeFeed;
+import expiryTracker.webappserver.control.persistence.LoadProgress;
+import expiryTracker.webappserver.control.persistence.PersistenceStats;
+import expiryTracker.webappserver.control.persistence.RecoveryStats;
+import expiryTracker.webappserver.control.store.ConsumableStore;
+import expiryTracker.webappserver.control.wire.BinaryWireFormat;
+import expiryTracker.webappserver.control.wire.WireFormat;
+import expiryTracker.webappserver.control.utils.ConsumableTypeAdapter;
 import expiryTracker.webappserver.model.Consumable;
-import expiryTracker.webappserver.model.Drink;
-import expiryTracker.webappserver.model.Food;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.TypeAdapter;
-import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 
-import java.io.*;
-import java.lang.reflect.Type;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
-
-import static java.time.temporal.ChronoUnit.DAYS;
+import java.util.UUID;
 
 /**
  * Manages the state of a stored <code>List<Consumable</code> as a Singleton Class.
  * <p>
- * Responsible for listing, adding, and removal of <code>Consumable</code> objects
- * stored in private field <code>List<Consumable> fridge</code>.
+ * Responsible for listing, adding, and removal of <code>Consumable</code> objects,
+ * which are kept by a <code>ConsumableStore</code> chosen through the <code>expirytracker.persistence.store</code>
+ * property: the item list file with its snapshots and journal, memory only, or an embedded H2 database.
  * <p>
- * Responsible for reading to and from a .json file using <code>Gson</code>
- * regarding the <code>List<Consumable></code>
+ * Responsible for converting the <code>List<Consumable></code> to and from JSON using <code>Gson</code>
  * <p>
+ * Safe to use from any number of request threads at once. Readers never lock: every list handed out is an immutable
+ * snapshot of the items, published by the store through a <code>volatile</code> reference, which later changes
+ * replace rather than modify. Writers are serialized by the store, so each change is made to the latest snapshot.
+ * Results are never shared between calls, so concurrent requests can't see each other's partial results.
  */
-public class ConsumableManager {
-    private List<Consumable> fridge = new ArrayList<>();
-    private final List<Consumable> basket = new ArrayList<>();
+public class ConsumableManager implements Closeable {
+    private static final int NUM_DAYS_IN_WEEK = 7;
+
+    private final ConsumableStore store;
+    private final ChangeFeed changeFeed = new ChangeFeed(ChangeFeed.DEFAULT_HISTORY_SIZE);
+    private final ViewCache viewCache = new ViewCache(ViewCache.DEFAULT_MAX_BYTES);
     public final Gson customGsonObj = newCustomGsonObj();
-    private final String FILE_PATH = ".\\itemList.json";
     private static ConsumableManager instance;
 
     /**
-     * Constructs a private <code>ConsumableManager</code> Singleton for the purpose
-     * of reading from a JSON file to load (if existing)
-     * <code>Consumable</code> objects of type subclass type <code>Food</code> or <code>Drink</code>
+     * Constructs a private <code>ConsumableManager</code> Singleton delegating to the passed in store,
+     * numbering every change made to it from now on.
+     *
+     * @param store the <code>ConsumableStore</code> keeping the <code>Consumable</code> objects
      */
-    private ConsumableManager() {
-        readInFile();
+    private ConsumableManager(ConsumableStore store) {
+        this.store = store;
+        store.setChangeListener(changeFeed);
     }
 
     /**
-     * Gets an instance of <code>ConsumableManger</code> Singleton
+     * Gets an instance of <code>ConsumableManger</code> Singleton,
+     * creating it with the passed in store if it doesn't exist yet
      *
+     * @param store the <code>ConsumableStore</code> keeping the <code>Consumable</code> objects
      * @return an instance of <code>ConsumableManger</code>
+     * @throws IllegalStateException if the instance already exists with a different store
      */
-    public static ConsumableManager getInstance() {
+    public static synchronized ConsumableManager getInstance(ConsumableStore store) {
         if (instance == null) {
-            instance = new ConsumableManager();
+            instance = new ConsumableManager(store);
+        } else if (instance.store != store) {
+            throw new IllegalStateException("ConsumableManager already exists with a different store");
         }
         return instance;
     }
 
+    /**
+     * Shuts the manager down: stops sending changes to the subscribed clients and releasing their sender threads,
+     * then closes the store once every change made so far has been saved. A new instance may be created afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (ConsumableManager.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+        changeFeed.close();
+        store.close();
+    }
+
     /**
      * Getter for an instance of the main list of <code>Consumable</code> objects
+     * <p>
+     * The list holds the items at the moment of the call, later changes aren't reflected in it.
      *
      * @return an instance of the main list of <code>Consumable</code> objects
      */
     public List<Consumable> getFridge() {
-        return this.fridge;
+        return store.findAll();
+    }
+
+    /**
+     * Gets the <code>Consumable</code> object with the passed in id, looked up through the store's index of item ids
+     *
+     * @param itemId a <code>UUID</code> representing the id of the object
+     * @return the <code>Consumable</code> object with the id, or <code>null</code> if there is none
+     */
+    public Consumable findConsumableItem(UUID itemId) {
+        return store.findById(itemId);
     }
 
     /**
-     * Inserts an object of base type <code>Consumable</code> into the <code>List<Consumable> fridge </code>
+     * Inserts an object of base type <code>Consumable</code> into the store at its position in natural order
+     * <p>
+     * In the <code>sync</code> mode, returns once the addition has been saved to disk.
      *
      * @param item a <code>Consumable</code> object representing either a Food or Drink item
+     * @return the <code>ChangeEvent</code> of the addition, holding the version of the list it made
      */
-    public void addConsumableItem(Consumable item) {
-        fridge.add(item);
+    public ChangeEvent addConsumableItem(Consumable item) {
+        // the item is never changed once it is stored, so it is converted for the lists it will be sent in once,
+        // before anyone can read it
+        getCompactJson(item);
+        ChangeEvent change;
+        try {
+            store.add(item);
+        } finally {
+            change = changeFeed.takeLastChangeOfThread();
+            if (change != null) {
+                viewCache.invalidate();
+            }
+        }
+        return change;
     }
 
     /**
-     * Removes an object of base type <code>Consumable</code> from <code>List<Consumable> fridge</code>
+     * Inserts a batch of objects of base type <code>Consumable</code> into the store in a single pass, each at its
+     * position in natural order. Readers see either none of the items or all of them.
+     * <p>
+     * In the <code>sync</code> mode, returns once the whole batch has been saved to disk.
      *
-     * @param consumableItem An object of base type <code>Consumable</code> located in
-     *                       <code>List<Consumable> fridge</code>
+     * @param items a <code>List<Consumable></code> of Food and Drink items with their ids assigned, in any order
+     * @return the <code>ChangeEvent</code> of the last addition, holding the version of the list the batch made,
+     * or <code>null</code> if the batch is empty
      */
-    public void removeConsumableItem(Consumable consumableItem) {
-        fridge.remove(consumableItem);
+    public ChangeEvent addConsumableItems(List<? extends Consumable> items) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        for (Consumable item : items) {
+            getCompactJson(item);
+        }
+        ChangeEvent change;
+        try {
+            store.addAll(items);
+        } finally {
+            change = changeFeed.takeLastChangeOfThread();
+            if (change != null) {
+                viewCache.invalidate();
+            }
+        }
+        return change;
     }
 
     /**
-     * Sorts the private field <code>List<Consumable> fridge</code> in natural order
-     * * through the use of the <code>Comparable</code> interface, defined by
-     * * the method <code>compareTo(<code>Consumable</code> object)</code>
+     * Removes an object of base type <code>Consumable</code> from the store
+     * <p>
+     * In the <code>sync</code> mode, returns once the removal has been saved to disk.
+     *
+     * @param consumableItem An object of base type <code>Consumable</code> handed out by <code>getFridge()</code>
+     * @return the <code>ChangeEvent</code> of the removal, holding the version of the list it made,
+     * or <code>null</code> if the item had already been removed
      */
-    public void sortFridge() {
-        Collections.sort(fridge);
+    public ChangeEvent removeConsumableItem(Consumable consumableItem) {
+        ChangeEvent change;
+        try {
+            store.remove(consumableItem);
+        } finally {
+            change = changeFeed.takeLastChangeOfThread();
+            if (change != null) {
+                viewCache.invalidate();
+            }
+        }
+        return change;
     }
 
     /**
-     * Filters <code>Consumable</code> objects from <code>List<Consumable> fridge</code> to <code>List<Consumable> basket</code>
+     * Removes the items with the passed in ids from the store in one go. Readers see either none of the items removed
+     * or all of them.
+     * <p>
+     * In the <code>sync</code> mode, returns once the whole batch has been saved to disk.
+     *
+     * @param itemIds the <code>UUID</code>s of the items to remove, skipping those of items which aren't stored
+     * @return a <code>List<Consumable></code> of the items removed, in natural order
+     */
+    public List<Consumable> removeConsumableItems(Collection<UUID> itemIds) {
+        try {
+            return store.removeAll(itemIds);
+        } finally {
+            if (changeFeed.takeLastChangeOfThread() != null) {
+                viewCache.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Removes every item expiring before the passed in day from the store in one go, found through the order by
+     * expiry day. Readers see either none of the items removed or all of them.
+     * <p>
+     * In the <code>sync</code> mode, returns once the whole batch has been saved to disk.
+     *
+     * @param day the first expiry day to keep
+     * @return a <code>List<Consumable></code> of the items removed, in natural order
+     */
+    public List<Consumable> removeItemsExpiringBefore(LocalDate day) {
+        try {
+            return store.removeExpiringBefore(day);
+        } finally {
+            if (changeFeed.takeLastChangeOfThread() != null) {
+                viewCache.invalidate();
+            }
+        }
+    }
+
+    /**
+     * Gets the version of the list, the number of changes made to it since the server was started.
+     *
+     * @return a <code>long</code> representing the version of the list
+     */
+    public long getVersion() {
+        return changeFeed.getVersion();
+    }
+
+    /**
+     * Subscribes a client to the changes made to the list of items, sending it first the changes it missed since the
+     * passed in event id, or a <code>RESET</code> event if it has to get the whole list again.
+     *
+     * @param lastEventId the id of the last <code>ChangeEvent</code> the client got, or <code>null</code> if none
+     * @param subscriber  the <code>ChangeFeed.Subscriber</code> to send the changes to
+     */
+    public void subscribeToChanges(String lastEventId, ChangeFeed.Subscriber subscriber) {
+        changeFeed.subscribe(lastEventId, subscriber);
+    }
+
+    /**
+     * Forces every change made so far to disk, including those still waiting to be flushed in the
+     * <code>async</code> mode. Does nothing in the <code>memory</code> mode.
+     */
+    public void flush() {
+        store.flush();
+    }
+
+    /**
+     * Gets how changes are persisted by the store and how long persisting them has taken so far.
+     *
+     * @return a <code>PersistenceStats</code> object describing the persistence of changes
+     */
+    public PersistenceStats getPersistenceStats() {
+        return store.getPersistenceStats();
+    }
+
+    /**
+     * Gets how the list was recovered on startup and how long each step of the recovery took.
+     *
+     * @return a <code>RecoveryStats</code> object describing the recovery
+     */
+    public RecoveryStats getRecoveryStats() {
+        return store.getRecoveryStats();
+    }
+
+    /**
+     * Gets the progress of loading the list on startup, available while loading is still going on.
+     *
+     * @return a <code>LoadProgress</code> object describing how far loading has come
+     */
+    public LoadProgress getLoadProgress() {
+        return store.getLoadProgress();
+    }
+
+    /**
+     * Gets how often the views of the list were sent from the cache and how long building the others took.
+     *
+     * @return a <code>ViewCacheStats</code> object describing the use of the cache of views
+     */
+    public ViewCacheStats getViewCacheStats() {
+        return viewCache.getStats();
+    }
+
+    /**
+     * Filters <code>Consumable</code> objects from the store into a new <code>List<Consumable></code>
      * depending on the specified parameter query
      *
-     * @param mode a <code>String</code> specifying specific <code>Consumable</code> objects to put into <code>List<Consumable> basket</code>
-     * @return a <code>List<Consumable></code> containing specific <code>Consumable</code> objects
+     * @param mode a <code>String</code> specifying specific <code>Consumable</code> objects to put into the list
+     * @return a new <code>List<Consumable></code> containing specific <code>Consumable</code> objects
      */
     public List<Consumable> filterList(String mode) {
-        basket.clear();
         LocalDate todayDate = LocalDateTime.now().toLocalDate();
 
-        // filter consumable items into a temporary list of consumables
-        for (Consumable item : fridge) {
-            switch (mode) {
-                case "Expired" -> {
-                    if (todayDate.isAfter(item.getExpiryDate().toLocalDate())) {
-                        basket.add(item);
-                    }
-                }
-                case "Not Expired" -> {
-                    if (todayDate.isBefore(item.getExpiryDate().toLocalDate()) ||
-                            todayDate.isEqual(item.getExpiryDate().toLocalDate())
-                    ) {
-                        basket.add(item);
-                    }
-                }
-                case "Expiring in 7 Days" -> {
-                    int daysToExpiry = (int) DAYS.between(todayDate, item.getExpiryDate());
+        // ask the store for the range of expiry days, which it may answer from an index
+        return switch (mode) {
+            case "Expired" -> store.findByExpiryDateBetween(null, todayDate.minusDays(1));
+            case "Not Expired" -> store.findByExpiryDateBetween(todayDate, null);
+            case "Expiring in 7 Days" -> store.findByExpiryDateBetween(todayDate, todayDate.plusDays(NUM_DAYS_IN_WEEK));
+            case "All" -> store.findAll();
+            default -> new ArrayList<>();
+        };
+    }
 
-                    final int NUM_DAYS_IN_WEEK = 7;
-                    if (daysToExpiry >= 0 && daysToExpiry <= NUM_DAYS_IN_WEEK) {
-                        basket.add(item);
-                    }
-                }
-            }
+    /**
+     * Gets a version of the list filtered by the passed in mode, which changes whenever the filtered list may have
+     * changed: with every change to the list and, except for the whole list, whenever the day changes, since the
+     * filters are relative to today.
+     * <p>
+     * Versions of earlier runs of the server are never repeated, since the count of changes starts over on every run.
+     *
+     * @param mode a <code>String</code> specifying the filter, as passed to <code>filterList()</code>
+     * @return a <code>String</code> representing the version of the filtered list
+     */
+    public String getListVersion(String mode) {
+        String listVersion = changeFeed.getEpoch() + "-" + changeFeed.getVersion();
+        if (mode.equals("All")) {
+            return listVersion;
         }
-        return basket;
+        return listVersion + "-" + LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Writes the list filtered by the passed in mode to the passed in <code>OutputStream</code> in the passed in
+     * format, from the cache of views if it holds the view for the passed in version and by filtering and converting
+     * the list otherwise.
+     *
+     * @param mode         a <code>String</code> specifying the filter, as passed to <code>filterList()</code>
+     * @param format       the <code>WireFormat</code> to write the list in
+     * @param listVersion  the version of the filtered list from <code>getListVersion()</code>, taken before this call
+     * @param outputStream the <code>OutputStream</code> to write the list to, flushed but not closed
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    public void writeList(String mode, WireFormat format, String listVersion, OutputStream outputStream)
+            throws IOException {
+        String viewKey = mode + "/" + format;
+        viewCache.write(viewKey, listVersion, !mode.equals("All"), outputStream,
+                viewOutputStream -> writeList(filterList(mode), format, viewOutputStream));
+    }
+
+    /**
+     * Writes the passed in <code>List<Consumable></code> parameter to the passed in <code>OutputStream</code> in the
+     * passed in format.
+     *
+     * @param list         a <code>List<Consumable></code> to be written
+     * @param format       the <code>WireFormat</code> to write the list in
+     * @param outputStream the <code>OutputStream</code> to write the list to, flushed but not closed
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    public void writeList(List<Consumable> list, WireFormat format, OutputStream outputStream) throws IOException {
+        switch (format) {
+            case JSON -> writeJSONArray(list, outputStream);
+            case NDJSON -> writeNDJSON(list, outputStream);
+            case BINARY -> writeBinary(list, outputStream);
+        }
+    }
+
+    /**
+     * Encodes the passed in <code>List<Consumable></code> parameter in the passed in format.
+     *
+     * @param list   a <code>List<Consumable></code> to be encoded
+     * @param format the <code>WireFormat</code> to encode the list in
+     * @return a <code>byte[]</code> holding the encoded list
+     */
+    public byte[] encodeList(List<Consumable> list, WireFormat format) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writeList(list, format, outputStream);
+        } catch (IOException e) {
+            // a ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Encodes the passed in item in the passed in format, as a JSON object for both JSON formats.
+     *
+     * @param item   a <code>Consumable</code> object to be encoded
+     * @param format the <code>WireFormat</code> to encode the item in
+     * @return a <code>byte[]</code> holding the encoded item
+     */
+    public byte[] encodeItem(Consumable item, WireFormat format) {
+        if (format != WireFormat.BINARY) {
+            return getCompactJson(item).clone();
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            BinaryWireFormat.writeItemHeader(outputStream);
+            outputStream.write(getBinaryRecord(item));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Encodes the passed in change to the list in the passed in format, as the same JSON object as
+     * <code>toJSON()</code> for both JSON formats.
+     *
+     * @param event  a <code>ChangeEvent</code> adding or removing an item, to be encoded
+     * @param format the <code>WireFormat</code> to encode the change in
+     * @return a <code>byte[]</code> holding the encoded change
+     */
+    public byte[] encodeChange(ChangeEvent event, WireFormat format) {
+        if (format != WireFormat.BINARY) {
+            return toJSON(event).getBytes(StandardCharsets.UTF_8);
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            BinaryWireFormat.writeChangeHeader(event.getVersion(), outputStream);
+            outputStream.write(getBinaryRecord(event.getItem()));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return outputStream.toByteArray();
     }
 
     /**
@@ -150,23 +440,30 @@ public class ConsumableManager {
 
     /**
      * Constructs a custom Gson object with <code>TypeAdapters</code> for classes LocalDateTime and
-     * <code>RuntimeTypeAdapterFactory</code> for <code>Consumable</code>
-     * and its subclasses <code>Food</code> and <code>Drink</code>.
+     * <code>Consumable</code>
+     * and its subclasses <code>Food</code> and <code>Drink</code>, without pretty printing, since every response is
+     * written with it and indentation would only make them larger.
      *
      * @return a new custom <code>Gson</code> object for serializing/deserializing of class <code>LocalDateTime</code>
      * and subclasses <code>Food</code> & <code>Drink</code> objects of <code>Consumable</code> superclass
      */
     private Gson newCustomGsonObj() {
-        // modified code provided to determine types of subclass objects reading into superclass list
-        // https://mvnrepository.com/artifact/com.google.code.gson/gson-extras/2.8.5
-        // https://stackoverflow.com/questions/48855124/unable-to-deserialize-with-runtimetypeadapterfactory-does-not-define-a-field
-        RuntimeTypeAdapterFactory<Consumable> adapter =
-                RuntimeTypeAdapterFactory
-                        .of(Consumable.class, "type")
-                        .registerSubtype(Food.class, Food.class.getName())
-                        .registerSubtype(Drink.class, Drink.class.getName());
-
-        return new GsonBuilder().registerTypeAdapterFactory(adapter).registerTypeAdapter(LocalDateTime.class,
+        return newCustomGsonBuilder().create();
+    }
+
+    /**
+     * Constructs a <code>GsonBuilder</code> with <code>TypeAdapters</code> for classes LocalDateTime and
+     * <code>Consumable</code>
+     * and its subclasses <code>Food</code> and <code>Drink</code>, without pretty printing.
+     * <p>
+     * Items are converted by <code>ConsumableTypeAdapter</code>, which tags them with <code>food</code> or
+     * <code>drink</code> and streams their fields without reflection.
+     *
+     * @return a new <code>GsonBuilder</code> shared by the <code>Gson</code> objects for responses and files
+     */
+    public static GsonBuilder newCustomGsonBuilder() {
+        return new GsonBuilder().registerTypeAdapterFactory(ConsumableTypeAdapter.FACTORY)
+                .registerTypeAdapter(LocalDateTime.class,
                 new TypeAdapter<LocalDateTime>() {
                     @Override
                     public void write(JsonWriter jsonWriter,
@@ -178,12 +475,26 @@ public class ConsumableManager {
                     public LocalDateTime read(JsonReader jsonReader) throws IOException {
                         return LocalDateTime.parse(jsonReader.nextString());
                     }
-                }).setPrettyPrinting().create();
+                });
+    }
+
+    /**
+     * Constructs a custom Gson object for the snapshot and item list files.
+     *
+     * @param prettyPrint <code>true</code> to pretty print the files, for reading them while debugging
+     * @return a new <code>Gson</code> object for writing <code>Food</code> & <code>Drink</code> objects to file
+     */
+    public static Gson newFileGsonObj(boolean prettyPrint) {
+        GsonBuilder gsonBuilder = newCustomGsonBuilder();
+        if (prettyPrint) {
+            gsonBuilder.setPrettyPrinting();
+        }
+        return gsonBuilder.create();
     }
 
     /**
      * Gets a custom Gson object with <code>TypeAdapters</code> for classes LocalDateTime and
-     * <code>RuntimeTypeAdapterFactory</code> for <code>Consumable</code>
+     * <code>Consumable</code>
      * and its subclasses <code>Food</code> and <code>Drink</code>.
      *
      * @return a <code>Gson</code> object for serializing/deserializing of class <code>LocalDateTime</code>
@@ -194,136 +505,129 @@ public class ConsumableManager {
     }
 
     /**
-     * Reads from a specified json file and initializes <code>List<Consumable> fridge</code>.
-     * Otherwise, creates a json file for saving food item objects if the file doesn't exist.
-     * <p>
-     * Reassigns the object's subclass name back <code>Consumable</code> field <code>type</code> to each object
-     * for <code>Gson</code> to serialize after deserializing for the 2nd and subsequent runs of the application.
+     * Converts the passed in <code>List<Consumable></code> parameter to a JSON Array object of type <code>String</code>
+     *
+     * @param list a <code>List<Consumable></code> to be converted into a JSON Array object
+     * @return a <code>String</code> representing the <code>List<Consumable> list</code> as a JSON Array object
      */
-    public void readInFile() {
-        Path filePath = Path.of(FILE_PATH);
-
+    public String toJSONArray(List<Consumable> list) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         try {
-            File fileReaderObj = new File(String.valueOf(filePath));
-
-            // if file already exists, read from json file, else make new file & initialize the consumable item list
-            if (!fileReaderObj.createNewFile()) {
-                Reader fileReader = Files.newBufferedReader(filePath);
-
-                // convert JSON file to a List<FoodItem>
-                // https://attacomsian.com/blog/gson-read-json-file
-                // https://stackoverflow.com/questions/18544133/parsing-json-array-into-java-util-list-with-gson
-                Type typeConsumable = new TypeToken<List<Consumable>>() {
-                }.getType();
-                fridge = customGsonObj.fromJson(fileReader, typeConsumable);
-
-                // if file does exist but is empty, re-instantiate list
-                if (fridge == null) {
-                    fridge = new ArrayList<>();
-                }
-
-                // Convert item subtypes from server to client class name structure
-                typeServerToClient(true);
-
-                fileReader.close();
-            }
+            writeJSONArray(list, outputStream);
         } catch (IOException e) {
-            System.out.println("File can't be read!");
+            // a ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
         }
+        return outputStream.toString(StandardCharsets.UTF_8);
     }
 
     /**
-     * Writes to a json file for saving <code>Consumable</code> objects
-     * generated during the duration of the program.
+     * Writes the passed in <code>List<Consumable></code> parameter to the passed in <code>OutputStream</code> in
+     * UTF-8 as the same JSON Array object as <code>Gson</code> would, one item at a time.
+     * <p>
+     * Every item is only converted the first time it is written, and keeps its bytes for every later list, so
+     * writing a list mostly comes down to copying the bytes of its items.
+     *
+     * @param list         a <code>List<Consumable></code> to be written as a JSON Array object
+     * @param outputStream the <code>OutputStream</code> to write the JSON Array object to, flushed but not closed
+     * @throws IOException if writing fails, e.g. because the client went away
      */
-    public void writeToFile() {
-        Path filePath = Paths.get(FILE_PATH);
-
-        // temporarily Convert item subtypes from client to server class name structure
-        typeServerToClient(false);
+    public void writeJSONArray(List<Consumable> list, OutputStream outputStream) throws IOException {
+        outputStream.write('[');
+        boolean first = true;
+        for (Consumable item : list) {
+            if (!first) {
+                outputStream.write(',');
+            }
+            first = false;
+            outputStream.write(getCompactJson(item));
+        }
+        outputStream.write(']');
+        outputStream.flush();
+    }
 
-        // make deep copy of fridge for serializing
-        List<Consumable> listToSerialize = newListToSerialize();
+    /**
+     * Writes the passed in <code>List<Consumable></code> parameter to the passed in <code>OutputStream</code> in
+     * UTF-8 as newline delimited JSON: every item as a JSON object on a line of its own.
+     * Items are converted only once, the same as by <code>writeJSONArray()</code>.
+     *
+     * @param list         a <code>List<Consumable></code> to be written as newline delimited JSON
+     * @param outputStream the <code>OutputStream</code> to write the items to, flushed but not closed
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    public void writeNDJSON(List<Consumable> list, OutputStream outputStream) throws IOException {
+        for (Consumable item : list) {
+            outputStream.write(getCompactJson(item));
+            outputStream.write('\n');
+        }
+        outputStream.flush();
+    }
 
-        // reconvert fridge subTypes back to client class types
-        typeServerToClient(true);
+    /**
+     * Writes the passed in <code>List<Consumable></code> parameter to the passed in <code>OutputStream</code> in
+     * <code>BinaryWireFormat</code>. Items are converted only once, the same as by <code>writeJSONArray()</code>.
+     *
+     * @param list         a <code>List<Consumable></code> to be written in the binary format
+     * @param outputStream the <code>OutputStream</code> to write the list to, flushed but not closed
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    public void writeBinary(List<Consumable> list, OutputStream outputStream) throws IOException {
+        BinaryWireFormat.writeListHeader(list.size(), outputStream);
+        for (Consumable item : list) {
+            outputStream.write(getBinaryRecord(item));
+        }
+        outputStream.flush();
+    }
 
-        // https://docs.oracle.com/javase/7/docs/api/java/io/FileWriter.html
-        // https://attacomsian.com/blog/gson-write-json-file
+    /**
+     * Converts the passed in <code>ChangeEvent</code> to a JSON object on a single line, holding its version and,
+     * unless it is a <code>RESET</code> event, the item added or removed.
+     *
+     * @param event a <code>ChangeEvent</code> to be converted into a JSON object
+     * @return a <code>String</code> representing the <code>ChangeEvent</code> as a JSON object
+     */
+    public String toJSON(ChangeEvent event) {
+        StringWriter writer = new StringWriter();
         try {
-            Writer fileWriterObj = new FileWriter(String.valueOf(filePath));
-            customGsonObj.toJson(listToSerialize, fileWriterObj);
-            fileWriterObj.close();
+            JsonWriter jsonWriter = customGsonObj.newJsonWriter(writer);
+            jsonWriter.beginObject();
+            jsonWriter.name("version").value(event.getVersion());
+            if (event.getItem() != null) {
+                jsonWriter.name("item").jsonValue(new String(getCompactJson(event.getItem()), StandardCharsets.UTF_8));
+            }
+            jsonWriter.endObject();
+            jsonWriter.flush();
         } catch (IOException e) {
-            System.out.println("Unable to write to save consumable data to file: " + filePath);
+            // a StringWriter doesn't throw
+            throw new IllegalStateException(e);
         }
+        return writer.toString();
     }
 
     /**
-     * Helper method to create a deep copy of <code>List<Consumable> fridge</code>
-     * and reinitializing the field <code>type</code> subtypes of each <code>Consumable</code> object
-     * <p>
-     * The method to create a deep copy makes use of the fact that serializing and deserializing an
-     * object will remove all references of the "copied" item and create a new object with same values,
-     * but with different references
-     * </p>
-     *
-     * @return a deep copied <code>List<Consumable></code> of <code>List<Consumable> fridge</code>
-     */
-    private List<Consumable> newListToSerialize() {
-        // https://www.geeksforgeeks.org/how-to-clone-a-list-in-java/
-        List<Consumable> listToSerialize = customGsonObj.fromJson(
-                customGsonObj.toJson(fridge),
-                new TypeToken<List<Consumable>>() {
-                }.getType()
-        );
-
-        // reinitialize the subtypes
-        for (Consumable consumable : listToSerialize) {
-            if (consumable instanceof Food) {
-                consumable.setType(consumable.getClass().getName());
-            } else if (consumable instanceof Drink) {
-                consumable.setType(consumable.getClass().getName());
-            }
+     * Helper method to get the passed in item as a JSON object on a single line, converting it only if it hasn't
+     * been converted before. Items are never changed once stored, so the bytes can't go out of date.
+     */
+    private byte[] getCompactJson(Consumable item) {
+        byte[] compactJson = item.getCompactJson();
+        if (compactJson == null) {
+            compactJson = customGsonObj.toJson(item, item.getClass()).getBytes(StandardCharsets.UTF_8);
+            // two threads converting the same item at once both get the same bytes, whichever is kept
+            item.setCompactJson(compactJson);
         }
-        return listToSerialize;
+        return compactJson;
     }
 
     /**
-     * Converts the passed in <code>List<Consumable></code> parameter to a JSON Array object of type <code>String</code>
-     *
-     * @param list a <code>List<Consumable></code> to be converted into a JSON Array object
-     * @return a <code>String</code> representing the <code>List<Consumable> list</code> as a JSON Array object
+     * Helper method to get the passed in item as a record of <code>BinaryWireFormat</code>, converting it only if it
+     * hasn't been converted before.
      */
-    public String toJSONArray(List<Consumable> list) {
-        return customGsonObj.toJson(list);
-    }
-
-    /**
-     * Helper method for converting the object's, of <code>List<Consumable> fridge</code>, type
-     * relative to the server's class subtype to the clients class subtype of <code>Food</code> or <code>Drink</code>
-     * and vice versa.
-     */
-    private void typeServerToClient(boolean isForwardConvert) {
-        // Convert item subtypes from server to client class name structure
-        for (Consumable consumable : fridge) {
-            final String CLIENT_FOOD_TYPE_NAME = "ca.cmpt213.a4.client.model.Food";
-            final String CLIENT_DRINK_TYPE_NAME = "ca.cmpt213.a4.client.model.Drink";
-            if (isForwardConvert) {
-                if (consumable instanceof Food) {
-                    consumable.setType(CLIENT_FOOD_TYPE_NAME);
-                } else if (consumable instanceof Drink) {
-                    consumable.setType(CLIENT_DRINK_TYPE_NAME);
-                }
-            } else {
-                if (Objects.equals(consumable.getType(), CLIENT_FOOD_TYPE_NAME)) {
-                    consumable.setType(Food.class.getName());
-                } else if (Objects.equals(consumable.getType(), CLIENT_DRINK_TYPE_NAME)) {
-                    consumable.setType(Drink.class.getName());
-                }
-            }
+    private byte[] getBinaryRecord(Consumable item) {
+        byte[] binaryRecord = item.getBinaryRecord();
+        if (binaryRecord == null) {
+            binaryRecord = BinaryWireFormat.encode(item);
+            item.setBinaryRecord(binaryRecord);
         }
+        return binaryRecord;
     }
 }
-
-
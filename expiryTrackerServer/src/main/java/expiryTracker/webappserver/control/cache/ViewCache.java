@@ -0,0 +1,268 @@
+package expiryTracker.webappserver.control.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps the bytes of the views of the list of items most recently sent, so that a view asked for again before the
+ * list changes is written out as it is instead of being filtered and converted again.
+ * <p>
+ * Every view is kept with the version of the list it was built from, and is only written out for that version.
+ * All views are dropped whenever the list changes, and the views depending on the day whenever the day changes,
+ * so that no memory is held by views which can't be asked for anymore.
+ * <p>
+ * Views are held up to a budget of bytes, beyond which the least recently used views are evicted. A view is built
+ * while it is being sent, and only added once it is complete, so a view larger than half the budget is sent without
+ * being kept rather than evicting every other view. A view is never added if the list changed while it was built.
+ */
+public class ViewCache {
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Writes a view of the list of items, when the cache doesn't hold it.
+     */
+    public interface ViewWriter {
+
+        /**
+         * Writes the view to the passed in <code>OutputStream</code>.
+         *
+         * @param outputStream the <code>OutputStream</code> to write the view to
+         * @throws IOException if writing fails, e.g. because the client went away
+         */
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    private static final class CachedView {
+        private final String version;
+        private final boolean dependsOnDay;
+        private final byte[] bytes;
+
+        private CachedView(String version, boolean dependsOnDay, byte[] bytes) {
+            this.version = version;
+            this.dependsOnDay = dependsOnDay;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long maxBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    // in order of last use, so that the first view is the one to evict
+    private final LinkedHashMap<String, CachedView> views = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+    private LocalDate day = LocalDate.now();
+    // goes up whenever views are dropped, so that views built from the list before can be told apart
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+    private long rebuilds;
+    private long tooLargeToCache;
+    private long totalRebuildNanos;
+    private long maxRebuildNanos;
+
+    /**
+     * Constructs an empty <code>ViewCache</code> holding views up to the passed in number of bytes.
+     *
+     * @param maxBytes a <code>long</code> representing the budget of bytes of the views held
+     */
+    public ViewCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Writes the view with the passed in key to the passed in <code>OutputStream</code>, from the cache if it holds
+     * the view for the passed in version of the list, and with the passed in <code>ViewWriter</code> otherwise,
+     * keeping the bytes written for the next time.
+     *
+     * @param viewKey      a <code>String</code> telling the view apart from the others, e.g. its filter and format
+     * @param version      a <code>String</code> representing the version of the list the view is of, taken before
+     *                     the <code>ViewWriter</code> gets the list, so that the view is never older than it
+     * @param dependsOnDay <code>true</code> if the view changes with the day as well as with the list
+     * @param outputStream the <code>OutputStream</code> to write the view to, flushed but not closed
+     * @param viewWriter   the <code>ViewWriter</code> writing the view when the cache doesn't hold it
+     * @throws IOException if writing fails, e.g. because the client went away
+     */
+    public void write(String viewKey, String version, boolean dependsOnDay, OutputStream outputStream,
+                      ViewWriter viewWriter) throws IOException {
+        byte[] cachedBytesOfView = null;
+        long startGeneration;
+        lock.lock();
+        try {
+            rollOverDay();
+            CachedView view = views.get(viewKey);
+            if (view != null && view.version.equals(version)) {
+                cachedBytesOfView = view.bytes;
+                hits++;
+            } else {
+                misses++;
+            }
+            startGeneration = generation;
+        } finally {
+            lock.unlock();
+        }
+
+        if (cachedBytesOfView != null) {
+            outputStream.write(cachedBytesOfView);
+            outputStream.flush();
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        CapturingOutputStream capturingOutputStream = new CapturingOutputStream(outputStream, maxBytes / 2);
+        viewWriter.writeTo(capturingOutputStream);
+        long rebuildNanos = System.nanoTime() - startTime;
+        byte[] bytes = capturingOutputStream.getCapturedBytes();
+
+        lock.lock();
+        try {
+            if (bytes == null) {
+                tooLargeToCache++;
+                return;
+            }
+            if (generation != startGeneration) {
+                // the list changed while the view was built, so it may already be out of date
+                return;
+            }
+            put(viewKey, new CachedView(version, dependsOnDay, bytes));
+            rebuilds++;
+            totalRebuildNanos += rebuildNanos;
+            maxRebuildNanos = Math.max(maxRebuildNanos, rebuildNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops every view, because the list has changed.
+     */
+    public void invalidate() {
+        lock.lock();
+        try {
+            views.clear();
+            cachedBytes = 0;
+            generation++;
+            invalidations++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets how often views were written from the cache, how much it holds and how long building views took.
+     *
+     * @return a <code>ViewCacheStats</code> object describing the use of the cache
+     */
+    public ViewCacheStats getStats() {
+        lock.lock();
+        try {
+            return new ViewCacheStats(views.size(), cachedBytes, maxBytes, hits, misses, evictions, invalidations,
+                    rebuilds, tooLargeToCache, totalRebuildNanos, maxRebuildNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method to drop the views depending on the day if the day has changed since the last call,
+     * called while holding the lock.
+     */
+    private void rollOverDay() {
+        LocalDate today = LocalDate.now();
+        if (today.equals(day)) {
+            return;
+        }
+        day = today;
+        Iterator<CachedView> iterator = views.values().iterator();
+        while (iterator.hasNext()) {
+            CachedView view = iterator.next();
+            if (view.dependsOnDay) {
+                cachedBytes -= view.bytes.length;
+                iterator.remove();
+            }
+        }
+        generation++;
+        invalidations++;
+    }
+
+    /**
+     * Helper method to add a view in place of the one with the same key, then evict the least recently used views
+     * until the views fit into the budget, called while holding the lock.
+     */
+    private void put(String viewKey, CachedView view) {
+        CachedView replacedView = views.put(viewKey, view);
+        if (replacedView != null) {
+            cachedBytes -= replacedView.bytes.length;
+        }
+        cachedBytes += view.bytes.length;
+
+        Iterator<Map.Entry<String, CachedView>> iterator = views.entrySet().iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, CachedView> leastRecentlyUsed = iterator.next();
+            if (leastRecentlyUsed.getValue() == view) {
+                continue;
+            }
+            cachedBytes -= leastRecentlyUsed.getValue().bytes.length;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Writes through to another <code>OutputStream</code> while keeping a copy of the bytes written,
+     * until more than a limit has been written.
+     */
+    private static final class CapturingOutputStream extends OutputStream {
+        private final OutputStream outputStream;
+        private final long limit;
+        private ByteArrayOutputStream capturedBytes = new ByteArrayOutputStream();
+
+        private CapturingOutputStream(OutputStream outputStream, long limit) {
+            this.outputStream = outputStream;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            outputStream.write(b);
+            capture(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            outputStream.write(b, off, len);
+            capture(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            outputStream.flush();
+        }
+
+        /**
+         * Gets the bytes written, or <code>null</code> if there were more than the limit.
+         */
+        private byte[] getCapturedBytes() {
+            return capturedBytes != null ? capturedBytes.toByteArray() : null;
+        }
+
+        private void capture(byte[] b, int off, int len) {
+            if (capturedBytes == null) {
+                return;
+            }
+            if (capturedBytes.size() + (long) len > limit) {
+                // too large to keep, stop copying
+                capturedBytes = null;
+                return;
+            }
+            capturedBytes.write(b, off, len);
+        }
+    }
+}
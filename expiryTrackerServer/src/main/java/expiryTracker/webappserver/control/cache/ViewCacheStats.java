@@ -0,0 +1,94 @@
+package expiryTracker.webappserver.control.cache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how often the <code>ViewCache</code> answered a request, how much it holds and how long building the views
+ * it didn't hold took.
+ */
+public class ViewCacheStats {
+    private final int entries;
+    private final long cachedBytes;
+    private final long maxBytes;
+    private final long hits;
+    private final long misses;
+    private final double hitRate;
+    private final long evictions;
+    private final long invalidations;
+    private final long rebuilds;
+    private final long tooLargeToCache;
+    private final double averageRebuildMillis;
+    private final double maxRebuildMillis;
+
+    /**
+     * Constructs a <code>ViewCacheStats</code> object with the passed in measurements.
+     *
+     * @param entries           the number of views held
+     * @param cachedBytes       the size of the views held in bytes
+     * @param maxBytes          the size the views held may grow to in bytes
+     * @param hits              the number of views written from the cache
+     * @param misses            the number of views which had to be built
+     * @param evictions         the number of views dropped to make room for others
+     * @param invalidations     the number of times every view was dropped because the list changed
+     * @param rebuilds          the number of views built and added to the cache
+     * @param tooLargeToCache   the number of views built which were too large to add to the cache
+     * @param totalRebuildNanos the total time taken to build and send the views added to the cache in nanoseconds
+     * @param maxRebuildNanos   the longest time taken to build and send a view added to the cache in nanoseconds
+     */
+    public ViewCacheStats(int entries, long cachedBytes, long maxBytes, long hits, long misses, long evictions,
+                          long invalidations, long rebuilds, long tooLargeToCache,
+                          long totalRebuildNanos, long maxRebuildNanos) {
+        this.entries = entries;
+        this.cachedBytes = cachedBytes;
+        this.maxBytes = maxBytes;
+        this.hits = hits;
+        this.misses = misses;
+        this.hitRate = hits + misses > 0 ? hits / (double) (hits + misses) : 0;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+        this.rebuilds = rebuilds;
+        this.tooLargeToCache = tooLargeToCache;
+        this.averageRebuildMillis = rebuilds > 0 ? toMillis(totalRebuildNanos / rebuilds) : 0;
+        this.maxRebuildMillis = toMillis(maxRebuildNanos);
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        return hitRate;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    public double getAverageRebuildMillis() {
+        return averageRebuildMillis;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,75 @@
+package expiryTracker.webappserver.control.changes;
+
+import expiryTracker.webappserver.model.Consumable;
+
+/**
+ * A change to the server's list of items, numbered by the <code>ChangeFeed</code> which made it.
+ * <p>
+ * Besides items being added and removed, a <code>RESET</code> event tells a client that the changes it missed can't be
+ * replayed, so it has to get the whole list again, which holds every change up to and including the event's version.
+ */
+public final class ChangeEvent {
+
+    /**
+     * The kinds of <code>ChangeEvent</code>, named as they are sent to clients.
+     */
+    public enum Type {
+        ADD("add"),
+        REMOVE("remove"),
+        RESET("reset");
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        public String getEventName() {
+            return eventName;
+        }
+    }
+
+    private final Type type;
+    private final String epoch;
+    private final long version;
+    private final Consumable item;
+
+    ChangeEvent(Type type, String epoch, long version, Consumable item) {
+        this.type = type;
+        this.epoch = epoch;
+        this.version = version;
+        this.item = item;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the number of the change, one more than the number of the change before it.
+     *
+     * @return a <code>long</code> representing the version of the list once the change is made
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the item added or removed.
+     *
+     * @return the <code>Consumable</code> object changed, or <code>null</code> for a <code>RESET</code> event
+     */
+    public Consumable getItem() {
+        return item;
+    }
+
+    /**
+     * Gets the id a client resumes the feed after, made of the run of the server and the version, since versions
+     * start over whenever the server is started.
+     *
+     * @return a <code>String</code> in the format <code>epoch:version</code>
+     */
+    public String getId() {
+        return epoch + ":" + version;
+    }
+}
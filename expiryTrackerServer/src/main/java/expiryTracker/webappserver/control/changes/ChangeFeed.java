@@ -0,0 +1,382 @@
+package expiryTracker.webappserver.control.changes;
+
+import expiryTracker.webappserver.control.store.StoreChangeListener;
+import expiryTracker.webappserver.model.Consumable;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Numbers every change made to a <code>ConsumableStore</code> and sends it to the subscribed clients.
+ * <p>
+ * Versions start at 0 whenever the feed is created and go up by one with every change, in the order the store makes
+ * the changes in. The most recent changes are kept, so that a client reconnecting with the id of the last event it
+ * got is sent just the changes it missed. A client that missed more than that, or that was connected to an earlier run
+ * of the server, is sent a <code>RESET</code> event instead.
+ * <p>
+ * Events are handed out by a single background thread, never by the threads making the changes, so a slow
+ * client can't hold up the store. Every subscriber is sent every event exactly once and in order, since subscribing,
+ * replaying missed changes and handing out new ones all happen on that thread.
+ * <p>
+ * The events are queued for each subscriber and sent to it by one of a fixed number of sender threads, at most one
+ * at a time per subscriber, so a client which stops reading holds up only itself and the one sender waiting on it.
+ * The other subscribers are served by the remaining senders, and only once as many clients as there are senders
+ * have stalled at the same time do the others have to wait for one of them to time out or go away. A subscriber
+ * whose queue fills up has the events waiting in it replaced by a single <code>RESET</code> event, after which it
+ * gets the whole list again, so its queue never grows past its capacity.
+ */
+public class ChangeFeed implements StoreChangeListener, Closeable {
+    public static final int DEFAULT_HISTORY_SIZE = 10_000;
+    public static final int DEFAULT_SUBSCRIBER_QUEUE_SIZE = 1_000;
+    public static final int DEFAULT_SENDER_THREADS = 16;
+    private static final long KEEP_ALIVE_INTERVAL_SECONDS = 15;
+
+    /**
+     * A client subscribed to the feed.
+     */
+    public interface Subscriber {
+
+        /**
+         * Sends the passed in event to the client.
+         *
+         * @param event the <code>ChangeEvent</code> to send
+         * @return <code>false</code> if the client has gone away and should be sent nothing more
+         */
+        boolean send(ChangeEvent event);
+
+        /**
+         * Sends the client something to keep the connection open while there are no changes, which also finds out
+         * whether it is still there.
+         *
+         * @return <code>false</code> if the client has gone away and should be sent nothing more
+         */
+        boolean keepAlive();
+    }
+
+    // tells the ids of this run of the server apart from those of earlier runs
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final int historySize;
+    private final ReentrantLock historyLock = new ReentrantLock();
+    private final ArrayDeque<ChangeEvent> history = new ArrayDeque<>();
+    private long version;
+    private final ScheduledExecutorService dispatcher;
+    private final ExecutorService senders;
+    private final int subscriberQueueSize;
+    private final ThreadLocal<ChangeEvent> lastChangeOfThread = new ThreadLocal<>();
+
+    // only used on the dispatcher thread
+    private final List<QueuedSubscriber> subscribers = new ArrayList<>();
+    private long dispatchedVersion;
+
+    /**
+     * Constructs a <code>ChangeFeed</code> keeping the passed in number of recent changes for clients to catch up on.
+     *
+     * @param historySize an <code>int</code> representing how many of the most recent changes are kept
+     */
+    public ChangeFeed(int historySize) {
+        this(historySize, DEFAULT_SUBSCRIBER_QUEUE_SIZE);
+    }
+
+    /**
+     * Constructs a <code>ChangeFeed</code> keeping the passed in number of recent changes for clients to catch up on,
+     * and queueing at most the passed in number of events for each subscriber.
+     *
+     * @param historySize         an <code>int</code> representing how many of the most recent changes are kept
+     * @param subscriberQueueSize an <code>int</code> representing how many events may wait to be sent to a subscriber
+     */
+    public ChangeFeed(int historySize, int subscriberQueueSize) {
+        this(historySize, subscriberQueueSize, DEFAULT_SENDER_THREADS);
+    }
+
+    /**
+     * Constructs a <code>ChangeFeed</code> keeping the passed in number of recent changes for clients to catch up on,
+     * queueing at most the passed in number of events for each subscriber and sending them with at most the passed in
+     * number of threads.
+     *
+     * @param historySize         an <code>int</code> representing how many of the most recent changes are kept
+     * @param subscriberQueueSize an <code>int</code> representing how many events may wait to be sent to a subscriber
+     * @param senderThreads       an <code>int</code> representing how many subscribers may be sent events at once
+     */
+    public ChangeFeed(int historySize, int subscriberQueueSize, int senderThreads) {
+        this.historySize = historySize;
+        this.subscriberQueueSize = subscriberQueueSize;
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread dispatcherThread = new Thread(runnable, "change-feed-dispatcher");
+            dispatcherThread.setDaemon(true);
+            return dispatcherThread;
+        });
+        // every subscriber has at most one send waiting, so the queue of sends can't outgrow the subscribers
+        senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread senderThread = new Thread(runnable, "change-feed-sender");
+            senderThread.setDaemon(true);
+            return senderThread;
+        });
+        dispatcher.scheduleWithFixedDelay(this::keepAlive,
+                KEEP_ALIVE_INTERVAL_SECONDS, KEEP_ALIVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void itemAdded(Consumable item) {
+        record(ChangeEvent.Type.ADD, item);
+    }
+
+    @Override
+    public void itemRemoved(Consumable item) {
+        record(ChangeEvent.Type.REMOVE, item);
+    }
+
+    /**
+     * Gets the version of the latest change.
+     *
+     * @return a <code>long</code> representing the number of changes made since the feed was created
+     */
+    public long getVersion() {
+        historyLock.lock();
+        try {
+            return version;
+        } finally {
+            historyLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the change the current thread made last, if it hasn't been taken yet, and forgets it. Stores call the
+     * listener on the thread making the change, so this is the change made by the thread's last call to the store.
+     *
+     * @return the <code>ChangeEvent</code> made last by the current thread, or <code>null</code> if there is none
+     */
+    public ChangeEvent takeLastChangeOfThread() {
+        ChangeEvent change = lastChangeOfThread.get();
+        lastChangeOfThread.remove();
+        return change;
+    }
+
+    /**
+     * Gets the part of event ids telling this run of the server apart from earlier ones.
+     *
+     * @return a <code>String</code> unique to this <code>ChangeFeed</code>
+     */
+    public String getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Subscribes a client to the feed, sending it first the changes made after the passed in event id, or a
+     * <code>RESET</code> event if they aren't all kept anymore or no id is passed in.
+     *
+     * @param lastEventId the id of the last <code>ChangeEvent</code> the client got, or <code>null</code> if none
+     * @param subscriber  the <code>Subscriber</code> to send the events to
+     */
+    public void subscribe(String lastEventId, Subscriber subscriber) {
+        execute(() -> {
+            // catch up first, so that the subscriber starts from the same version as everyone else
+            dispatch();
+
+            Long resumeVersion = parseVersion(lastEventId);
+            List<ChangeEvent> missedEvents = resumeVersion != null && resumeVersion <= dispatchedVersion
+                    ? eventsAfter(resumeVersion, dispatchedVersion)
+                    : null;
+            if (missedEvents == null || missedEvents.size() != dispatchedVersion - resumeVersion) {
+                missedEvents = List.of(new ChangeEvent(ChangeEvent.Type.RESET, epoch, dispatchedVersion, null));
+            }
+
+            QueuedSubscriber queuedSubscriber = new QueuedSubscriber(subscriber);
+            for (ChangeEvent event : missedEvents) {
+                queuedSubscriber.offer(event);
+            }
+            subscribers.add(queuedSubscriber);
+        });
+    }
+
+    /**
+     * Stops sending events. Subscribers are left as they are.
+     */
+    @Override
+    public void close() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Helper method to number a change and keep it, then have it sent to the subscribers in the background.
+     */
+    private void record(ChangeEvent.Type type, Consumable item) {
+        historyLock.lock();
+        try {
+            version++;
+            ChangeEvent change = new ChangeEvent(type, epoch, version, item);
+            history.addLast(change);
+            lastChangeOfThread.set(change);
+            if (history.size() > historySize) {
+                history.removeFirst();
+            }
+        } finally {
+            historyLock.unlock();
+        }
+        execute(this::dispatch);
+    }
+
+    /**
+     * Helper method to send the changes made since the last time to every subscriber, run on the dispatcher thread.
+     * Subscribers are sent a <code>RESET</code> event instead if changes have come in faster than they were sent.
+     */
+    private void dispatch() {
+        long latestVersion = getVersion();
+        if (latestVersion == dispatchedVersion) {
+            return;
+        }
+
+        List<ChangeEvent> events = eventsAfter(dispatchedVersion, latestVersion);
+        if (events.size() != latestVersion - dispatchedVersion) {
+            events = List.of(new ChangeEvent(ChangeEvent.Type.RESET, epoch, latestVersion, null));
+        }
+        for (ChangeEvent event : events) {
+            subscribers.removeIf(subscriber -> !subscriber.offer(event));
+        }
+        dispatchedVersion = latestVersion;
+    }
+
+    private void keepAlive() {
+        subscribers.removeIf(subscriber -> !subscriber.offerKeepAlive());
+    }
+
+    /**
+     * Helper method to get the kept changes after the first passed in version up to and including the second,
+     * which may be fewer than asked for if the earliest of them aren't kept anymore.
+     */
+    private List<ChangeEvent> eventsAfter(long firstVersion, long lastVersion) {
+        List<ChangeEvent> events = new ArrayList<>();
+        historyLock.lock();
+        try {
+            // walk back from the latest change, so that only the changes asked for are looked at
+            Iterator<ChangeEvent> iterator = history.descendingIterator();
+            while (iterator.hasNext()) {
+                ChangeEvent event = iterator.next();
+                if (event.getVersion() <= firstVersion) {
+                    break;
+                }
+                if (event.getVersion() <= lastVersion) {
+                    events.add(event);
+                }
+            }
+        } finally {
+            historyLock.unlock();
+        }
+        Collections.reverse(events);
+        return events;
+    }
+
+    /**
+     * Helper method to get the version out of an event id of this run of the server.
+     */
+    private Long parseVersion(String eventId) {
+        if (eventId == null || !eventId.startsWith(epoch + ":")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void execute(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the feed has been closed
+        }
+    }
+
+    /**
+     * A subscriber with its own bounded queue of events, sent to it in order by one sender at a time, so that only
+     * this subscriber waits while its client is slow to read.
+     */
+    private final class QueuedSubscriber {
+        private final Subscriber subscriber;
+        private final ArrayBlockingQueue<ChangeEvent> events = new ArrayBlockingQueue<>(subscriberQueueSize);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private volatile boolean keepAliveRequested;
+        private volatile boolean gone;
+
+        private QueuedSubscriber(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        /**
+         * Queues the passed in event, or a <code>RESET</code> event in place of every event waiting if the queue is
+         * full. Called on the dispatcher thread only.
+         *
+         * @return <code>false</code> if the client has gone away and should be sent nothing more
+         */
+        private boolean offer(ChangeEvent event) {
+            if (gone) {
+                return false;
+            }
+            if (!events.offer(event)) {
+                events.clear();
+                events.offer(new ChangeEvent(ChangeEvent.Type.RESET, epoch, event.getVersion(), null));
+            }
+            scheduleSend();
+            return true;
+        }
+
+        /**
+         * Asks for a keep-alive to be sent once every queued event has been sent.
+         *
+         * @return <code>false</code> if the client has gone away and should be sent nothing more
+         */
+        private boolean offerKeepAlive() {
+            if (gone) {
+                return false;
+            }
+            keepAliveRequested = true;
+            scheduleSend();
+            return true;
+        }
+
+        private void scheduleSend() {
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    // the feed has been closed
+                    sending.set(false);
+                }
+            }
+        }
+
+        /**
+         * Helper method to send the queued events until there are none left, run on a sender thread.
+         */
+        private void send() {
+            do {
+                ChangeEvent event;
+                while (!gone && (event = events.poll()) != null) {
+                    gone = !subscriber.send(event);
+                }
+                if (!gone && keepAliveRequested) {
+                    keepAliveRequested = false;
+                    gone = !subscriber.keepAlive();
+                }
+                if (gone) {
+                    events.clear();
+                }
+                sending.set(false);
+                // an event queued after the queue was found empty but before sending was cleared is sent here
+            } while (!gone && (!events.isEmpty() || keepAliveRequested) && sending.compareAndSet(false, true));
+        }
+    }
+}
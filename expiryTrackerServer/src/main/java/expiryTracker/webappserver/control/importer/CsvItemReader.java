@@ -0,0 +1,218 @@
+package expiryTracker.webappserver.control.importer;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads items from a CSV file, one row per item, character by character so that only the row being read is held in
+ * memory.
+ * <p>
+ * The first row names the columns, in any order: <code>type</code> (<code>food</code> or <code>drink</code>),
+ * <code>name</code> and <code>expiryDate</code> are needed, while <code>notes</code>, <code>price</code> and the
+ * amount, named <code>weight</code>, <code>volume</code> or <code>amount</code>, may be left out. Other columns are
+ * skipped. The expiry date is either a date and time such as <code>2069-04-20T23:59:00</code> or a day such as
+ * <code>2069-04-20</code>, read as the last minute of the day.
+ * <p>
+ * Fields are separated by commas, and fields holding commas, quotes or line breaks are quoted as in RFC 4180.
+ * Blank lines are skipped.
+ */
+class CsvItemReader implements ItemReader {
+    private static final String[] AMOUNT_COLUMNS = {"weight", "volume", "amount"};
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private Map<String, Integer> columns;
+    private int headerSize;
+    // the character read ahead of the current one, or -2 if none
+    private int lookahead = -2;
+    private long line = 1;
+    private long rowLine;
+
+    /**
+     * Constructs a <code>CsvItemReader</code> reading the passed in file, which should be buffered.
+     *
+     * @param reader a <code>Reader</code> of the CSV file, starting with its header row
+     */
+    CsvItemReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public Consumable next() throws IOException {
+        if (columns == null) {
+            readHeader();
+        }
+        List<String> fields = readRow();
+        if (fields == null) {
+            return null;
+        }
+        if (fields.size() > headerSize) {
+            throw new IllegalArgumentException("Row has " + fields.size() + " fields, the header names " + headerSize);
+        }
+
+        String type = field(fields, "type");
+        String name = field(fields, "name");
+        String expiryDate = field(fields, "expiryDate");
+        if (type.isEmpty() || name.isEmpty() || expiryDate.isEmpty()) {
+            throw new IllegalArgumentException("Row needs a type, a name and an expiryDate");
+        }
+        String notes = columns.containsKey("notes") ? field(fields, "notes") : null;
+        double price = number(fields, "price");
+        double amount = 0;
+        for (String amountColumn : AMOUNT_COLUMNS) {
+            if (!field(fields, amountColumn).isEmpty()) {
+                amount = number(fields, amountColumn);
+                break;
+            }
+        }
+
+        return switch (type.toLowerCase(Locale.ROOT)) {
+            case "food" -> new Food(name, notes, price, amount, dateOf(expiryDate));
+            case "drink" -> new Drink(name, notes, price, amount, dateOf(expiryDate));
+            default -> throw new IllegalArgumentException("Unknown item type: " + type);
+        };
+    }
+
+    @Override
+    public long getLineNumber() {
+        return rowLine;
+    }
+
+    /**
+     * Helper method to read the header row and note the position of every column.
+     *
+     * @throws IOException if the file is empty or the header misses a column every row needs
+     */
+    private void readHeader() throws IOException {
+        List<String> header = readRow();
+        if (header == null) {
+            throw new IOException("Empty CSV file, expected a header row");
+        }
+        columns = new HashMap<>();
+        for (int index = header.size() - 1; index >= 0; index--) {
+            columns.put(header.get(index).trim().toLowerCase(Locale.ROOT), index);
+        }
+        headerSize = header.size();
+        if (!columns.containsKey("type") || !columns.containsKey("name") || !columns.containsKey("expirydate")) {
+            throw new IOException("CSV header needs the columns type, name and expiryDate");
+        }
+    }
+
+    /**
+     * Helper method to read the next row which isn't blank, keeping track of the line it starts on.
+     *
+     * @return a <code>List<String></code> of the fields of the row, or <code>null</code> at the end of the file
+     * @throws IOException if the row is longer than <code>MAX_ROW_LENGTH</code> or a quoted field isn't closed
+     */
+    private List<String> readRow() throws IOException {
+        List<String> fields = new ArrayList<>();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int rowLength = 0;
+        field.setLength(0);
+        rowLine = line;
+
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (quoted) {
+                    throw new IOException("Quoted field not closed before the end of the file");
+                }
+                if (fields.isEmpty() && field.length() == 0 && !wasQuoted) {
+                    return null;
+                }
+                fields.add(field.toString());
+                return fields;
+            }
+            if (++rowLength > MAX_ROW_LENGTH) {
+                throw new IOException("Row longer than " + MAX_ROW_LENGTH + " characters");
+            }
+
+            if (quoted) {
+                if (c == '"') {
+                    int next = read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        lookahead = next;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                line++;
+                if (fields.isEmpty() && field.length() == 0 && !wasQuoted) {
+                    // skip blank lines
+                    rowLength = 0;
+                    rowLine = line;
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (lookahead != -2) {
+            int c = lookahead;
+            lookahead = -2;
+            return c;
+        }
+        return reader.read();
+    }
+
+    /**
+     * Helper method to get the field of the passed in column, or an empty one if the row or header doesn't have it.
+     */
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+        return index != null && index < fields.size() ? fields.get(index).trim() : "";
+    }
+
+    private double number(List<String> fields, String column) {
+        String value = field(fields, column);
+        if (value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + value);
+        }
+    }
+
+    private static LocalDateTime dateOf(String expiryDate) {
+        try {
+            return expiryDate.length() == 10
+                    ? LocalDate.parse(expiryDate).atTime(23, 59)
+                    : LocalDateTime.parse(expiryDate);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid expiryDate: " + expiryDate);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package expiryTracker.webappserver.control.importer;
+
+/**
+ * The formats inventory files can be imported from, named by the media types they are sent with.
+ */
+public enum ImportFormat {
+    CSV("text/csv"),
+    NDJSON("application/x-ndjson");
+
+    private final String mediaType;
+
+    ImportFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Gets the format named by the passed in <code>Content-Type</code> header, ignoring its parameters.
+     *
+     * @param contentType the <code>Content-Type</code> header of a request, or <code>null</code> if it has none
+     * @return the matching <code>ImportFormat</code>, or <code>null</code> if the content type isn't one of them
+     */
+    public static ImportFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim();
+        for (ImportFormat format : values()) {
+            if (format.mediaType.equalsIgnoreCase(mediaType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
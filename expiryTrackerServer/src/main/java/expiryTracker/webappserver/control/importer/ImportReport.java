@@ -0,0 +1,117 @@
+package expiryTracker.webappserver.control.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how an import of an inventory file went: how many rows were read, imported and rejected, how fast, and
+ * why rows were rejected.
+ * <p>
+ * Only the first <code>MAX_REPORTED_ERRORS</code> rejected rows are listed, so that the report takes the same memory
+ * however large the file is.
+ */
+public class ImportReport {
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private long rowsRead;
+    private long itemsImported;
+    private long rowsRejected;
+    private int batchesCommitted;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+    private final List<RowError> errors = new ArrayList<>();
+    private String stoppedBy;
+    private final transient long startTime = System.nanoTime();
+
+    /**
+     * A row which couldn't be imported, with the line of the file it starts on.
+     */
+    public static final class RowError {
+        private final long line;
+        private final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    void rowRead() {
+        rowsRead++;
+    }
+
+    void rowRejected(long line, String message) {
+        rowsRead++;
+        rowsRejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    void batchCommitted(int batchSize) {
+        itemsImported += batchSize;
+        batchesCommitted++;
+    }
+
+    void stop(long line, String message) {
+        stoppedBy = "Line " + line + ": " + message;
+    }
+
+    void finish() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startTime);
+        elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        rowsPerSecond = rowsRead * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    public long getItemsImported() {
+        return itemsImported;
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * Gets the first rows which couldn't be imported.
+     *
+     * @return a <code>List<RowError></code> of at most <code>MAX_REPORTED_ERRORS</code> rejected rows, in file order
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Gets why the import stopped before the end of the file, such as a missing header or a quoted field which is
+     * never closed. The items of the rows read before it are still imported.
+     *
+     * @return a <code>String</code> message with the line the import stopped at, or <code>null</code> if the whole
+     * file was read
+     */
+    public String getStoppedBy() {
+        return stoppedBy;
+    }
+
+    @Override
+    public String toString() {
+        return "Imported " + itemsImported + " item(s) of " + rowsRead + " row(s) in " + batchesCommitted
+                + " batch(es) in " + elapsedMillis + " ms (" + rowsPerSecond + " rows/s), " + rowsRejected
+                + " row(s) rejected" + (stoppedBy != null ? ", stopped at " + stoppedBy : "");
+    }
+}
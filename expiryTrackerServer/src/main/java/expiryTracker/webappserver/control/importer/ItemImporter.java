@@ -0,0 +1,92 @@
+package expiryTracker.webappserver.control.importer;
+
+import expiryTracker.webappserver.model.Consumable;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Imports the items of an inventory file, such as one exported from another system, while it is still being read.
+ * <p>
+ * Rows are read one at a time and their items collected into batches of a fixed size, each committed as soon as it is
+ * full, so that memory use depends on the batch size rather than on the size of the file. Rows which don't hold a
+ * valid item are skipped and listed in the <code>ImportReport</code>, while the rows around them are still imported.
+ */
+public class ItemImporter {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Gson gson;
+    private final Consumer<List<Consumable>> commitBatch;
+    private final int batchSize;
+
+    /**
+     * Constructs an <code>ItemImporter</code> committing items in batches of the passed in size.
+     *
+     * @param gson        the <code>Gson</code> object converting items of NDJSON files
+     * @param commitBatch the <code>Consumer</code> adding a batch of items with their ids assigned to the list,
+     *                    such as <code>ConsumableManager.addConsumableItems()</code>
+     * @param batchSize   the number of items committed at once
+     */
+    public ItemImporter(Gson gson, Consumer<List<Consumable>> commitBatch, int batchSize) {
+        this.gson = gson;
+        this.commitBatch = commitBatch;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports every item of the passed in file, assigning each its id.
+     * <p>
+     * If the file can't be read any further, such as when a CSV file has no header, the import stops there, keeping
+     * the items of the rows read before.
+     *
+     * @param reader a buffered <code>Reader</code> of the file
+     * @param format the <code>ImportFormat</code> of the file
+     * @return the <code>ImportReport</code> of the import
+     */
+    public ImportReport importItems(Reader reader, ImportFormat format) {
+        ItemReader items = format == ImportFormat.CSV ? new CsvItemReader(reader) : new NdjsonItemReader(reader, gson);
+        ImportReport report = new ImportReport();
+        List<Consumable> batch = new ArrayList<>(batchSize);
+
+        try {
+            while (true) {
+                Consumable item;
+                try {
+                    item = items.next();
+                } catch (IllegalArgumentException e) {
+                    report.rowRejected(items.getLineNumber(), e.getMessage());
+                    continue;
+                }
+                if (item == null) {
+                    break;
+                }
+
+                report.rowRead();
+                item.setItemId(UUID.randomUUID());
+                batch.add(item);
+                if (batch.size() == batchSize) {
+                    commit(batch, report);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        } catch (IOException e) {
+            report.stop(items.getLineNumber(), e.getMessage());
+        }
+
+        commit(batch, report);
+        report.finish();
+        return report;
+    }
+
+    private void commit(List<Consumable> batch, ImportReport report) {
+        if (!batch.isEmpty()) {
+            commitBatch.accept(batch);
+            report.batchCommitted(batch.size());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package expiryTracker.webappserver.control.importer;
+
+import expiryTracker.webappserver.model.Consumable;
+
+import java.io.IOException;
+
+/**
+ * Reads the rows of an inventory file one at a time, building a <code>Food</code> or <code>Drink</code> object from
+ * each, without reading further ahead than the row itself.
+ */
+interface ItemReader {
+    // longest row read, so that a run-away row can't take up memory in proportion to the file
+    int MAX_ROW_LENGTH = 64 * 1024;
+
+    /**
+     * Reads the next row of the file.
+     *
+     * @return the <code>Consumable</code> item of the row, without an id, or <code>null</code> once every row is read
+     * @throws IllegalArgumentException if the row doesn't hold a valid item, leaving the reader at the next row
+     * @throws IOException              if the file can't be read any further
+     */
+    Consumable next() throws IOException;
+
+    /**
+     * Gets the line of the file the last row read starts on.
+     *
+     * @return the line number, counting from 1
+     */
+    long getLineNumber();
+}
@@ -0,0 +1,85 @@
+package expiryTracker.webappserver.control.importer;
+
+import expiryTracker.webappserver.model.Consumable;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.DateTimeException;
+
+/**
+ * Reads items from a newline delimited JSON file, one JSON object per line in the same format as the items of
+ * <code>/items:batch</code>, so that only the line being read is held in memory. Blank lines are skipped.
+ */
+class NdjsonItemReader implements ItemReader {
+    private final Reader reader;
+    private final Gson gson;
+    private final StringBuilder row = new StringBuilder();
+    private long line;
+    private boolean endOfFile;
+
+    /**
+     * Constructs an <code>NdjsonItemReader</code> reading the passed in file, which should be buffered.
+     *
+     * @param reader a <code>Reader</code> of the NDJSON file
+     * @param gson   the <code>Gson</code> object converting items, with the adapter of <code>Consumable</code>
+     */
+    NdjsonItemReader(Reader reader, Gson gson) {
+        this.reader = reader;
+        this.gson = gson;
+    }
+
+    @Override
+    public Consumable next() throws IOException {
+        do {
+            if (!readLine()) {
+                return null;
+            }
+        } while (row.toString().isBlank());
+
+        Consumable item;
+        try {
+            item = gson.fromJson(row.toString(), Consumable.class);
+        } catch (JsonParseException | IllegalArgumentException | DateTimeException e) {
+            throw new IllegalArgumentException("Invalid item: " + e.getMessage());
+        }
+        if (item == null || item.getName() == null || item.getExpiryDate() == null) {
+            throw new IllegalArgumentException("Item needs a type, a name and an expiryDate");
+        }
+        return item;
+    }
+
+    @Override
+    public long getLineNumber() {
+        return line;
+    }
+
+    /**
+     * Helper method to read the next line into <code>row</code>, without its line break.
+     *
+     * @return <code>false</code> at the end of the file
+     * @throws IOException if the line is longer than <code>MAX_ROW_LENGTH</code>
+     */
+    private boolean readLine() throws IOException {
+        if (endOfFile) {
+            return false;
+        }
+        row.setLength(0);
+        line++;
+        int c;
+        while ((c = reader.read()) != '\n') {
+            if (c == -1) {
+                endOfFile = true;
+                return row.length() > 0;
+            }
+            if (row.length() == MAX_ROW_LENGTH) {
+                throw new IOException("Line longer than " + MAX_ROW_LENGTH + " characters");
+            }
+            if (c != '\r') {
+                row.append((char) c);
+            }
+        }
+        return true;
+    }
+}
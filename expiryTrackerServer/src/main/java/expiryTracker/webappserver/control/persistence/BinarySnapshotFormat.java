@@ -0,0 +1,258 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes and reads snapshots of the list of <code>Consumable</code> items in a versioned, fixed-layout binary format
+ * which is memory-mapped on startup instead of being parsed.
+ * <p>
+ * A snapshot file consists of a header, one fixed-size record per item and a heap of the UTF-8 encoded names
+ * and notes the records point into. All numbers are big-endian.
+ * <pre>
+ * header (32 bytes):  int magic "ETSN", short version, short reserved, int item count, int record size,
+ *                     long string heap offset, int CRC32C of everything after the header, int reserved
+ * record (64 bytes):  long itemId most significant bits, long itemId least significant bits,
+ *                     long expiry date epoch second (UTC), int expiry date nanos, byte type ('F' or 'D'),
+ *                     3 bytes padding, double price, double weight or volume,
+ *                     int name offset, int name length, int notes offset, int notes length
+ * </pre>
+ * String offsets are relative to the start of the heap and a length of -1 stands for <code>null</code>.
+ * Readers check the record size stored in the header rather than assuming their own, so a later version
+ * may append fields to the end of a record.
+ */
+public final class BinarySnapshotFormat {
+    private static final int MAGIC = 0x4554534E;
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 64;
+    private static final byte FOOD_TYPE = 'F';
+    private static final byte DRINK_TYPE = 'D';
+    private static final int NULL_STRING_LENGTH = -1;
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private BinarySnapshotFormat() {
+    }
+
+    /**
+     * Writes the passed in items as a binary snapshot.
+     *
+     * @param items        a <code>List<Consumable></code> of <code>Food</code> and <code>Drink</code> items to write
+     * @param outputStream an <code>OutputStream</code> to write the snapshot to
+     * @throws IOException if the snapshot can't be written
+     */
+    public static void write(List<Consumable> items, OutputStream outputStream) throws IOException {
+        ByteBuffer recordBuffer = ByteBuffer.allocate(items.size() * RECORD_SIZE);
+        ByteArrayOutputStream heap = new ByteArrayOutputStream();
+
+        for (Consumable item : items) {
+            LocalDateTime expiryDate = item.getExpiryDate();
+            boolean isDrink = item instanceof Drink;
+
+            recordBuffer.putLong(item.getItemId().getMostSignificantBits());
+            recordBuffer.putLong(item.getItemId().getLeastSignificantBits());
+            recordBuffer.putLong(expiryDate.toEpochSecond(ZoneOffset.UTC));
+            recordBuffer.putInt(expiryDate.getNano());
+            recordBuffer.put(isDrink ? DRINK_TYPE : FOOD_TYPE);
+            recordBuffer.put(new byte[3]);
+            recordBuffer.putDouble(item.getPrice());
+            recordBuffer.putDouble(isDrink ? ((Drink) item).getVolume() : ((Food) item).getWeight());
+            putString(recordBuffer, heap, item.getName());
+            putString(recordBuffer, heap, item.getNotes());
+        }
+
+        byte[] heapBytes = heap.toByteArray();
+        CRC32C checksum = new CRC32C();
+        checksum.update(recordBuffer.array());
+        checksum.update(heapBytes);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putShort(VERSION);
+        header.putShort((short) 0);
+        header.putInt(items.size());
+        header.putInt(RECORD_SIZE);
+        header.putLong(HEADER_SIZE + (long) recordBuffer.capacity());
+        header.putInt((int) checksum.getValue());
+        header.putInt(0);
+
+        outputStream.write(header.array());
+        outputStream.write(recordBuffer.array());
+        outputStream.write(heapBytes);
+    }
+
+    /**
+     * Memory-maps a binary snapshot file after checking its header and checksum. Items aren't decoded yet.
+     *
+     * @param snapshotPath a <code>Path</code> to the snapshot file
+     * @return a <code>MappedSnapshot</code> to decode the items from
+     * @throws IOException if the snapshot can't be read, is of an unsupported version or is damaged
+     */
+    public static MappedSnapshot map(Path snapshotPath) throws IOException {
+        return map(snapshotPath, item -> {
+        });
+    }
+
+    /**
+     * Memory-maps a binary snapshot file after checking its header and checksum. Items aren't decoded yet.
+     *
+     * @param snapshotPath a <code>Path</code> to the snapshot file
+     * @param onDecode     called with every item right after it's decoded
+     * @return a <code>MappedSnapshot</code> to decode the items from
+     * @throws IOException if the snapshot can't be read, is of an unsupported version or is damaged
+     */
+    public static MappedSnapshot map(Path snapshotPath, Consumer<Consumable> onDecode) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Snapshot too short: " + snapshotPath);
+            }
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a binary snapshot: " + snapshotPath);
+        }
+        short version = buffer.getShort(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + ": " + snapshotPath);
+        }
+
+        int itemCount = buffer.getInt(8);
+        int recordSize = buffer.getInt(12);
+        long heapOffset = buffer.getLong(16);
+        if (itemCount < 0 || recordSize < RECORD_SIZE
+                || heapOffset != HEADER_SIZE + (long) itemCount * recordSize || heapOffset > buffer.capacity()) {
+            throw new IOException("Damaged snapshot header: " + snapshotPath);
+        }
+
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+        if ((int) checksum.getValue() != buffer.getInt(24)) {
+            throw new IOException("Snapshot checksum mismatch: " + snapshotPath);
+        }
+
+        return new MappedSnapshot(buffer, itemCount, recordSize, (int) heapOffset, onDecode);
+    }
+
+    /**
+     * Helper method to append a string to the heap and write its offset and length into the record.
+     */
+    private static void putString(ByteBuffer recordBuffer, ByteArrayOutputStream heap, String value) {
+        if (value == null) {
+            recordBuffer.putInt(0);
+            recordBuffer.putInt(NULL_STRING_LENGTH);
+            return;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        recordBuffer.putInt(heap.size());
+        recordBuffer.putInt(bytes.length);
+        heap.writeBytes(bytes);
+    }
+
+    /**
+     * A memory-mapped binary snapshot whose records are decoded into <code>Consumable</code> items on demand.
+     */
+    public static final class MappedSnapshot {
+        private final ByteBuffer buffer;
+        private final int itemCount;
+        private final int recordSize;
+        private final int heapOffset;
+        private final Consumer<Consumable> onDecode;
+
+        private MappedSnapshot(ByteBuffer buffer, int itemCount, int recordSize, int heapOffset,
+                               Consumer<Consumable> onDecode) {
+            this.buffer = buffer;
+            this.itemCount = itemCount;
+            this.recordSize = recordSize;
+            this.heapOffset = heapOffset;
+            this.onDecode = onDecode;
+        }
+
+        public int size() {
+            return itemCount;
+        }
+
+        /**
+         * Reads the id of the item of the passed in record without decoding the rest of the record.
+         *
+         * @param record the index of the record
+         * @return a <code>UUID</code> representing the item's <code>itemId</code>
+         */
+        public UUID itemIdAt(int record) {
+            int recordOffset = recordOffset(record);
+            return new UUID(buffer.getLong(recordOffset), buffer.getLong(recordOffset + 8));
+        }
+
+        /**
+         * Reads the day the item of the passed in record expires on without decoding the rest of the record.
+         *
+         * @param record the index of the record
+         * @return the expiry date's day as counted by <code>LocalDate.toEpochDay()</code>
+         */
+        public long expiryEpochDayAt(int record) {
+            return Math.floorDiv(buffer.getLong(recordOffset(record) + 16), SECONDS_PER_DAY);
+        }
+
+        /**
+         * Decodes the item of the passed in record into a new <code>Food</code> or <code>Drink</code> object.
+         *
+         * @param record the index of the record
+         * @return a <code>Consumable</code> object representing the decoded item
+         */
+        public Consumable decode(int record) {
+            int recordOffset = recordOffset(record);
+            LocalDateTime expiryDate = LocalDateTime.ofEpochSecond(buffer.getLong(recordOffset + 16),
+                    buffer.getInt(recordOffset + 24), ZoneOffset.UTC);
+            byte type = buffer.get(recordOffset + 28);
+            double price = buffer.getDouble(recordOffset + 32);
+            double weightOrVolume = buffer.getDouble(recordOffset + 40);
+            String name = getString(recordOffset + 48);
+            String notes = getString(recordOffset + 56);
+
+            Consumable item = type == DRINK_TYPE
+                    ? new Drink(name, notes, price, weightOrVolume, expiryDate)
+                    : new Food(name, notes, price, weightOrVolume, expiryDate);
+            item.setItemId(itemIdAt(record));
+            onDecode.accept(item);
+            return item;
+        }
+
+        private int recordOffset(int record) {
+            if (record < 0 || record >= itemCount) {
+                throw new IndexOutOfBoundsException("Record: " + record + ", Records: " + itemCount);
+            }
+            return HEADER_SIZE + record * recordSize;
+        }
+
+        private String getString(int referenceOffset) {
+            int length = buffer.getInt(referenceOffset + 4);
+            if (length == NULL_STRING_LENGTH) {
+                return null;
+            }
+
+            byte[] bytes = new byte[length];
+            buffer.get(heapOffset + buffer.getInt(referenceOffset), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
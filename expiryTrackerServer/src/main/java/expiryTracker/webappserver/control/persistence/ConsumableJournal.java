@@ -0,0 +1,708 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only write-ahead journal of every mutation made to the server's <code>List<Consumable> fridge</code>.
+ * <p>
+ * Each record is framed as <code>[int length][int crc32][byte operation][payload]</code>, where an add record
+ * carries a subtype tag followed by the compact JSON form of the item and a remove record carries the
+ * 16 bytes of the removed item's <code>UUID</code>. A batch add record carries the number of items followed by the
+ * subtype tag, length and compact JSON form of each, and a batch remove record the number of ids followed by the
+ * 16 bytes of each, so that a batch is replayed either completely or not at all. A batch too large for a single
+ * record is split over several, each replayed on its own, so that a crash while writing them can leave only the first
+ * part of the batch in the journal.
+ * <p>
+ * Records are written by a single background thread which drains every record queued since its last flush,
+ * writes them in one go and forces them to disk with a single <code>fsync</code> (group commit), so that
+ * concurrent requests share the cost of the flush instead of paying for one each.
+ * With a flush interval, the writer thread waits that long after the first record of a batch for more records
+ * to arrive, trading the latency of each record for fewer and larger flushes.
+ * <p>
+ * The queue of records waiting to be written is bounded: once it is full, appending blocks until the writer thread
+ * has caught up, so that a slow disk pushes back on the callers instead of filling up the heap.
+ * <p>
+ * If a batch can't be written, its records are failed and the segment is cut back to the end of the last record
+ * on disk, so that later records aren't appended after a torn one and lost on replay. If even that fails,
+ * the journal fails every record appended from then on.
+ * <p>
+ * The journal is split into segments: rolling over to a new segment marks the point at which a snapshot
+ * of the list was taken, so that older segments can be deleted once that snapshot is safely on disk.
+ */
+public class ConsumableJournal implements Closeable {
+    private static final byte ADD_OPERATION = 1;
+    private static final byte REMOVE_OPERATION = 2;
+    private static final byte ADD_ALL_OPERATION = 3;
+    private static final byte REMOVE_ALL_OPERATION = 4;
+    private static final byte FOOD_TAG = 'F';
+    private static final byte DRINK_TAG = 'D';
+    private static final int FRAME_HEADER_SIZE = Integer.BYTES * 2;
+    private static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+
+    private final Gson gson;
+    private final BlockingQueue<PendingRecord> pendingRecords;
+    private final long flushIntervalNanos;
+    private final AtomicLong segmentSize = new AtomicLong();
+    private final SegmentOpener segmentOpener;
+    private final Thread writerThread;
+    // set by the writer thread once a torn record can't be cut off the segment
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    // only written by the writer thread, read by anyone asking for the stats
+    private volatile long flushes;
+    private volatile long flushedRecords;
+    private volatile long totalFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile long totalRecordLatencyNanos;
+    private volatile long maxRecordLatencyNanos;
+
+    // only touched by the writer thread once it is started
+    private Path segmentPath;
+    private FileChannel channel;
+    private long durableSize;
+
+    /**
+     * Functional interface for opening a journal segment for appending at its end.
+     */
+    @FunctionalInterface
+    public interface SegmentOpener {
+        FileChannel open(Path segmentPath) throws IOException;
+    }
+
+    /**
+     * A record waiting to be written by the writer thread, completed once it is durable on disk.
+     * A record without a frame marks a request to roll over to the segment <code>nextSegment</code>
+     * at that point of the queue, or just to flush everything queued before it if there is no next segment,
+     * after which the writer thread stops if <code>stop</code> is set.
+     */
+    private record PendingRecord(byte[] frame, Path nextSegment, boolean stop, long enqueuedNanos,
+                                 CompletableFuture<Void> durable) {
+        private boolean isMarker() {
+            return frame == null;
+        }
+    }
+
+    /**
+     * Opens (or creates) the journal segment at the passed in path for appending and starts its writer thread,
+     * which flushes records as soon as they arrive.
+     *
+     * @param segmentPath a <code>Path</code> to the journal segment to append to
+     * @param gson        a compact <code>Gson</code> object used to encode added items
+     * @throws IOException if the journal segment can't be opened
+     */
+    public ConsumableJournal(Path segmentPath, Gson gson) throws IOException {
+        this(segmentPath, gson, DEFAULT_QUEUE_CAPACITY, 0);
+    }
+
+    /**
+     * Opens (or creates) the journal segment at the passed in path for appending and starts its writer thread.
+     * <p>
+     * An existing segment must have been replayed first, so that a torn record at its end is cut off
+     * before new records are appended after it.
+     *
+     * @param segmentPath        a <code>Path</code> to the journal segment to append to
+     * @param gson               a compact <code>Gson</code> object used to encode added items
+     * @param queueCapacity      the number of records which may wait to be written before appending blocks
+     * @param flushIntervalNanos how long to wait for more records before flushing a batch, 0 to flush right away
+     * @throws IOException if the journal segment can't be opened
+     */
+    public ConsumableJournal(Path segmentPath, Gson gson, int queueCapacity, long flushIntervalNanos)
+            throws IOException {
+        this(segmentPath, gson, queueCapacity, flushIntervalNanos, ConsumableJournal::openSegment);
+    }
+
+    /**
+     * Opens the journal segment at the passed in path for appending with the passed in <code>SegmentOpener</code>,
+     * also used for every later segment, and starts its writer thread.
+     *
+     * @param segmentPath        a <code>Path</code> to the journal segment to append to
+     * @param gson               a compact <code>Gson</code> object used to encode added items
+     * @param queueCapacity      the number of records which may wait to be written before appending blocks
+     * @param flushIntervalNanos how long to wait for more records before flushing a batch, 0 to flush right away
+     * @param segmentOpener      opens each journal segment, such as <code>ConsumableJournal::openSegment</code>
+     * @throws IOException if the journal segment can't be opened
+     */
+    public ConsumableJournal(Path segmentPath, Gson gson, int queueCapacity, long flushIntervalNanos,
+                             SegmentOpener segmentOpener) throws IOException {
+        this.gson = gson;
+        this.pendingRecords = new ArrayBlockingQueue<>(queueCapacity);
+        this.flushIntervalNanos = flushIntervalNanos;
+        this.segmentOpener = segmentOpener;
+        this.segmentPath = segmentPath;
+        this.channel = segmentOpener.open(segmentPath);
+        segmentSize.set(channel.size());
+        durableSize = segmentSize.get();
+
+        writerThread = new Thread(this::runWriter, "consumable-journal-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Appends a record of an added <code>Consumable</code> item to the journal.
+     *
+     * @param item the <code>Food</code> or <code>Drink</code> item that was added
+     * @return a <code>CompletableFuture</code> completed once the record has been forced to disk
+     */
+    public CompletableFuture<Void> appendAdd(Consumable item) {
+        byte[] json = gson.toJson(item).getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(2 + json.length);
+        body.put(ADD_OPERATION);
+        body.put(item instanceof Drink ? DRINK_TAG : FOOD_TAG);
+        body.put(json);
+        return enqueue(frame(body.array()));
+    }
+
+    /**
+     * Appends a record of a batch of added <code>Consumable</code> items to the journal. A batch too large for a
+     * single record is split over as few records as it fits in, which are then no longer replayed all or none.
+     *
+     * @param items the <code>Food</code> and <code>Drink</code> items that were added
+     * @return a <code>CompletableFuture</code> completed once every record of the batch has been forced to disk
+     */
+    public CompletableFuture<Void> appendAddAll(List<? extends Consumable> items) {
+        CompletableFuture<Void> durable = CompletableFuture.completedFuture(null);
+        List<byte[]> encodedItems = new ArrayList<>();
+        int bodySize = 1 + Integer.BYTES;
+        for (Consumable item : items) {
+            byte[] json = gson.toJson(item).getBytes(StandardCharsets.UTF_8);
+            if (!encodedItems.isEmpty() && bodySize + 1 + Integer.BYTES + json.length > MAX_RECORD_SIZE) {
+                durable = enqueueAddAll(encodedItems, bodySize);
+                encodedItems.clear();
+                bodySize = 1 + Integer.BYTES;
+            }
+            byte[] encodedItem = new byte[1 + json.length];
+            encodedItem[0] = item instanceof Drink ? DRINK_TAG : FOOD_TAG;
+            System.arraycopy(json, 0, encodedItem, 1, json.length);
+            encodedItems.add(encodedItem);
+            bodySize += Integer.BYTES + encodedItem.length;
+        }
+        if (!encodedItems.isEmpty()) {
+            durable = enqueueAddAll(encodedItems, bodySize);
+        }
+        // records are written in order, so the last one being on disk means the whole batch is
+        return durable;
+    }
+
+    /**
+     * Appends a record of a removed <code>Consumable</code> item to the journal.
+     *
+     * @param itemId the <code>UUID</code> of the item that was removed
+     * @return a <code>CompletableFuture</code> completed once the record has been forced to disk
+     */
+    public CompletableFuture<Void> appendRemove(UUID itemId) {
+        ByteBuffer body = ByteBuffer.allocate(1 + Long.BYTES * 2);
+        body.put(REMOVE_OPERATION);
+        body.putLong(itemId.getMostSignificantBits());
+        body.putLong(itemId.getLeastSignificantBits());
+        return enqueue(frame(body.array()));
+    }
+
+    /**
+     * Appends a record of a batch of removed <code>Consumable</code> items to the journal. A batch too large for a
+     * single record is split over as few records as it fits in, which are then no longer replayed all or none.
+     *
+     * @param itemIds the <code>UUID</code>s of the items that were removed
+     * @return a <code>CompletableFuture</code> completed once every record of the batch has been forced to disk
+     */
+    public CompletableFuture<Void> appendRemoveAll(List<UUID> itemIds) {
+        CompletableFuture<Void> durable = CompletableFuture.completedFuture(null);
+        int maxIdsPerRecord = (MAX_RECORD_SIZE - 1 - Integer.BYTES) / (Long.BYTES * 2);
+        for (int from = 0; from < itemIds.size(); from += maxIdsPerRecord) {
+            List<UUID> recordIds = itemIds.subList(from, Math.min(itemIds.size(), from + maxIdsPerRecord));
+            ByteBuffer body = ByteBuffer.allocate(1 + Integer.BYTES + recordIds.size() * Long.BYTES * 2);
+            body.put(REMOVE_ALL_OPERATION);
+            body.putInt(recordIds.size());
+            for (UUID itemId : recordIds) {
+                body.putLong(itemId.getMostSignificantBits());
+                body.putLong(itemId.getLeastSignificantBits());
+            }
+            durable = enqueue(frame(body.array()));
+        }
+        return durable;
+    }
+
+    /**
+     * Rolls the journal over to a new segment, once all records queued before this call have been written
+     * to the current one. Records appended after this call are written to the new segment.
+     *
+     * @param nextSegment a <code>Path</code> to the new journal segment
+     * @return a <code>CompletableFuture</code> completed once the current segment is closed
+     */
+    public CompletableFuture<Void> roll(Path nextSegment) {
+        return enqueue(new PendingRecord(null, nextSegment, false, System.nanoTime(), new CompletableFuture<>()));
+    }
+
+    /**
+     * Flushes every record queued before this call right away, without waiting for the flush interval.
+     *
+     * @return a <code>CompletableFuture</code> completed once those records have been forced to disk
+     */
+    public CompletableFuture<Void> flush() {
+        return enqueue(new PendingRecord(null, null, false, System.nanoTime(), new CompletableFuture<>()));
+    }
+
+    /**
+     * Gets the number of records waiting to be written.
+     *
+     * @return the number of records in the queue
+     */
+    public int queueDepth() {
+        return pendingRecords.size();
+    }
+
+    /**
+     * Tells whether the journal has failed and rejects every record, because a torn record couldn't be cut off
+     * the segment after a write failed.
+     *
+     * @return <code>true</code> if no more records can be appended
+     */
+    public boolean hasFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Gets the statistics of the writer thread's flushes so far.
+     *
+     * @param mode the <code>DurabilityMode</code> the journal is used in
+     * @return a <code>PersistenceStats</code> object describing the queue and the flushes
+     */
+    public PersistenceStats stats(DurabilityMode mode) {
+        long flushCount = flushes;
+        long recordCount = flushedRecords;
+        return new PersistenceStats(mode, pendingRecords.size(), pendingRecords.size() + pendingRecords.remainingCapacity(),
+                flushCount, recordCount,
+                flushCount == 0 ? 0 : totalFlushNanos / flushCount, maxFlushNanos,
+                recordCount == 0 ? 0 : totalRecordLatencyNanos / recordCount, maxRecordLatencyNanos,
+                failure == null ? null : failure.toString());
+    }
+
+    /**
+     * Gets the number of bytes written to the current journal segment.
+     *
+     * @return a <code>long</code> representing the size of the current segment in bytes
+     */
+    public long size() {
+        return segmentSize.get();
+    }
+
+    /**
+     * Replays every intact record of a journal segment, in the order they were written.
+     * <p>
+     * Stops at the first torn or corrupted record (left behind by a crash in the middle of a write)
+     * and cuts the segment back to the end of the last intact record.
+     *
+     * @param segmentPath a <code>Path</code> to the journal segment to replay
+     * @param gson        a compact <code>Gson</code> object used to decode added items
+     * @param onAdd       called with each added <code>Consumable</code> item
+     * @param onRemove    called with the <code>UUID</code> of each removed item
+     * @return the number of replayed records
+     * @throws IOException if the journal segment can't be read
+     */
+    public static int replay(Path segmentPath, Gson gson,
+                             Consumer<Consumable> onAdd, Consumer<UUID> onRemove) throws IOException {
+        try (FileChannel segment = FileChannel.open(segmentPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long fileSize = segment.size();
+            long position = 0;
+            int replayedRecords = 0;
+            int skippedRecords = 0;
+            RuntimeException firstSkipCause = null;
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+
+            while (position + FRAME_HEADER_SIZE <= fileSize) {
+                header.clear();
+                segment.read(header, position);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE || position + FRAME_HEADER_SIZE + length > fileSize) {
+                    break;
+                }
+
+                ByteBuffer body = ByteBuffer.allocate(length);
+                segment.read(body, position + FRAME_HEADER_SIZE);
+                if (checksumOf(body.array()) != checksum) {
+                    break;
+                }
+
+                body.flip();
+                try {
+                    applyRecord(body, gson, onAdd, onRemove);
+                } catch (RuntimeException e) {
+                    // an intact record which can't be applied is skipped rather than failing the whole replay
+                    if (firstSkipCause == null) {
+                        firstSkipCause = e;
+                    }
+                    skippedRecords++;
+                }
+                position += FRAME_HEADER_SIZE + length;
+                replayedRecords++;
+            }
+
+            if (skippedRecords > 0) {
+                // a single line for the segment, however many of its records were skipped
+                System.out.println("Skipped " + skippedRecords + " journal records that can't be applied of "
+                        + segmentPath + ", the first because of: " + firstSkipCause);
+            }
+
+            if (position < fileSize) {
+                System.out.println("Discarding torn records at the end of journal: " + segmentPath);
+                segment.truncate(position);
+                segment.force(false);
+            }
+            return replayedRecords;
+        }
+    }
+
+    /**
+     * Stops the writer thread once it has written every record appended so far, and closes the journal file.
+     * Records appended after that are failed.
+     * <p>
+     * The writer thread is stopped by a marker queued behind the records rather than by interrupting it, which would
+     * close the journal file under it if it is in the middle of a write.
+     *
+     * @throws IOException if the journal file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            pendingRecords.put(new PendingRecord(null, null, true, System.nanoTime(), new CompletableFuture<>()));
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        failRecordsAppendedAfterClose();
+        channel.close();
+    }
+
+    /**
+     * Helper method to decode a single record body and pass it on to the corresponding consumer.
+     */
+    private static void applyRecord(ByteBuffer body, Gson gson, Consumer<Consumable> onAdd, Consumer<UUID> onRemove) {
+        byte operation = body.get();
+        if (operation == ADD_OPERATION) {
+            byte tag = body.get();
+            String json = new String(body.array(), body.position(), body.remaining(), StandardCharsets.UTF_8);
+            onAdd.accept(gson.fromJson(json, tag == DRINK_TAG ? Drink.class : Food.class));
+        } else if (operation == REMOVE_OPERATION) {
+            onRemove.accept(new UUID(body.getLong(), body.getLong()));
+        } else if (operation == ADD_ALL_OPERATION) {
+            int itemCount = body.getInt();
+            for (int index = 0; index < itemCount; index++) {
+                int length = body.getInt();
+                byte tag = body.get();
+                String json = new String(body.array(), body.position(), length - 1, StandardCharsets.UTF_8);
+                body.position(body.position() + length - 1);
+                onAdd.accept(gson.fromJson(json, tag == DRINK_TAG ? Drink.class : Food.class));
+            }
+        } else if (operation == REMOVE_ALL_OPERATION) {
+            int itemCount = body.getInt();
+            for (int index = 0; index < itemCount; index++) {
+                onRemove.accept(new UUID(body.getLong(), body.getLong()));
+            }
+        }
+    }
+
+    /**
+     * Helper method to frame a batch add record of the passed in encoded items and queue it.
+     */
+    private CompletableFuture<Void> enqueueAddAll(List<byte[]> encodedItems, int bodySize) {
+        ByteBuffer body = ByteBuffer.allocate(bodySize);
+        body.put(ADD_ALL_OPERATION);
+        body.putInt(encodedItems.size());
+        for (byte[] encodedItem : encodedItems) {
+            body.putInt(encodedItem.length);
+            body.put(encodedItem);
+        }
+        return enqueue(frame(body.array()));
+    }
+
+    /**
+     * Helper method to wrap a record body with its length and checksum.
+     */
+    private static byte[] frame(byte[] body) {
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + body.length);
+        frame.putInt(body.length);
+        frame.putInt(checksumOf(body));
+        frame.put(body);
+        return frame.array();
+    }
+
+    private static int checksumOf(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Opens (or creates) a journal segment for appending at its end.
+     *
+     * @param segmentPath a <code>Path</code> to the journal segment
+     * @return a <code>FileChannel</code> positioned at the end of the segment
+     * @throws IOException if the journal segment can't be opened
+     */
+    public static FileChannel openSegment(Path segmentPath) throws IOException {
+        FileChannel segment = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        segment.position(segment.size());
+        return segment;
+    }
+
+    private CompletableFuture<Void> enqueue(byte[] frame) {
+        return enqueue(new PendingRecord(frame, null, false, System.nanoTime(), new CompletableFuture<>()));
+    }
+
+    /**
+     * Helper method to queue a record for the writer thread, blocking while the queue is full.
+     */
+    private CompletableFuture<Void> enqueue(PendingRecord pendingRecord) {
+        if (closed) {
+            pendingRecord.durable().completeExceptionally(new IOException("Journal closed: " + segmentPath));
+            return pendingRecord.durable();
+        }
+        if (failure != null) {
+            pendingRecord.durable().completeExceptionally(failedJournalException());
+            return pendingRecord.durable();
+        }
+        try {
+            pendingRecords.put(pendingRecord);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingRecord.durable().completeExceptionally(e);
+        }
+        if (closed && !writerThread.isAlive()) {
+            // queued while the journal was being closed, after the writer thread stopped
+            failRecordsAppendedAfterClose();
+        }
+        return pendingRecord.durable();
+    }
+
+    /**
+     * Helper method to fail the records queued behind the marker stopping the writer thread.
+     */
+    private void failRecordsAppendedAfterClose() {
+        List<PendingRecord> remainingRecords = new ArrayList<>();
+        pendingRecords.drainTo(remainingRecords);
+        failRecords(remainingRecords, 0, new UncheckedIOException(new IOException("Journal closed: " + segmentPath)));
+    }
+
+    /**
+     * Body of the writer thread: writes each batch of queued records with one write and one <code>fsync</code>.
+     */
+    private void runWriter() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(pendingRecords.take());
+                pendingRecords.drainTo(batch);
+                awaitMoreRecords(batch);
+            } catch (InterruptedException e) {
+                // the records were already taken off the queue, so close() can't fail them any more
+                failRecords(batch, 0, new UncheckedIOException(new IOException("Journal writer interrupted")));
+                return;
+            }
+
+            writeBatch(batch);
+            for (PendingRecord pendingRecord : batch) {
+                if (pendingRecord.stop()) {
+                    return;
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Helper method to keep adding records to the batch until the flush interval since its first record is over,
+     * unless a roll over or flush is requested in the meantime.
+     */
+    private void awaitMoreRecords(List<PendingRecord> batch) throws InterruptedException {
+        long deadline = batch.get(0).enqueuedNanos() + flushIntervalNanos;
+        int checkedRecords = 0;
+        while (true) {
+            for (; checkedRecords < batch.size(); checkedRecords++) {
+                if (batch.get(checkedRecords).isMarker()) {
+                    return;
+                }
+            }
+
+            long remainingNanos = deadline - System.nanoTime();
+            PendingRecord pendingRecord = remainingNanos > 0
+                    ? pendingRecords.poll(remainingNanos, TimeUnit.NANOSECONDS)
+                    : null;
+            if (pendingRecord == null) {
+                return;
+            }
+            batch.add(pendingRecord);
+            pendingRecords.drainTo(batch);
+        }
+    }
+
+    /**
+     * Helper method to add a flushed batch to the statistics.
+     */
+    private void recordFlush(List<PendingRecord> batch, long flushStartTime, long flushEndTime) {
+        long flushNanos = flushEndTime - flushStartTime;
+        flushes++;
+        totalFlushNanos += flushNanos;
+        maxFlushNanos = Math.max(maxFlushNanos, flushNanos);
+
+        for (PendingRecord pendingRecord : batch) {
+            if (pendingRecord.isMarker()) {
+                continue;
+            }
+            long recordLatencyNanos = flushEndTime - pendingRecord.enqueuedNanos();
+            flushedRecords++;
+            totalRecordLatencyNanos += recordLatencyNanos;
+            maxRecordLatencyNanos = Math.max(maxRecordLatencyNanos, recordLatencyNanos);
+        }
+    }
+
+    /**
+     * Helper method to write a batch of records, rolling over to a new segment where it was requested,
+     * and to complete each record once it is on disk.
+     * <p>
+     * If the batch can't be written, the records which aren't on disk yet are failed and the bytes written of them
+     * are cut off the segment again.
+     */
+    private void writeBatch(List<PendingRecord> batch) {
+        long flushStartTime = System.nanoTime();
+        if (failure != null) {
+            failRecords(batch, 0, failedJournalException());
+            return;
+        }
+
+        int batchSize = 0;
+        for (PendingRecord pendingRecord : batch) {
+            batchSize += pendingRecord.frame() == null ? 0 : pendingRecord.frame().length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(batchSize);
+        int durableRecords = 0;
+        try {
+            for (int index = 0; index < batch.size(); index++) {
+                PendingRecord pendingRecord = batch.get(index);
+                if (pendingRecord.isMarker() && pendingRecord.nextSegment() != null) {
+                    // everything queued before the roll over belongs to the current segment
+                    flush(buffer);
+                    for (; durableRecords < index; durableRecords++) {
+                        batch.get(durableRecords).durable().complete(null);
+                    }
+                    durableRecords++;
+                    rollOver(pendingRecord);
+                } else if (!pendingRecord.isMarker()) {
+                    buffer.put(pendingRecord.frame());
+                }
+            }
+            flush(buffer);
+            // counted before the records are completed, so that whoever waits for them sees them in the stats
+            recordFlush(batch, flushStartTime, System.nanoTime());
+            for (; durableRecords < batch.size(); durableRecords++) {
+                batch.get(durableRecords).durable().complete(null);
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to write to journal file: " + segmentPath + ": " + e);
+            cutOffTornRecords();
+            recordFlush(batch, flushStartTime, System.nanoTime());
+            failRecords(batch, durableRecords, new UncheckedIOException(e));
+        }
+    }
+
+    /**
+     * Helper method to switch over to the segment of a roll over record. The new segment is opened before the
+     * current one is closed, so that records keep being appended to the current one if it can't be opened.
+     */
+    private void rollOver(PendingRecord rollRecord) {
+        FileChannel nextChannel = null;
+        long nextSize;
+        try {
+            nextChannel = segmentOpener.open(rollRecord.nextSegment());
+            nextSize = nextChannel.size();
+        } catch (IOException e) {
+            System.out.println("Unable to open journal file: " + rollRecord.nextSegment());
+            closeQuietly(nextChannel);
+            rollRecord.durable().completeExceptionally(new UncheckedIOException(e));
+            return;
+        }
+
+        closeQuietly(channel);
+        segmentPath = rollRecord.nextSegment();
+        channel = nextChannel;
+        segmentSize.set(nextSize);
+        durableSize = nextSize;
+        rollRecord.durable().complete(null);
+    }
+
+    /**
+     * Helper method to cut the segment back to the end of the last record forced to disk after a failed write.
+     * If it can't be cut back, the journal fails every record from then on, since replaying the segment would stop
+     * at the torn record and drop every record after it.
+     */
+    private void cutOffTornRecords() {
+        try {
+            channel.truncate(durableSize);
+            channel.position(durableSize);
+            segmentSize.set(durableSize);
+        } catch (IOException e) {
+            System.out.println("Unable to cut off torn records of journal file, rejecting further changes: "
+                    + segmentPath);
+            failure = e;
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segmentSize.addAndGet(channel.write(buffer));
+        }
+        channel.force(false);
+        durableSize = segmentSize.get();
+        buffer.clear();
+    }
+
+    private static void failRecords(List<PendingRecord> batch, int fromIndex, RuntimeException exception) {
+        for (int index = fromIndex; index < batch.size(); index++) {
+            batch.get(index).durable().completeExceptionally(exception);
+        }
+    }
+
+    private UncheckedIOException failedJournalException() {
+        return new UncheckedIOException("Journal has failed: " + segmentPath, failure);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Unable to close journal file: " + e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package expiryTracker.webappserver.control.persistence;
+
+/**
+ * How far a change to the list of <code>Consumable</code> items has been persisted by the time it is acknowledged.
+ */
+public enum DurabilityMode {
+    /**
+     * A change is acknowledged once its journal record has been forced to disk.
+     */
+    SYNC,
+
+    /**
+     * A change is acknowledged once its journal record has been queued, and records are forced to disk in batches.
+     * Changes made within the last flush interval may be lost if the server dies.
+     */
+    ASYNC,
+
+    /**
+     * Nothing is read from or written to disk, the list only lives in memory. Meant for benchmarks.
+     */
+    MEMORY
+}
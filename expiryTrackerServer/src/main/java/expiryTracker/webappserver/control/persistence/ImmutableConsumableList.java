@@ -0,0 +1,589 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.model.Consumable;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * An immutable <code>List<Consumable></code> kept in natural order, stored as a persistent balanced tree.
+ * <p>
+ * Adding or removing an item returns a new list which shares all but the O(log n) nodes on the path to the change
+ * with the old one, so any version of the list can be held on to as a consistent point-in-time view of the items
+ * while later versions are being made, without copying anything.
+ * <p>
+ * Natural order is the order of the items' expiry days, then their ids, so the tree doubles as an index on
+ * expiry day and id: an item is found by its day and id in O(log n), and
+ * the items expiring within a range of days in O(log n + k) for k matching items.
+ * <p>
+ * Items loaded from a binary snapshot are only decoded the first time they are accessed. Their ids and expiry days
+ * are read straight from the snapshot, so the list can be searched by either without decoding the items themselves.
+ */
+public final class ImmutableConsumableList extends AbstractList<Consumable> {
+    private static final ImmutableConsumableList EMPTY = new ImmutableConsumableList(null);
+    private static final Comparator<UUID> ITEM_ID_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+    private static final Comparator<Entry> ENTRY_ORDER =
+            (first, second) -> compareKeys(first.epochDay(), first.itemId(), second.epochDay(), second.itemId());
+
+    private final Node root;
+
+    private ImmutableConsumableList(Node root) {
+        this.root = root;
+    }
+
+    public static ImmutableConsumableList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Constructs an <code>ImmutableConsumableList</code> of every record in the passed in snapshot,
+     * none of them decoded yet. The records are sorted once, by the ids and expiry days read from the snapshot,
+     * unless they are in natural order already.
+     *
+     * @param snapshot a <code>MappedSnapshot</code> to decode items from
+     * @return an <code>ImmutableConsumableList</code> of the snapshot's items
+     */
+    public static ImmutableConsumableList of(BinarySnapshotFormat.MappedSnapshot snapshot) {
+        Entry[] entries = new Entry[snapshot.size()];
+        for (int record = 0; record < entries.length; record++) {
+            entries[record] = new Entry(snapshot, record);
+        }
+        return new ImmutableConsumableList(build(sortOnce(entries), 0, entries.length));
+    }
+
+    /**
+     * Constructs an <code>ImmutableConsumableList</code> of the passed in items, which are sorted once
+     * unless they are in natural order already.
+     *
+     * @param items a <code>List<Consumable></code> of items in any order
+     * @return an <code>ImmutableConsumableList</code> of the items
+     */
+    public static ImmutableConsumableList of(List<? extends Consumable> items) {
+        Entry[] entries = new Entry[items.size()];
+        for (int index = 0; index < entries.length; index++) {
+            entries[index] = new Entry(items.get(index));
+        }
+        return new ImmutableConsumableList(build(sortOnce(entries), 0, entries.length));
+    }
+
+    @Override
+    public Consumable get(int index) {
+        return entryAt(index).item();
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public Iterator<Consumable> iterator() {
+        return new Iterator<>() {
+            private final Deque<Node> path = new ArrayDeque<>();
+            private Node next = root;
+
+            @Override
+            public boolean hasNext() {
+                return next != null || !path.isEmpty();
+            }
+
+            @Override
+            public Consumable next() {
+                while (next != null) {
+                    path.push(next);
+                    next = next.left;
+                }
+                if (path.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+
+                Node node = path.pop();
+                next = node.right;
+                return node.entry.item();
+            }
+        };
+    }
+
+    /**
+     * Gets the id of the item at the passed in index without decoding it.
+     *
+     * @param index the index of the item
+     * @return a <code>UUID</code> representing the item's <code>itemId</code>
+     */
+    public UUID itemIdAt(int index) {
+        return entryAt(index).itemId();
+    }
+
+    /**
+     * Passes the id of every item, in order, to the passed in action without decoding any of the items.
+     *
+     * @param action called with the id of every item
+     */
+    public void forEachItemId(Consumer<UUID> action) {
+        forEachEntry(root, entry -> action.accept(entry.itemId()));
+    }
+
+    /**
+     * Passes the id and expiry day of every item, in order, to the passed in action without decoding any of the items.
+     *
+     * @param action called with the id and the expiry day, as counted by <code>LocalDate.toEpochDay()</code>,
+     *               of every item
+     */
+    public void forEachItemIdAndEpochDay(ObjLongConsumer<UUID> action) {
+        forEachEntry(root, entry -> action.accept(entry.itemId(), entry.epochDay()));
+    }
+
+    /**
+     * Gets the index of the item with the passed in id and expiry day in O(log n), without decoding any items.
+     *
+     * @param itemId   the <code>UUID</code> of the item
+     * @param epochDay the day the item expires on, as counted by <code>LocalDate.toEpochDay()</code>
+     * @return the index of the item, or -1 if the list doesn't contain it
+     */
+    public int indexOf(UUID itemId, long epochDay) {
+        int index = lowerBound(epochDay, itemId);
+        if (index < size()) {
+            Entry entry = entryAt(index);
+            if (entry.epochDay() == epochDay && itemId.equals(entry.itemId())) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the items expiring between the passed in days, both included, in natural order.
+     * Only the matching items and those on the path to the first of them are decoded.
+     *
+     * @param firstDay the first expiry day to include, <code>null</code> for no lower bound
+     * @param lastDay  the last expiry day to include, <code>null</code> for no upper bound
+     * @return a new <code>List<Consumable></code> of the matching items
+     */
+    public List<Consumable> expiringBetween(LocalDate firstDay, LocalDate lastDay) {
+        long firstEpochDay = firstDay != null ? firstDay.toEpochDay() : Long.MIN_VALUE;
+        long lastEpochDay = lastDay != null ? lastDay.toEpochDay() : Long.MAX_VALUE;
+        List<Consumable> items = new ArrayList<>();
+
+        // descend to the first item expiring on or after the first day, keeping the nodes after it still to be visited
+        Deque<Node> path = new ArrayDeque<>();
+        Node node = root;
+        while (node != null) {
+            if (node.entry.epochDay() < firstEpochDay) {
+                node = node.right;
+            } else {
+                path.push(node);
+                node = node.left;
+            }
+        }
+
+        while (!path.isEmpty()) {
+            node = path.pop();
+            if (node.entry.epochDay() > lastEpochDay) {
+                break;
+            }
+            items.add(node.entry.item());
+            node = node.right;
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Returns a list with the passed in item added after every item which doesn't come after it in natural order.
+     *
+     * @param item a <code>Consumable</code> object to add
+     * @return a new <code>ImmutableConsumableList</code> containing the item
+     */
+    public ImmutableConsumableList plus(Consumable item) {
+        return new ImmutableConsumableList(insert(root, new Entry(item)));
+    }
+
+    /**
+     * Returns a list with every passed in item added at its position in natural order.
+     * <p>
+     * The items are sorted once. A few items are inserted one by one, in O(k log n), while a batch large enough
+     * for that to cost more than going over the whole list is merged with the list's items in a single pass and the
+     * tree rebuilt from them, in O(n + k log k), without decoding any items.
+     *
+     * @param items a <code>List<Consumable></code> of items to add, in any order
+     * @return a new <code>ImmutableConsumableList</code> containing the items
+     */
+    public ImmutableConsumableList plusAll(List<? extends Consumable> items) {
+        Entry[] addedEntries = new Entry[items.size()];
+        for (int index = 0; index < addedEntries.length; index++) {
+            addedEntries[index] = new Entry(items.get(index));
+        }
+        sortOnce(addedEntries);
+
+        int size = size();
+        if ((long) addedEntries.length * (64 - Long.numberOfLeadingZeros(size)) < size) {
+            Node newRoot = root;
+            for (Entry entry : addedEntries) {
+                newRoot = insert(newRoot, entry);
+            }
+            return new ImmutableConsumableList(newRoot);
+        }
+
+        Entry[] mergedEntries = new Entry[size + addedEntries.length];
+        int[] mergedCount = new int[1];
+        int[] nextAdded = new int[1];
+        forEachEntry(root, entry -> {
+            // items equal in natural order go after those already in the list, the same as plus()
+            while (nextAdded[0] < addedEntries.length && ENTRY_ORDER.compare(addedEntries[nextAdded[0]], entry) < 0) {
+                mergedEntries[mergedCount[0]++] = addedEntries[nextAdded[0]++];
+            }
+            mergedEntries[mergedCount[0]++] = entry;
+        });
+        while (nextAdded[0] < addedEntries.length) {
+            mergedEntries[mergedCount[0]++] = addedEntries[nextAdded[0]++];
+        }
+        return new ImmutableConsumableList(build(mergedEntries, 0, mergedEntries.length));
+    }
+
+    /**
+     * Returns a list without the item at the passed in index.
+     *
+     * @param index the index of the item to remove
+     * @return a new <code>ImmutableConsumableList</code> without the item
+     */
+    public ImmutableConsumableList minus(int index) {
+        checkIndex(index);
+        return new ImmutableConsumableList(remove(root, index));
+    }
+
+    /**
+     * Returns a list without the passed in item, found by searching the items equal to it in natural order.
+     *
+     * @param item a <code>Consumable</code> object located in the list
+     * @return a new <code>ImmutableConsumableList</code> without the item, or this list if it doesn't contain the item
+     */
+    public ImmutableConsumableList minus(Consumable item) {
+        long epochDay = epochDay(item);
+        int size = size();
+        for (int index = lowerBound(epochDay, item.getItemId()); index < size; index++) {
+            Entry entry = entryAt(index);
+            if (compareKeys(entry.epochDay(), entry.itemId(), epochDay, item.getItemId()) != 0) {
+                break;
+            }
+            if (entry.item().equals(item)) {
+                return minus(index);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns a list without the item with the passed in id and expiry day, found without decoding any items.
+     *
+     * @param itemId   the <code>UUID</code> of the item
+     * @param epochDay the day the item expires on, as counted by <code>LocalDate.toEpochDay()</code>
+     * @return a new <code>ImmutableConsumableList</code> without the item, or this list if it doesn't contain the item
+     */
+    public ImmutableConsumableList minusItemId(UUID itemId, long epochDay) {
+        int index = indexOf(itemId, epochDay);
+        return index >= 0 ? minus(index) : this;
+    }
+
+    /**
+     * Returns a list without the items whose ids are in the passed in set, without decoding any of the items.
+     *
+     * @param itemIds a <code>Set<UUID></code> of the ids of the items to remove
+     * @return a new <code>ImmutableConsumableList</code> without the items
+     */
+    public ImmutableConsumableList minusItemIds(Set<UUID> itemIds) {
+        Entry[] keptEntries = new Entry[size()];
+        int[] keptCount = new int[1];
+        forEachEntry(root, entry -> {
+            if (!itemIds.contains(entry.itemId())) {
+                keptEntries[keptCount[0]++] = entry;
+            }
+        });
+
+        if (keptCount[0] == keptEntries.length) {
+            return this;
+        }
+        return new ImmutableConsumableList(build(keptEntries, 0, keptCount[0]));
+    }
+
+    /**
+     * Returns a list without the passed in items, each found by its id and expiry day. A few items are removed one by
+     * one, in O(k log n), while a batch large enough for that to cost more than going over the whole list is left out
+     * in a single pass over it, in O(n), the same way as <code>minusItemIds()</code>.
+     *
+     * @param items a <code>List<Consumable></code> of items in the list
+     * @return a new <code>ImmutableConsumableList</code> without the items
+     */
+    public ImmutableConsumableList minusItems(List<? extends Consumable> items) {
+        int size = size();
+        if ((long) items.size() * (64 - Long.numberOfLeadingZeros(size)) < size) {
+            ImmutableConsumableList remainingItems = this;
+            for (Consumable item : items) {
+                remainingItems = remainingItems.minusItemId(item.getItemId(), epochDay(item));
+            }
+            return remainingItems;
+        }
+
+        Set<UUID> itemIds = new HashSet<>(items.size() * 2);
+        for (Consumable item : items) {
+            itemIds.add(item.getItemId());
+        }
+        return minusItemIds(itemIds);
+    }
+
+    /**
+     * Gets the number of items which haven't been decoded from the snapshot yet.
+     *
+     * @return the number of items still only held in the snapshot
+     */
+    public int undecodedSize() {
+        int[] undecodedItems = new int[1];
+        forEachEntry(root, entry -> {
+            if (!entry.isDecoded()) {
+                undecodedItems[0]++;
+            }
+        });
+        return undecodedItems[0];
+    }
+
+    private Entry entryAt(int index) {
+        checkIndex(index);
+        Node node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.entry;
+            }
+        }
+    }
+
+    /**
+     * Helper method to find the index of the first item which doesn't come before the passed in expiry day and id
+     * in natural order. A <code>null</code> id finds the first item expiring on or after the day.
+     */
+    private int lowerBound(long epochDay, UUID itemId) {
+        int index = 0;
+        Node node = root;
+        while (node != null) {
+            if (compareKeys(node.entry.epochDay(), node.entry.itemId(), epochDay, itemId) < 0) {
+                index += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return index;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+    }
+
+    private static void forEachEntry(Node node, Consumer<Entry> action) {
+        Deque<Node> path = new ArrayDeque<>();
+        while (node != null || !path.isEmpty()) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+            node = path.pop();
+            action.accept(node.entry);
+            node = node.right;
+        }
+    }
+
+    private static Node build(Entry[] entries, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node(entries[middle], build(entries, from, middle), build(entries, middle + 1, to));
+    }
+
+    private static Node insert(Node node, Entry entry) {
+        if (node == null) {
+            return new Node(entry, null, null);
+        }
+        if (ENTRY_ORDER.compare(entry, node.entry) < 0) {
+            return balance(node.entry, insert(node.left, entry), node.right);
+        }
+        return balance(node.entry, node.left, insert(node.right, entry));
+    }
+
+    private static Node remove(Node node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(node.entry, remove(node.left, index), node.right);
+        }
+        if (index > leftSize) {
+            return balance(node.entry, node.left, remove(node.right, index - leftSize - 1));
+        }
+
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.entry, node.left, remove(node.right, 0));
+    }
+
+    /**
+     * Helper method to create a node, rotating it if the heights of its children differ by more than one.
+     */
+    private static Node balance(Entry entry, Node left, Node right) {
+        int heightDifference = height(left) - height(right);
+        if (heightDifference > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.entry, left.left, new Node(entry, left.right, right));
+            }
+            return new Node(left.right.entry,
+                    new Node(left.entry, left.left, left.right.left),
+                    new Node(entry, left.right.right, right));
+        }
+        if (heightDifference < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(right.entry, new Node(entry, left, right.left), right.right);
+            }
+            return new Node(right.left.entry,
+                    new Node(entry, left, right.left.left),
+                    new Node(right.entry, right.left.right, right.right));
+        }
+        return new Node(entry, left, right);
+    }
+
+    /**
+     * Helper method to sort the passed in entries into natural order, unless they are in order already,
+     * comparing the ids and expiry days read from a snapshot rather than decoded items.
+     */
+    private static Entry[] sortOnce(Entry[] entries) {
+        for (int index = 1; index < entries.length; index++) {
+            if (ENTRY_ORDER.compare(entries[index - 1], entries[index]) > 0) {
+                Arrays.sort(entries, ENTRY_ORDER);
+                break;
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Helper method to compare two items by expiry day and id, the same way as <code>Consumable.compareTo()</code>.
+     */
+    private static int compareKeys(long epochDay, UUID itemId, long otherEpochDay, UUID otherItemId) {
+        int dayOrder = Long.compare(epochDay, otherEpochDay);
+        return dayOrder != 0 ? dayOrder : ITEM_ID_ORDER.compare(itemId, otherItemId);
+    }
+
+    private static long epochDay(Consumable item) {
+        return item.getExpiryDate().toLocalDate().toEpochDay();
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * An immutable tree node, shared between every version of the list it is part of.
+     */
+    private static final class Node {
+        private final Entry entry;
+        private final Node left;
+        private final Node right;
+        private final int size;
+        private final int height;
+
+        private Node(Entry entry, Node left, Node right) {
+            this.entry = entry;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    /**
+     * Holds an item, or the snapshot record to decode it from on first access.
+     */
+    private static final class Entry {
+        private final BinarySnapshotFormat.MappedSnapshot snapshot;
+        private final int record;
+        private volatile Consumable item;
+
+        private Entry(Consumable item) {
+            // checked up front, since the first item of an empty tree is never compared to anything
+            if (item.getExpiryDate() == null) {
+                throw new IllegalArgumentException("Item without an expiry date: " + item.getItemId());
+            }
+            this.snapshot = null;
+            this.record = -1;
+            this.item = item;
+        }
+
+        private Entry(BinarySnapshotFormat.MappedSnapshot snapshot, int record) {
+            this.snapshot = snapshot;
+            this.record = record;
+        }
+
+        private boolean isDecoded() {
+            return item != null;
+        }
+
+        private Consumable item() {
+            Consumable decodedItem = item;
+            if (decodedItem == null) {
+                // decoded once, so every version of the list hands out the very same object
+                synchronized (this) {
+                    decodedItem = item;
+                    if (decodedItem == null) {
+                        decodedItem = snapshot.decode(record);
+                        item = decodedItem;
+                    }
+                }
+            }
+            return decodedItem;
+        }
+
+        /**
+         * Gets the day the item expires on, by which the tree is ordered, without decoding the item.
+         */
+        private long epochDay() {
+            Consumable decodedItem = item;
+            return decodedItem != null ? ImmutableConsumableList.epochDay(decodedItem) : snapshot.expiryEpochDayAt(record);
+        }
+
+        private UUID itemId() {
+            Consumable decodedItem = item;
+            return decodedItem != null ? decodedItem.getItemId() : snapshot.itemIdAt(record);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.model.Consumable;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Command line tool converting an existing item list file into a binary snapshot,
+ * so that the server memory-maps it on its next startup instead of parsing the JSON.
+ * <p>
+ * Usage: <code>ItemListConverter &lt;itemList.json&gt; [snapshot.bin]</code>.
+ * Without an output path, the snapshot is written as generation 0 next to the item list file,
+ * which the server picks up in place of the item list file as long as no newer snapshot exists.
+ */
+public class ItemListConverter {
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: ItemListConverter <itemList.json> [snapshot.bin]");
+            System.exit(2);
+        }
+
+        Path itemListPath = Path.of(args[0]);
+        SnapshotFiles snapshotFiles = new SnapshotFiles(itemListPath);
+        Path snapshotPath = args.length == 2
+                ? Path.of(args[1])
+                : snapshotFiles.snapshotPath(0, SnapshotFormat.BINARY);
+
+        try {
+            long startTime = System.nanoTime();
+            // written in natural order, so the snapshot doesn't have to be sorted on startup
+            List<Consumable> items = readItemList(itemListPath);
+            Collections.sort(items);
+            snapshotFiles.writeAtomically(snapshotPath, outputStream -> BinarySnapshotFormat.write(items, outputStream));
+
+            System.out.println("Converted " + items.size() + " item(s) from " + itemListPath + " to " + snapshotPath
+                    + " in " + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+            if (args.length == 1 && !snapshotFiles.snapshotGenerations().isEmpty()
+                    && snapshotFiles.snapshotGenerations().get(0) > 0) {
+                System.out.println("Newer snapshots exist next to the item list file, the server will keep using those");
+            }
+        } catch (IOException | JsonParseException e) {
+            System.out.println("Unable to convert " + itemListPath + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Helper method to read every item of the item list file.
+     */
+    private static List<Consumable> readItemList(Path itemListPath) throws IOException {
+        try (Reader itemListReader = Files.newBufferedReader(itemListPath)) {
+            List<Consumable> items = ConsumableManager.newCustomGsonBuilder().create()
+                    .fromJson(itemListReader, new TypeToken<List<Consumable>>() {
+                    }.getType());
+            return items != null ? items : new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.model.Consumable;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Reads a JSON array of <code>Consumable</code> items, such as the item list file or a JSON snapshot,
+ * one item at a time, so that only the items themselves are held in memory instead of the whole parsed file.
+ */
+public final class JsonItemListReader {
+
+    private JsonItemListReader() {
+    }
+
+    /**
+     * Reads every item of the passed in file in order, reporting the bytes read so far to the passed in progress.
+     *
+     * @param path     a <code>Path</code> to a file holding a JSON array of items
+     * @param gson     a <code>Gson</code> object able to deserialize <code>Food</code> and <code>Drink</code> items
+     * @param progress a <code>LoadProgress</code> to report to
+     * @param onItem   called with every item as soon as it's read
+     * @return the number of items read, or -1 if the file holds <code>null</code> instead of an array
+     * @throws IOException        if the file can't be read or ends early
+     * @throws JsonParseException if the file isn't a JSON array of items
+     */
+    public static int read(Path path, Gson gson, LoadProgress progress, Consumer<Consumable> onItem)
+            throws IOException {
+        TypeAdapter<Consumable> itemAdapter = gson.getAdapter(Consumable.class);
+
+        try (JsonReader jsonReader = new JsonReader(new InputStreamReader(
+                new ProgressInputStream(Files.newInputStream(path), progress), StandardCharsets.UTF_8))) {
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                return -1;
+            }
+
+            int items = 0;
+            jsonReader.beginArray();
+            while (jsonReader.hasNext()) {
+                Consumable item = itemAdapter.read(jsonReader);
+                if (item == null) {
+                    throw new JsonParseException("Null item at index " + items + " of " + path);
+                }
+                onItem.accept(item);
+                items++;
+            }
+            jsonReader.endArray();
+            return items;
+        } catch (IllegalStateException e) {
+            throw new JsonParseException("Not a JSON array of items: " + path, e);
+        }
+    }
+
+    /**
+     * Helper stream to count the bytes read from the underlying file.
+     */
+    private static class ProgressInputStream extends FilterInputStream {
+        private final LoadProgress progress;
+        private long bytesRead;
+
+        ProgressInputStream(InputStream inputStream, LoadProgress progress) {
+            super(inputStream);
+            this.progress = progress;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                progress.setBytesRead(++bytesRead);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                bytesRead += count;
+                progress.setBytesRead(bytesRead);
+            }
+            return count;
+        }
+    }
+}
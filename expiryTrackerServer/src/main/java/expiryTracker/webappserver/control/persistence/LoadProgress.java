@@ -0,0 +1,72 @@
+package expiryTracker.webappserver.control.persistence;
+
+/**
+ * Tracks the progress of loading the list of <code>Consumable</code> items on startup,
+ * updated by the loading thread and read by the readiness endpoint while loading is still going on.
+ */
+public class LoadProgress {
+
+    /**
+     * The steps of loading the list, in the order they happen.
+     */
+    public enum Phase {
+        STARTING, LOADING_SNAPSHOT, REPLAYING_JOURNAL, READY, FAILED
+    }
+
+    private volatile Phase phase = Phase.STARTING;
+    private volatile String source;
+    private volatile long totalBytes;
+    private volatile long bytesRead;
+    private volatile long itemsLoaded;
+    private volatile long recordsReplayed;
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    /**
+     * Moves on to the passed in phase, reading from the passed in file.
+     *
+     * @param phase      the <code>Phase</code> loading has reached
+     * @param source     a <code>String</code> naming the file being read, <code>null</code> if none
+     * @param totalBytes the size of the file being read in bytes
+     */
+    public void startPhase(Phase phase, String source, long totalBytes) {
+        this.source = source;
+        this.totalBytes = totalBytes;
+        this.bytesRead = 0;
+        this.phase = phase;
+    }
+
+    public void finish(Phase phase) {
+        this.phase = phase;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public void setBytesRead(long bytesRead) {
+        this.bytesRead = bytesRead;
+    }
+
+    public long getItemsLoaded() {
+        return itemsLoaded;
+    }
+
+    public void itemLoaded() {
+        itemsLoaded++;
+    }
+
+    public void setItemsLoaded(long itemsLoaded) {
+        this.itemsLoaded = itemsLoaded;
+    }
+
+    public void recordReplayed() {
+        recordsReplayed++;
+    }
+}
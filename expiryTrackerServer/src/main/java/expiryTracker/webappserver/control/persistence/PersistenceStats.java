@@ -0,0 +1,121 @@
+package expiryTracker.webappserver.control.persistence;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the state of the queue of journal records waiting to be written and how long flushing them has taken,
+ * along with the snapshots which couldn't be written.
+ */
+public class PersistenceStats {
+    private final DurabilityMode mode;
+    private final int queueDepth;
+    private final int queueCapacity;
+    private final long flushes;
+    private final long flushedRecords;
+    private final double averageFlushMillis;
+    private final double maxFlushMillis;
+    private final double averageRecordLatencyMillis;
+    private final double maxRecordLatencyMillis;
+    private final String journalFailure;
+    private final long snapshotFailures;
+    private final String lastSnapshotFailure;
+
+    /**
+     * Constructs a <code>PersistenceStats</code> object with the passed in measurements.
+     *
+     * @param mode                      the <code>DurabilityMode</code> changes are persisted with
+     * @param queueDepth                the number of records waiting to be written
+     * @param queueCapacity             the number of records which may wait before appending blocks
+     * @param flushes                   the number of batches written and forced to disk
+     * @param flushedRecords            the number of records written and forced to disk
+     * @param averageFlushNanos         the average time taken to write and force a batch in nanoseconds
+     * @param maxFlushNanos             the longest time taken to write and force a batch in nanoseconds
+     * @param averageRecordLatencyNanos the average time from queueing a record to it being on disk in nanoseconds
+     * @param maxRecordLatencyNanos     the longest time from queueing a record to it being on disk in nanoseconds
+     * @param journalFailure            a <code>String</code> describing why the journal rejects every change,
+     *                                  or <code>null</code> if it doesn't
+     */
+    public PersistenceStats(DurabilityMode mode, int queueDepth, int queueCapacity, long flushes, long flushedRecords,
+                            long averageFlushNanos, long maxFlushNanos,
+                            long averageRecordLatencyNanos, long maxRecordLatencyNanos, String journalFailure) {
+        this.mode = mode;
+        this.queueDepth = queueDepth;
+        this.queueCapacity = queueCapacity;
+        this.flushes = flushes;
+        this.flushedRecords = flushedRecords;
+        this.averageFlushMillis = toMillis(averageFlushNanos);
+        this.maxFlushMillis = toMillis(maxFlushNanos);
+        this.averageRecordLatencyMillis = toMillis(averageRecordLatencyNanos);
+        this.maxRecordLatencyMillis = toMillis(maxRecordLatencyNanos);
+        this.journalFailure = journalFailure;
+        this.snapshotFailures = 0;
+        this.lastSnapshotFailure = null;
+    }
+
+    /**
+     * Constructs a copy of the passed in <code>PersistenceStats</code> with the passed in snapshot failures.
+     */
+    private PersistenceStats(PersistenceStats stats, long snapshotFailures, String lastSnapshotFailure) {
+        this.mode = stats.mode;
+        this.queueDepth = stats.queueDepth;
+        this.queueCapacity = stats.queueCapacity;
+        this.flushes = stats.flushes;
+        this.flushedRecords = stats.flushedRecords;
+        this.averageFlushMillis = stats.averageFlushMillis;
+        this.maxFlushMillis = stats.maxFlushMillis;
+        this.averageRecordLatencyMillis = stats.averageRecordLatencyMillis;
+        this.maxRecordLatencyMillis = stats.maxRecordLatencyMillis;
+        this.journalFailure = stats.journalFailure;
+        this.snapshotFailures = snapshotFailures;
+        this.lastSnapshotFailure = lastSnapshotFailure;
+    }
+
+    /**
+     * Constructs the <code>PersistenceStats</code> of a mode without a journal, where nothing is ever queued.
+     *
+     * @param mode the <code>DurabilityMode</code> changes are persisted with
+     * @return a <code>PersistenceStats</code> object without any records
+     */
+    public static PersistenceStats withoutJournal(DurabilityMode mode) {
+        return new PersistenceStats(mode, 0, 0, 0, 0, 0, 0, 0, 0, null);
+    }
+
+    /**
+     * Adds the snapshots which couldn't be written to these stats.
+     *
+     * @param snapshotFailures    the number of snapshots which couldn't be written
+     * @param lastSnapshotFailure a <code>String</code> describing why the last of them failed, or <code>null</code>
+     * @return a copy of these <code>PersistenceStats</code> with the snapshot failures
+     */
+    public PersistenceStats withSnapshotFailures(long snapshotFailures, String lastSnapshotFailure) {
+        return new PersistenceStats(this, snapshotFailures, lastSnapshotFailure);
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getFlushedRecords() {
+        return flushedRecords;
+    }
+
+    public String getJournalFailure() {
+        return journalFailure;
+    }
+
+    public long getSnapshotFailures() {
+        return snapshotFailures;
+    }
+
+    public String getLastSnapshotFailure() {
+        return lastSnapshotFailure;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
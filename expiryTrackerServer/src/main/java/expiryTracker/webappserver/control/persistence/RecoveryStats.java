@@ -0,0 +1,60 @@
+package expiryTracker.webappserver.control.persistence;
+
+/**
+ * Records how the server recovered its list of <code>Consumable</code> items on startup
+ * and how long each step of the recovery took.
+ */
+public class RecoveryStats {
+    private final long snapshotGeneration;
+    private final int snapshotItems;
+    private final int damagedSnapshots;
+    private final long snapshotLoadMillis;
+    private final int journalSegments;
+    private final int journalRecords;
+    private final long journalReplayMillis;
+    private final long totalMillis;
+
+    /**
+     * Constructs a <code>RecoveryStats</code> object with the passed in measurements.
+     *
+     * @param snapshotGeneration  the generation of the snapshot the list was loaded from, 0 for the item list file
+     * @param snapshotItems       the number of items loaded from the snapshot
+     * @param damagedSnapshots    the number of newer snapshots skipped because they couldn't be read
+     * @param snapshotLoadMillis  the time taken to load the snapshot in milliseconds
+     * @param journalSegments     the number of journal segments replayed on top of the snapshot
+     * @param journalRecords      the number of journal records replayed on top of the snapshot
+     * @param journalReplayMillis the time taken to replay the journal in milliseconds
+     * @param totalMillis         the time taken by the whole recovery in milliseconds
+     */
+    public RecoveryStats(long snapshotGeneration, int snapshotItems, int damagedSnapshots, long snapshotLoadMillis,
+                         int journalSegments, int journalRecords, long journalReplayMillis, long totalMillis) {
+        this.snapshotGeneration = snapshotGeneration;
+        this.snapshotItems = snapshotItems;
+        this.damagedSnapshots = damagedSnapshots;
+        this.snapshotLoadMillis = snapshotLoadMillis;
+        this.journalSegments = journalSegments;
+        this.journalRecords = journalRecords;
+        this.journalReplayMillis = journalReplayMillis;
+        this.totalMillis = totalMillis;
+    }
+
+    public long getSnapshotGeneration() {
+        return snapshotGeneration;
+    }
+
+    public int getJournalRecords() {
+        return journalRecords;
+    }
+
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "Recovered " + snapshotItems + " item(s) from snapshot " + snapshotGeneration
+                + " in " + snapshotLoadMillis + " ms (" + damagedSnapshots + " damaged snapshot(s) skipped), replayed "
+                + journalRecords + " record(s) from " + journalSegments + " journal segment(s) in "
+                + journalReplayMillis + " ms, " + totalMillis + " ms in total";
+    }
+}
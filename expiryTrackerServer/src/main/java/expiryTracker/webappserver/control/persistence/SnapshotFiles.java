@@ -0,0 +1,213 @@
+package expiryTracker.webappserver.control.persistence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Names, lists, writes and cleans up the numbered snapshot and journal segment files
+ * kept next to the server's item list file.
+ * <p>
+ * The snapshot of generation <code>n</code> holds every item at the moment it was taken and the journal segment
+ * of generation <code>n</code> holds every change made after that moment, so the state of the list is recovered
+ * by loading a snapshot and replaying the segments of the same and later generations.
+ * Generation 0 has no snapshot file: its base is the item list file itself.
+ * <p>
+ * Snapshots are written in one of the <code>SnapshotFormat</code>s, told apart by their suffix.
+ */
+public class SnapshotFiles {
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final String baseName;
+
+    /**
+     * Functional interface for writing the content of a file to an <code>OutputStream</code>.
+     */
+    @FunctionalInterface
+    public interface ContentWriter {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    /**
+     * Constructs a <code>SnapshotFiles</code> object naming its files after the passed in item list file,
+     * e.g. <code>itemList.3.snapshot.bin</code> and <code>itemList.3.journal</code> for <code>itemList.json</code>.
+     *
+     * @param itemListPath a <code>Path</code> to the item list file
+     */
+    public SnapshotFiles(Path itemListPath) {
+        Path absolutePath = itemListPath.toAbsolutePath().normalize();
+        String fileName = absolutePath.getFileName().toString();
+        int extensionIndex = fileName.lastIndexOf('.');
+
+        this.directory = absolutePath.getParent();
+        this.baseName = extensionIndex > 0 ? fileName.substring(0, extensionIndex) : fileName;
+    }
+
+    public Path snapshotPath(long generation, SnapshotFormat format) {
+        return directory.resolve(baseName + "." + generation + format.getSuffix());
+    }
+
+    public Path segmentPath(long generation) {
+        return directory.resolve(baseName + "." + generation + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Lists the generations of all snapshot files of any format, newest first.
+     *
+     * @return a <code>List<Long></code> of snapshot generations in descending order
+     * @throws IOException if the directory can't be listed
+     */
+    public List<Long> snapshotGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            generations.addAll(listGenerations(format.getSuffix()));
+        }
+        generations.sort(Collections.reverseOrder());
+        return generations;
+    }
+
+    /**
+     * Gets the format the snapshot of the passed in generation was written in.
+     *
+     * @param generation the generation of the snapshot
+     * @return the <code>SnapshotFormat</code> of the snapshot file, or <code>null</code> if there is none
+     */
+    public SnapshotFormat snapshotFormat(long generation) {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            if (Files.exists(snapshotPath(generation, format))) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists the generations of all journal segment files, oldest first.
+     *
+     * @return a <code>List<Long></code> of journal segment generations in ascending order
+     * @throws IOException if the directory can't be listed
+     */
+    public List<Long> segmentGenerations() throws IOException {
+        List<Long> generations = listGenerations(SEGMENT_SUFFIX);
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Writes a file so that it is either fully present or not present at all, even if the server dies mid-write.
+     * <p>
+     * The content is written to a temporary file which is forced to disk and then atomically renamed
+     * over the target, after which the rename itself is forced to disk.
+     *
+     * @param target        a <code>Path</code> to the file to write
+     * @param contentWriter writes the content of the file
+     * @throws IOException if the file can't be written
+     */
+    public void writeAtomically(Path target, ContentWriter contentWriter) throws IOException {
+        Path tempFile = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputStream outputStream = Channels.newOutputStream(channel);
+            contentWriter.writeTo(outputStream);
+            outputStream.flush();
+            channel.force(true);
+        }
+
+        Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory();
+    }
+
+    /**
+     * Deletes every snapshot and journal segment older than the passed in generation,
+     * along with temporary files left behind by interrupted writes.
+     * <p>
+     * Each file is deleted on its own: a file which can't be deleted, such as a memory-mapped snapshot on Windows,
+     * is left for the next call while the others are still deleted. The snapshot of the passed in mapped generation
+     * is skipped altogether, since it stays mapped for as long as any of its items may still be decoded.
+     *
+     * @param generation       the oldest generation to keep
+     * @param mappedGeneration the generation of a snapshot which is memory-mapped, or -1 if there is none
+     * @throws IOException if the directory can't be listed
+     */
+    public void deleteOlderThan(long generation, long mappedGeneration) throws IOException {
+        for (SnapshotFormat format : SnapshotFormat.values()) {
+            for (long snapshotGeneration : listGenerations(format.getSuffix())) {
+                if (snapshotGeneration < generation && snapshotGeneration != mappedGeneration) {
+                    deleteQuietly(snapshotPath(snapshotGeneration, format));
+                }
+            }
+        }
+        for (long segmentGeneration : listGenerations(SEGMENT_SUFFIX)) {
+            if (segmentGeneration < generation) {
+                deleteQuietly(segmentPath(segmentGeneration));
+            }
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (fileName.startsWith(baseName + ".") && fileName.endsWith(TEMP_SUFFIX)) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to delete a file, only reporting it if the file can't be deleted.
+     */
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.out.println("Unable to delete " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Helper method to parse the generations out of the names of files ending with the passed in suffix.
+     */
+    private List<Long> listGenerations(String suffix) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        String prefix = baseName + ".";
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.startsWith(prefix) || !fileName.endsWith(suffix)) {
+                    continue;
+                }
+
+                String generation = fileName.substring(prefix.length(), fileName.length() - suffix.length());
+                try {
+                    generations.add(Long.parseLong(generation));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return generations;
+    }
+
+    /**
+     * Helper method to force a rename in the directory to disk.
+     * Not supported on every platform (e.g. Windows), in which case the rename is left to the file system.
+     */
+    private void forceDirectory() {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package expiryTracker.webappserver.control.persistence;
+
+/**
+ * The file formats a snapshot of the list of <code>Consumable</code> items can be written in.
+ */
+public enum SnapshotFormat {
+    /**
+     * JSON in the same layout as the item list file, readable and editable by hand. Written compact, on a single
+     * line, unless <code>expirytracker.persistence.pretty-print</code> is set to have it indented.
+     */
+    JSON(".snapshot.json"),
+
+    /**
+     * The fixed-layout binary format of <code>BinarySnapshotFormat</code>, memory-mapped and decoded lazily on startup.
+     */
+    BINARY(".snapshot.bin");
+
+    private final String suffix;
+
+    SnapshotFormat(String suffix) {
+        this.suffix = suffix;
+    }
+
+    public String getSuffix() {
+        return suffix;
+    }
+}
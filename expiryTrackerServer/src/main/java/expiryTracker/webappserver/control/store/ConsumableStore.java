@@ -0,0 +1,174 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.control.persistence.LoadProgress;
+import expiryTracker.webappserver.control.persistence.PersistenceStats;
+import expiryTracker.webappserver.control.persistence.RecoveryStats;
+import expiryTracker.webappserver.model.Consumable;
+
+import java.io.Closeable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stores the server's <code>Consumable</code> items, for the <code>ConsumableManager</code> to delegate to.
+ * <p>
+ * Items are handed out in natural order, as defined by <code>Consumable.compareTo()</code>: by expiry day, and items of
+ * the same expiry day by <code>itemId</code>. Items handed out are never changed by the store afterwards.
+ * <p>
+ * Implementations must be safe to use from several threads at once. Lists handed out must never change afterwards,
+ * so that a reader always sees every change either completely or not at all, however many writers are at work.
+ */
+public interface ConsumableStore extends Closeable {
+
+    /**
+     * Gets every stored item.
+     *
+     * @return a <code>List<Consumable></code> of every item in natural order
+     */
+    List<Consumable> findAll();
+
+    /**
+     * Gets the stored items expiring between the passed in days, both included.
+     *
+     * @param firstDay the first expiry day to include, <code>null</code> for no lower bound
+     * @param lastDay  the last expiry day to include, <code>null</code> for no upper bound
+     * @return a <code>List<Consumable></code> of the matching items in natural order
+     */
+    default List<Consumable> findByExpiryDateBetween(LocalDate firstDay, LocalDate lastDay) {
+        List<Consumable> items = new ArrayList<>();
+        for (Consumable item : findAll()) {
+            LocalDate expiryDay = item.getExpiryDate().toLocalDate();
+            if ((firstDay == null || !expiryDay.isBefore(firstDay)) && (lastDay == null || !expiryDay.isAfter(lastDay))) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Gets the stored item with the passed in id.
+     *
+     * @param itemId the <code>UUID</code> of the item
+     * @return the <code>Consumable</code> object with the id, or <code>null</code> if there is none
+     */
+    default Consumable findById(UUID itemId) {
+        for (Consumable item : findAll()) {
+            if (item.getItemId().equals(itemId)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Stores an item, which must not be changed afterwards.
+     *
+     * @param item a <code>Consumable</code> object representing either a Food or Drink item
+     */
+    void add(Consumable item);
+
+    /**
+     * Stores a batch of items at once, none of which must be changed afterwards. Readers see either none of the
+     * items or all of them.
+     * <p>
+     * Adds the items one by one by default.
+     *
+     * @param items a <code>List<Consumable></code> of Food and Drink items in any order
+     */
+    default void addAll(List<? extends Consumable> items) {
+        for (Consumable item : items) {
+            add(item);
+        }
+    }
+
+    /**
+     * Removes a stored item.
+     *
+     * @param item a <code>Consumable</code> object handed out by this store
+     */
+    void remove(Consumable item);
+
+    /**
+     * Removes a batch of stored items at once. Readers see either none of the items removed or all of them.
+     * <p>
+     * Removes the items one by one by default.
+     *
+     * @param itemIds the <code>UUID</code>s of the items to remove, skipping those of items which aren't stored
+     * @return a <code>List<Consumable></code> of the items removed, in natural order
+     */
+    default List<Consumable> removeAll(Collection<UUID> itemIds) {
+        List<Consumable> removedItems = new ArrayList<>();
+        for (UUID itemId : new ArrayList<>(itemIds)) {
+            Consumable item = findById(itemId);
+            if (item != null && !removedItems.contains(item)) {
+                remove(item);
+                removedItems.add(item);
+            }
+        }
+        Collections.sort(removedItems);
+        return removedItems;
+    }
+
+    /**
+     * Removes every stored item expiring before the passed in day at once, found through the order by expiry day
+     * rather than by checking every item. Readers see either none of the items removed or all of them.
+     * <p>
+     * Finds the items with <code>findByExpiryDateBetween()</code> and removes them with <code>removeAll()</code>
+     * by default.
+     *
+     * @param day the first expiry day to keep
+     * @return a <code>List<Consumable></code> of the items removed, in natural order
+     */
+    default List<Consumable> removeExpiringBefore(LocalDate day) {
+        List<UUID> itemIds = new ArrayList<>();
+        for (Consumable item : findByExpiryDateBetween(null, day.minusDays(1))) {
+            itemIds.add(item.getItemId());
+        }
+        return removeAll(itemIds);
+    }
+
+    /**
+     * Sets the listener told about every item added or removed from now on, replacing the previous one.
+     *
+     * @param listener the <code>StoreChangeListener</code> to call, or <code>null</code> for none
+     */
+    void setChangeListener(StoreChangeListener listener);
+
+    /**
+     * Forces every change made so far to disk. Does nothing for a store which isn't saved to disk.
+     */
+    default void flush() {
+    }
+
+    /**
+     * Gets the progress of loading the stored items on startup, available while loading is still going on.
+     *
+     * @return a <code>LoadProgress</code> object describing how far loading has come
+     */
+    LoadProgress getLoadProgress();
+
+    /**
+     * Gets how the stored items were recovered on startup and how long each step of the recovery took.
+     *
+     * @return a <code>RecoveryStats</code> object describing the recovery
+     */
+    RecoveryStats getRecoveryStats();
+
+    /**
+     * Gets how changes are persisted and how long persisting them has taken so far.
+     *
+     * @return a <code>PersistenceStats</code> object describing the persistence of changes
+     */
+    PersistenceStats getPersistenceStats();
+
+    /**
+     * Releases the files and threads held by the store. Does nothing by default.
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,801 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.config.PersistenceProperties;
+import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.control.persistence.BinarySnapshotFormat;
+import expiryTracker.webappserver.control.persistence.ConsumableJournal;
+import expiryTracker.webappserver.control.persistence.DurabilityMode;
+import expiryTracker.webappserver.control.persistence.ImmutableConsumableList;
+import expiryTracker.webappserver.control.persistence.JsonItemListReader;
+import expiryTracker.webappserver.control.persistence.LoadProgress;
+import expiryTracker.webappserver.control.persistence.PersistenceStats;
+import expiryTracker.webappserver.control.persistence.RecoveryStats;
+import expiryTracker.webappserver.control.persistence.SnapshotFiles;
+import expiryTracker.webappserver.control.persistence.SnapshotFormat;
+import expiryTracker.webappserver.model.Consumable;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A <code>ConsumableStore</code> holding its items in memory and saving them to the item list file,
+ * snapshots and a write-ahead journal next to it.
+ * <p>
+ * Every addition and removal is appended to the journal, written by a background thread,
+ * so that changes made since the last snapshot survive a crash and are replayed on startup.
+ * Depending on the <code>DurabilityMode</code>, a change is acknowledged once its record is on disk
+ * or once it is queued. In the <code>sync</code> mode, a change whose record can't be written is taken back
+ * and fails, and once the journal can't be written to at all, every further change is refused.
+ * Snapshots of the list are taken in the background, periodically and whenever the journal grows too large,
+ * after which the journal segments they supersede are deleted, so that startup only has to load the newest
+ * snapshot and replay the short journal tail written after it.
+ * <p>
+ * Snapshots are written in a memory-mapped binary format by default, whose items are only decoded
+ * once they are first accessed, so startup doesn't have to parse and build every item up front.
+ * JSON snapshots and the item list file are streamed one item at a time instead.
+ * <p>
+ * The list is an immutable, structurally shared <code>ImmutableConsumableList</code> which every change replaces
+ * with a new version, so a snapshot is written from a consistent point-in-time view of the list
+ * without copying it, while further changes go ahead.
+ * <p>
+ * Items are found by id through an <code>ItemIdIndex</code>, kept up to date along with the list.
+ * <p>
+ * The list is loaded on a background thread, so the server can report its loading progress while it starts up;
+ * every method touching the list waits until loading has finished.
+ */
+public class FileConsumableStore implements ConsumableStore {
+    private volatile ImmutableConsumableList fridge = ImmutableConsumableList.empty();
+    private final ItemIdIndex itemIdIndex = new ItemIdIndex();
+    private final Gson customGsonObj = ConsumableManager.newCustomGsonBuilder().create();
+    private final Gson fileGsonObj;
+    private final Path filePath;
+    private final SnapshotFiles snapshotFiles;
+    private final PersistenceProperties persistenceProperties;
+    private final ScheduledExecutorService snapshotExecutor;
+    private final AtomicBoolean snapshotRequested = new AtomicBoolean();
+    // locks rather than monitors, so that a virtual thread blocked on a full journal queue doesn't pin its carrier
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private StoreChangeListener changeListener;
+    private ConsumableJournal journal;
+    private long generation;
+    // only touched while holding the snapshot lock, once the list is loaded
+    private long lastSnapshotGeneration;
+    private long mappedSnapshotGeneration = -1;
+    private volatile long snapshotFailures;
+    private volatile String lastSnapshotFailure;
+    private RecoveryStats recoveryStats;
+    private final LoadProgress loadProgress = new LoadProgress();
+    private final ConsumableJournal.SegmentOpener segmentOpener;
+    private final CompletableFuture<Void> recovered;
+
+    /**
+     * Constructs a <code>FileConsumableStore</code> which loads (if existing) the newest snapshot or the item list file
+     * of <code>Consumable</code> objects of type subclass type <code>Food</code> or <code>Drink</code>,
+     * replaying any changes recorded in the journal since it was saved.
+     * The files are read on a background thread, see <code>getLoadProgress()</code>.
+     *
+     * @param persistenceProperties the settings for the item list file, the journal and taking snapshots
+     */
+    public FileConsumableStore(PersistenceProperties persistenceProperties) {
+        this(persistenceProperties, ConsumableJournal::openSegment);
+    }
+
+    /**
+     * Constructs a <code>FileConsumableStore</code> opening its journal segments with the passed in
+     * <code>SegmentOpener</code>.
+     *
+     * @param persistenceProperties the settings for the item list file, the journal and taking snapshots
+     * @param segmentOpener         opens each journal segment for appending
+     */
+    FileConsumableStore(PersistenceProperties persistenceProperties, ConsumableJournal.SegmentOpener segmentOpener) {
+        this.persistenceProperties = persistenceProperties;
+        this.segmentOpener = segmentOpener;
+        this.fileGsonObj = ConsumableManager.newFileGsonObj(persistenceProperties.isPrettyPrint());
+        this.filePath = Path.of(persistenceProperties.getFilePath());
+        this.snapshotFiles = new SnapshotFiles(filePath);
+
+        recovered = CompletableFuture.runAsync(this::readInFile, runnable -> {
+            Thread loaderThread = new Thread(runnable, "consumable-loader");
+            loaderThread.start();
+        }).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                loadProgress.finish(LoadProgress.Phase.FAILED);
+                System.out.println("Unable to load consumable data: " + throwable.getCause());
+            }
+        });
+
+        snapshotExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread snapshotThread = new Thread(runnable, "consumable-snapshotter");
+            snapshotThread.setDaemon(true);
+            return snapshotThread;
+        });
+        long snapshotIntervalMillis = persistenceProperties.getSnapshotInterval().toMillis();
+        if (snapshotIntervalMillis > 0) {
+            snapshotExecutor.scheduleWithFixedDelay(this::writeToFileInBackground,
+                    snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Gets every stored item.
+     * <p>
+     * The list is immutable and holds the items at the moment of the call, later changes aren't reflected in it.
+     *
+     * @return a <code>List<Consumable></code> of every item in natural order
+     */
+    @Override
+    public List<Consumable> findAll() {
+        awaitRecovery();
+        return fridge;
+    }
+
+    /**
+     * Gets the items expiring between the passed in days, both included, found through the list's order
+     * by expiry day rather than by checking every item.
+     *
+     * @param firstDay the first expiry day to include, <code>null</code> for no lower bound
+     * @param lastDay  the last expiry day to include, <code>null</code> for no upper bound
+     * @return a <code>List<Consumable></code> of the matching items in natural order
+     */
+    @Override
+    public List<Consumable> findByExpiryDateBetween(LocalDate firstDay, LocalDate lastDay) {
+        awaitRecovery();
+        return fridge.expiringBetween(firstDay, lastDay);
+    }
+
+    /**
+     * Gets the item with the passed in id through the index of item ids, without checking every item.
+     *
+     * @param itemId the <code>UUID</code> of the item
+     * @return the <code>Consumable</code> object with the id, or <code>null</code> if there is none
+     */
+    @Override
+    public Consumable findById(UUID itemId) {
+        awaitRecovery();
+        return itemIdIndex.find(fridge, itemId);
+    }
+
+    /**
+     * Inserts an object of base type <code>Consumable</code> at its position in natural order.
+     * <p>
+     * In the <code>sync</code> mode, returns once the addition has been recorded in the journal on disk,
+     * or takes the addition back if it can't be.
+     *
+     * @param item a <code>Consumable</code> object representing either a Food or Drink item
+     * @throws IllegalStateException if the journal has failed and no changes can be saved
+     */
+    @Override
+    public void add(Consumable item) {
+        awaitRecovery();
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            checkJournal();
+            // the new list is made first, so that an item which can't be added is never recorded in the journal
+            ImmutableConsumableList addedItems = fridge.plus(item);
+            durable = journal.appendAdd(item);
+            fridge = addedItems;
+            itemIdIndex.add(item);
+            if (changeListener != null) {
+                changeListener.itemAdded(item);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurability(durable, () -> undoAdditions(List.of(item)));
+    }
+
+    /**
+     * Inserts a batch of objects of base type <code>Consumable</code> into the list in a single pass, recorded in the
+     * journal in as few records as it fits in. A batch spread over several records can be recovered only in part
+     * after a crash.
+     * <p>
+     * In the <code>sync</code> mode, returns once the batch has been recorded in the journal on disk,
+     * or takes the batch back if it can't be.
+     *
+     * @param items a <code>List<Consumable></code> of Food and Drink items in any order
+     * @throws IllegalStateException if the journal has failed and no changes can be saved
+     */
+    @Override
+    public void addAll(List<? extends Consumable> items) {
+        awaitRecovery();
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            checkJournal();
+            ImmutableConsumableList addedItems = fridge.plusAll(items);
+            durable = journal.appendAddAll(items);
+            fridge = addedItems;
+            for (Consumable item : items) {
+                itemIdIndex.add(item);
+                if (changeListener != null) {
+                    changeListener.itemAdded(item);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurability(durable, () -> undoAdditions(items));
+    }
+
+    /**
+     * Removes an object of base type <code>Consumable</code>.
+     * <p>
+     * In the <code>sync</code> mode, returns once the removal has been recorded in the journal on disk,
+     * or takes the removal back if it can't be.
+     *
+     * @param consumableItem An object of base type <code>Consumable</code> handed out by this store
+     * @throws IllegalStateException if the journal has failed and no changes can be saved
+     */
+    @Override
+    public void remove(Consumable consumableItem) {
+        awaitRecovery();
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            checkJournal();
+            ImmutableConsumableList remainingItems = fridge.minusItemId(consumableItem.getItemId(),
+                    consumableItem.getExpiryDate().toLocalDate().toEpochDay());
+            if (remainingItems == fridge) {
+                // already removed, nothing to record
+                durable = CompletableFuture.completedFuture(null);
+            } else {
+                durable = journal.appendRemove(consumableItem.getItemId());
+                fridge = remainingItems;
+                itemIdIndex.remove(consumableItem.getItemId());
+                if (changeListener != null) {
+                    changeListener.itemRemoved(consumableItem);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurability(durable, () -> undoRemovals(List.of(consumableItem)));
+    }
+
+    /**
+     * Removes the items with the passed in ids in one go, recorded in the journal in as few records as they fit in.
+     * A removal spread over several records can be recovered only in part after a crash.
+     * <p>
+     * In the <code>sync</code> mode, returns once the removal has been recorded in the journal on disk,
+     * or takes the removal back if it can't be.
+     *
+     * @param itemIds the <code>UUID</code>s of the items to remove, skipping those of items which aren't stored
+     * @return a <code>List<Consumable></code> of the items removed, in natural order
+     * @throws IllegalStateException if the journal has failed and no changes can be saved
+     */
+    @Override
+    public List<Consumable> removeAll(Collection<UUID> itemIds) {
+        awaitRecovery();
+        List<Consumable> removedItems;
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            removedItems = itemIdIndex.findAll(fridge, itemIds);
+            durable = removeItems(removedItems);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurability(durable, () -> undoRemovals(removedItems));
+        return removedItems;
+    }
+
+    /**
+     * Removes the items expiring before the passed in day in one go, found through the list's order by expiry day,
+     * recorded in the journal in as few records as they fit in.
+     * <p>
+     * In the <code>sync</code> mode, returns once the removal has been recorded in the journal on disk,
+     * or takes the removal back if it can't be.
+     *
+     * @param day the first expiry day to keep
+     * @return a <code>List<Consumable></code> of the items removed, in natural order
+     * @throws IllegalStateException if the journal has failed and no changes can be saved
+     */
+    @Override
+    public List<Consumable> removeExpiringBefore(LocalDate day) {
+        awaitRecovery();
+        List<Consumable> removedItems;
+        CompletableFuture<Void> durable;
+        writeLock.lock();
+        try {
+            removedItems = fridge.expiringBetween(null, day.minusDays(1));
+            durable = removeItems(removedItems);
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurability(durable, () -> undoRemovals(removedItems));
+        return removedItems;
+    }
+
+    @Override
+    public void setChangeListener(StoreChangeListener listener) {
+        writeLock.lock();
+        try {
+            changeListener = listener;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Forces every change made so far to disk, including those still waiting to be flushed in the
+     * <code>async</code> mode.
+     */
+    @Override
+    public void flush() {
+        awaitRecovery();
+        journal.flush().join();
+    }
+
+    @Override
+    public LoadProgress getLoadProgress() {
+        return loadProgress;
+    }
+
+    @Override
+    public RecoveryStats getRecoveryStats() {
+        awaitRecovery();
+        return recoveryStats;
+    }
+
+    @Override
+    public PersistenceStats getPersistenceStats() {
+        awaitRecovery();
+        return journal.stats(persistenceProperties.getMode())
+                .withSnapshotFailures(snapshotFailures, lastSnapshotFailure);
+    }
+
+    /**
+     * Stops taking snapshots and closes the journal once every change queued so far has been written.
+     */
+    @Override
+    public void close() {
+        snapshotExecutor.shutdownNow();
+        if (recovered.isCompletedExceptionally()) {
+            return;
+        }
+        try {
+            flush();
+            journal.close();
+        } catch (IOException | CompletionException e) {
+            System.out.println("Unable to close journal file: " + e);
+        }
+    }
+
+    /**
+     * Reads from the newest intact snapshot file and initializes <code>List<Consumable> fridge</code>.
+     * If there is no snapshot yet, reads from the item list file instead,
+     * or creates the item list file if it doesn't exist.
+     * <p>
+     * Changes recorded in the journal after the snapshot was taken are then replayed on top of it,
+     * and the journal is opened for appending further changes.
+     */
+    private void readInFile() {
+        long recoveryStartTime = System.nanoTime();
+        ImmutableConsumableList snapshotItems = null;
+        long snapshotGeneration = 0;
+        int damagedSnapshots = 0;
+
+        try {
+            for (long candidateGeneration : snapshotFiles.snapshotGenerations()) {
+                SnapshotFormat format = snapshotFiles.snapshotFormat(candidateGeneration);
+                Path snapshotPath = snapshotFiles.snapshotPath(candidateGeneration, format);
+                try {
+                    loadProgress.startPhase(LoadProgress.Phase.LOADING_SNAPSHOT,
+                            snapshotPath.getFileName().toString(), Files.size(snapshotPath));
+                    snapshotItems = readSnapshot(snapshotPath, format);
+                    snapshotGeneration = candidateGeneration;
+                    if (format == SnapshotFormat.BINARY) {
+                        mappedSnapshotGeneration = candidateGeneration;
+                    }
+                    break;
+                } catch (IOException | JsonParseException e) {
+                    System.out.println("Snapshot can't be read, falling back to an older one: " + snapshotPath);
+                    damagedSnapshots++;
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Snapshots can't be listed!");
+        }
+
+        fridge = snapshotItems != null ? snapshotItems : readItemListFile();
+        int snapshotSize = fridge.size();
+        long snapshotLoadedTime = System.nanoTime();
+
+        loadProgress.startPhase(LoadProgress.Phase.REPLAYING_JOURNAL, null, 0);
+        int[] replayedCounts = replayJournal(snapshotGeneration);
+        lastSnapshotGeneration = snapshotGeneration;
+        itemIdIndex.rebuild(fridge);
+        Path segmentPath = snapshotFiles.segmentPath(generation);
+        long flushIntervalNanos = persistenceProperties.getMode() == DurabilityMode.ASYNC
+                ? persistenceProperties.getFlushInterval().toNanos()
+                : 0;
+        try {
+            journal = new ConsumableJournal(segmentPath, customGsonObj,
+                    persistenceProperties.getQueueCapacity(), flushIntervalNanos, segmentOpener);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open journal file: " + segmentPath, e);
+        }
+
+        long recoveryEndTime = System.nanoTime();
+        recoveryStats = new RecoveryStats(snapshotGeneration, snapshotSize, damagedSnapshots,
+                TimeUnit.NANOSECONDS.toMillis(snapshotLoadedTime - recoveryStartTime),
+                replayedCounts[0], replayedCounts[1],
+                TimeUnit.NANOSECONDS.toMillis(recoveryEndTime - snapshotLoadedTime),
+                TimeUnit.NANOSECONDS.toMillis(recoveryEndTime - recoveryStartTime));
+        loadProgress.finish(LoadProgress.Phase.READY);
+    }
+
+    /**
+     * Helper method to read the item list file, which is the base of the list until the first snapshot is taken.
+     * The file may have been edited by hand, so its items are sorted once they have all been read.
+     *
+     * @return an <code>ImmutableConsumableList</code> of the items in the file, empty if it doesn't exist
+     */
+    private ImmutableConsumableList readItemListFile() {
+        List<Consumable> items = new ArrayList<>();
+
+        try {
+            File fileReaderObj = filePath.toFile();
+
+            // if file already exists, read from json file, else make new file & initialize the consumable item list
+            // if file does exist but is empty, the list stays empty
+            if (!fileReaderObj.createNewFile() && fileReaderObj.length() > 0) {
+                loadProgress.startPhase(LoadProgress.Phase.LOADING_SNAPSHOT,
+                        filePath.getFileName().toString(), fileReaderObj.length());
+                readJsonItems(filePath, items);
+            }
+        } catch (IOException | JsonParseException e) {
+            System.out.println("File can't be read!");
+            items.clear();
+        }
+
+        return ImmutableConsumableList.of(items);
+    }
+
+    /**
+     * Helper method to read a snapshot file written by <code>writeToFile()</code>.
+     * A binary snapshot is only memory-mapped, its items are decoded once they are first accessed,
+     * while a JSON snapshot is streamed one item at a time.
+     *
+     * @param snapshotPath a <code>Path</code> to the snapshot file
+     * @param format       the <code>SnapshotFormat</code> the snapshot was written in
+     * @return an <code>ImmutableConsumableList</code> of the items in the snapshot
+     * @throws IOException if the snapshot can't be read
+     */
+    private ImmutableConsumableList readSnapshot(Path snapshotPath, SnapshotFormat format) throws IOException {
+        if (format == SnapshotFormat.BINARY) {
+            ImmutableConsumableList items = ImmutableConsumableList.of(
+                    BinarySnapshotFormat.map(snapshotPath));
+            loadProgress.setItemsLoaded(items.size());
+            return items;
+        }
+
+        // a snapshot is never written empty, not even for an empty list
+        List<Consumable> items = new ArrayList<>();
+        if (readJsonItems(snapshotPath, items) < 0) {
+            throw new JsonParseException("Empty snapshot file: " + snapshotPath);
+        }
+        return ImmutableConsumableList.of(items);
+    }
+
+    /**
+     * Helper method to stream the items of a JSON file into the passed in list one at a time,
+     * so that the whole file is never held in memory as parsed JSON.
+     *
+     * @param path  a <code>Path</code> to a file holding a JSON array of items
+     * @param items a <code>List<Consumable></code> to add the items to
+     * @return the number of items read, or -1 if the file holds <code>null</code>
+     * @throws IOException if the file can't be read
+     */
+    private int readJsonItems(Path path, List<Consumable> items) throws IOException {
+        loadProgress.setItemsLoaded(0);
+
+        // https://attacomsian.com/blog/gson-read-json-file
+        return JsonItemListReader.read(path, customGsonObj, loadProgress, item -> {
+            items.add(item);
+            loadProgress.itemLoaded();
+        });
+    }
+
+    /**
+     * Helper method to replay the changes recorded in the journal onto <code>List<Consumable> fridge</code>,
+     * starting with the segment written after the snapshot of the passed in generation was taken.
+     * <p>
+     * Replaying is idempotent, since item ids are never reused: an addition already contained in the
+     * snapshot is skipped, as is a removal of an item which is no longer there.
+     * Snapshot items are only matched by their ids, and replayed additions are inserted at their sorted position,
+     * so none of the snapshot items have to be decoded.
+     *
+     * @param snapshotGeneration the generation of the snapshot the list was loaded from
+     * @return an <code>int[]</code> of the number of replayed segments and the number of replayed records
+     */
+    private int[] replayJournal(long snapshotGeneration) {
+        Map<UUID, Consumable> addedItems = new LinkedHashMap<>();
+        Set<UUID> removedItemIds = new HashSet<>();
+
+        generation = snapshotGeneration;
+        int replayedSegments = 0;
+        int replayedRecords = 0;
+        try {
+            for (long segmentGeneration : snapshotFiles.segmentGenerations()) {
+                if (segmentGeneration < snapshotGeneration) {
+                    continue;
+                }
+
+                replayedRecords += ConsumableJournal.replay(snapshotFiles.segmentPath(segmentGeneration),
+                        customGsonObj,
+                        item -> {
+                            addedItems.putIfAbsent(item.getItemId(), item);
+                            loadProgress.recordReplayed();
+                        },
+                        itemId -> {
+                            loadProgress.recordReplayed();
+                            if (addedItems.remove(itemId) == null) {
+                                removedItemIds.add(itemId);
+                            }
+                        });
+                replayedSegments++;
+                generation = segmentGeneration;
+            }
+        } catch (IOException e) {
+            System.out.println("Journal can't be read!");
+        }
+
+        if (!removedItemIds.isEmpty()) {
+            fridge = fridge.minusItemIds(removedItemIds);
+        }
+        if (!addedItems.isEmpty()) {
+            fridge.forEachItemId(addedItems::remove);
+            int skippedItems = 0;
+            for (Consumable item : addedItems.values()) {
+                try {
+                    fridge = fridge.plus(item);
+                } catch (RuntimeException e) {
+                    // skip the item rather than fail the whole recovery over it
+                    skippedItems++;
+                }
+            }
+            if (skippedItems > 0) {
+                System.out.println("Skipped " + skippedItems + " items of the journal that can't be added");
+            }
+        }
+        return new int[]{replayedSegments, replayedRecords};
+    }
+
+    /**
+     * Writes a new snapshot file for saving <code>Consumable</code> objects
+     * generated during the duration of the program.
+     * <p>
+     * The snapshot is written from the version of the immutable list current at the moment the journal is rolled
+     * over to a new segment, so the snapshot and the segments before it cover exactly the same changes, and neither
+     * the list nor its items have to be copied or changed while additions and removals carry on.
+     * Once the snapshot is safely on disk, older snapshots and segments are deleted, keeping the previous snapshot
+     * which made it to disk, along with every segment since, as a fallback in case the new one gets damaged.
+     * The binary snapshot the list was loaded from stays memory-mapped, so it's only deleted after a restart.
+     * A snapshot which fails is counted in the <code>PersistenceStats</code> and leaves the files as they are.
+     * <p>
+     * Called periodically in the background and whenever the journal grows past its size threshold.
+     */
+    public void writeToFile() {
+        awaitRecovery();
+        snapshotLock.lock();
+        try {
+            snapshotRequested.set(false);
+            SnapshotFormat format = persistenceProperties.getSnapshotFormat();
+
+            ImmutableConsumableList listToSerialize;
+            long snapshotGeneration;
+            CompletableFuture<Void> rolledOver;
+            writeLock.lock();
+            try {
+                listToSerialize = fridge;
+                snapshotGeneration = ++generation;
+                rolledOver = journal.roll(snapshotFiles.segmentPath(snapshotGeneration));
+            } finally {
+                writeLock.unlock();
+            }
+
+            Path snapshotPath = snapshotFiles.snapshotPath(snapshotGeneration, format);
+            try {
+                rolledOver.join();
+
+                if (format == SnapshotFormat.BINARY) {
+                    snapshotFiles.writeAtomically(snapshotPath,
+                            outputStream -> BinarySnapshotFormat.write(listToSerialize, outputStream));
+                } else {
+                    // https://attacomsian.com/blog/gson-write-json-file
+                    snapshotFiles.writeAtomically(snapshotPath, outputStream -> {
+                        Writer fileWriterObj = new BufferedWriter(
+                                new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                        fileGsonObj.toJson(listToSerialize, new TypeToken<List<Consumable>>() {
+                        }.getType(), fileWriterObj);
+                        fileWriterObj.flush();
+                    });
+                }
+                // a snapshot which failed before this one never made it to disk, so it can't be the fallback
+                long fallbackGeneration = lastSnapshotGeneration;
+                lastSnapshotGeneration = snapshotGeneration;
+                snapshotFiles.deleteOlderThan(fallbackGeneration, mappedSnapshotGeneration);
+            } catch (IOException | RuntimeException e) {
+                snapshotFailures++;
+                lastSnapshotFailure = "Unable to write snapshot " + snapshotPath.getFileName() + ": " + e;
+                System.out.println("Unable to write to save consumable data to file: " + snapshotPath);
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Helper method to remove the passed in stored items from the list in one go and record their ids in the journal
+     * in as few records as they fit in, while holding the write lock.
+     */
+    private CompletableFuture<Void> removeItems(List<Consumable> removedItems) {
+        checkJournal();
+        if (removedItems.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<UUID> itemIds = new ArrayList<>(removedItems.size());
+        for (Consumable item : removedItems) {
+            itemIds.add(item.getItemId());
+        }
+        ImmutableConsumableList remainingItems = fridge.minusItems(removedItems);
+        CompletableFuture<Void> durable = journal.appendRemoveAll(itemIds);
+        fridge = remainingItems;
+        for (Consumable item : removedItems) {
+            itemIdIndex.remove(item.getItemId());
+            if (changeListener != null) {
+                changeListener.itemRemoved(item);
+            }
+        }
+        return durable;
+    }
+
+    /**
+     * Helper method to wait until the list has been loaded on startup.
+     *
+     * @throws CompletionException if the list couldn't be loaded
+     */
+    private void awaitRecovery() {
+        recovered.join();
+    }
+
+    /**
+     * Helper method to wait, in the <code>sync</code> mode, until a change has been recorded in the journal on disk,
+     * and to take a snapshot in the background if the journal has grown too large.
+     * <p>
+     * A change which can't be recorded is taken back with the passed in <code>Runnable</code>, rather than staying in
+     * the list until the next restart loses it.
+     *
+     * @throws CompletionException if the change couldn't be recorded
+     */
+    private void awaitDurability(CompletableFuture<Void> durable, Runnable undo) {
+        if (persistenceProperties.getMode() == DurabilityMode.SYNC) {
+            try {
+                durable.join();
+            } catch (CompletionException e) {
+                undo.run();
+                throw e;
+            }
+        }
+        requestSnapshotIfJournalFull();
+    }
+
+    /**
+     * Helper method to take back additions which couldn't be recorded in the journal,
+     * skipping items which have been removed in the meantime.
+     */
+    private void undoAdditions(List<? extends Consumable> items) {
+        writeLock.lock();
+        try {
+            List<UUID> itemIds = new ArrayList<>(items.size());
+            for (Consumable item : items) {
+                itemIds.add(item.getItemId());
+            }
+            List<Consumable> addedItems = itemIdIndex.findAll(fridge, itemIds);
+            if (addedItems.isEmpty()) {
+                return;
+            }
+            fridge = fridge.minusItems(addedItems);
+            for (Consumable item : addedItems) {
+                itemIdIndex.remove(item.getItemId());
+                if (changeListener != null) {
+                    changeListener.itemRemoved(item);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Helper method to take back removals which couldn't be recorded in the journal,
+     * skipping items which are back in the list already.
+     */
+    private void undoRemovals(List<Consumable> items) {
+        writeLock.lock();
+        try {
+            List<Consumable> removedItems = new ArrayList<>(items.size());
+            for (Consumable item : items) {
+                if (itemIdIndex.find(fridge, item.getItemId()) == null) {
+                    removedItems.add(item);
+                }
+            }
+            if (removedItems.isEmpty()) {
+                return;
+            }
+            fridge = fridge.plusAll(removedItems);
+            for (Consumable item : removedItems) {
+                itemIdIndex.add(item);
+                if (changeListener != null) {
+                    changeListener.itemAdded(item);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Helper method to refuse a change once the journal has failed, since it could never be saved,
+     * while holding the write lock.
+     *
+     * @throws IllegalStateException if the journal has failed
+     */
+    private void checkJournal() {
+        if (journal.hasFailed()) {
+            throw new IllegalStateException("The journal has failed, changes can't be saved");
+        }
+    }
+
+    /**
+     * Helper method to take a snapshot in the background once the current journal segment has grown
+     * past its configured size threshold, so that replaying it on startup stays short.
+     */
+    private void requestSnapshotIfJournalFull() {
+        if (journal.size() >= persistenceProperties.getJournalSizeThreshold().toBytes()
+                && snapshotRequested.compareAndSet(false, true)) {
+            snapshotExecutor.execute(this::writeToFileInBackground);
+        }
+    }
+
+    /**
+     * Helper method to take a snapshot on the snapshot thread, where an uncaught exception
+     * would otherwise silently cancel every later periodic snapshot.
+     */
+    private void writeToFileInBackground() {
+        try {
+            writeToFile();
+        } catch (RuntimeException e) {
+            System.out.println("Unable to take a snapshot of the consumable data: " + e);
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.control.persistence.DurabilityMode;
+import expiryTracker.webappserver.control.persistence.LoadProgress;
+import expiryTracker.webappserver.control.persistence.PersistenceStats;
+import expiryTracker.webappserver.control.persistence.RecoveryStats;
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A <code>ConsumableStore</code> keeping its items in an embedded H2 database on disk, run inside the server.
+ * <p>
+ * Items are stored in the table <code>consumable</code>, one row per item, indexed by <code>item_id</code> and by
+ * expiry day, so that listing the items in natural order and finding the items expiring on given days are answered
+ * from the index rather than by reading every item.
+ * Items of the same expiry day are ordered by <code>item_id</code>, the same way as <code>Consumable.compareTo()</code>.
+ * <p>
+ * Every change is committed right away. In the <code>sync</code> mode the database writes each commit to disk before
+ * it returns, while the <code>async</code> mode leaves writing commits to the database's own background writer.
+ * Changes are made one at a time, so that the <code>StoreChangeListener</code> is told about them in the order they
+ * are committed in.
+ * A batch of items added or removed at once is committed as a single transaction.
+ */
+public class H2ConsumableStore implements ConsumableStore {
+    private static final String FOOD_TYPE = "F";
+    private static final String DRINK_TYPE = "D";
+    private static final String SELECT_ITEMS = "SELECT item_id, item_type, name, notes, price, amount, expiry_date "
+            + "FROM consumable ";
+    private static final String ORDER_BY_EXPIRY = "ORDER BY expiry_day, item_id";
+    private static final String INSERT_ITEM = "INSERT INTO consumable "
+            + "(item_id, item_type, name, notes, price, amount, expiry_date, expiry_day) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcConnectionPool connectionPool;
+    private final DurabilityMode mode;
+    private final LoadProgress loadProgress = new LoadProgress();
+    private final RecoveryStats recoveryStats;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private StoreChangeListener changeListener;
+
+    /**
+     * Constructs an <code>H2ConsumableStore</code> opening (or creating) the database at the passed in URL
+     * along with its table and indexes.
+     *
+     * @param databaseUrl a <code>String</code> representing the JDBC URL of the database
+     * @param mode        the <code>DurabilityMode</code> changes are committed with
+     */
+    public H2ConsumableStore(String databaseUrl, DurabilityMode mode) {
+        this.mode = mode;
+        long openStartTime = System.nanoTime();
+        loadProgress.startPhase(LoadProgress.Phase.LOADING_SNAPSHOT, databaseUrl, 0);
+
+        // WRITE_DELAY=0 writes every commit to disk before it returns instead of up to half a second later
+        String url = mode == DurabilityMode.SYNC ? databaseUrl + ";WRITE_DELAY=0" : databaseUrl;
+        connectionPool = JdbcConnectionPool.create(url, "sa", "");
+        // enough connections for every core to serve a request at once
+        connectionPool.setMaxConnections(Math.max(connectionPool.getMaxConnections(),
+                2 * Runtime.getRuntime().availableProcessors()));
+
+        int itemCount;
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS consumable ("
+                    + "item_id UUID PRIMARY KEY, "
+                    + "item_type CHAR(1) NOT NULL, "
+                    + "name VARCHAR, "
+                    + "notes VARCHAR, "
+                    + "price DOUBLE NOT NULL, "
+                    + "amount DOUBLE NOT NULL, "
+                    + "expiry_date TIMESTAMP NOT NULL, "
+                    + "expiry_day BIGINT NOT NULL)");
+            statement.execute("CREATE INDEX IF NOT EXISTS consumable_expiry_day_item_id "
+                    + "ON consumable (expiry_day, item_id)");
+
+            try (ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM consumable")) {
+                resultSet.next();
+                itemCount = resultSet.getInt(1);
+            }
+        } catch (SQLException e) {
+            connectionPool.dispose();
+            throw new IllegalStateException("Unable to open database: " + databaseUrl, e);
+        }
+
+        long openMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openStartTime);
+        recoveryStats = new RecoveryStats(0, itemCount, 0, openMillis, 0, 0, 0, openMillis);
+        loadProgress.setItemsLoaded(itemCount);
+        loadProgress.finish(LoadProgress.Phase.READY);
+    }
+
+    @Override
+    public List<Consumable> findAll() {
+        return query(SELECT_ITEMS + ORDER_BY_EXPIRY);
+    }
+
+    /**
+     * Gets the stored items expiring between the passed in days, both included, through the index on expiry day.
+     *
+     * @param firstDay the first expiry day to include, <code>null</code> for no lower bound
+     * @param lastDay  the last expiry day to include, <code>null</code> for no upper bound
+     * @return a <code>List<Consumable></code> of the matching items in natural order
+     */
+    @Override
+    public List<Consumable> findByExpiryDateBetween(LocalDate firstDay, LocalDate lastDay) {
+        long firstEpochDay = firstDay != null ? firstDay.toEpochDay() : Long.MIN_VALUE;
+        long lastEpochDay = lastDay != null ? lastDay.toEpochDay() : Long.MAX_VALUE;
+        return query(SELECT_ITEMS + "WHERE expiry_day BETWEEN ? AND ? " + ORDER_BY_EXPIRY,
+                firstEpochDay, lastEpochDay);
+    }
+
+    @Override
+    public Consumable findById(UUID itemId) {
+        List<Consumable> items = query(SELECT_ITEMS + "WHERE item_id = ?", itemId);
+        return items.isEmpty() ? null : items.get(0);
+    }
+
+    @Override
+    public void add(Consumable item) {
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_ITEM)) {
+            setItemParameters(statement, item);
+
+            writeLock.lock();
+            try {
+                statement.executeUpdate();
+                if (changeListener != null) {
+                    changeListener.itemAdded(item);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to add item: " + item.getItemId(), e);
+        }
+    }
+
+    /**
+     * Inserts a batch of items with a single batched statement, committed as one transaction.
+     *
+     * @param items a <code>List<Consumable></code> of Food and Drink items in any order
+     */
+    @Override
+    public void addAll(List<? extends Consumable> items) {
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(INSERT_ITEM)) {
+            for (Consumable item : items) {
+                setItemParameters(statement, item);
+                statement.addBatch();
+            }
+
+            writeLock.lock();
+            try {
+                connection.setAutoCommit(false);
+                try {
+                    statement.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+                if (changeListener != null) {
+                    for (Consumable item : items) {
+                        changeListener.itemAdded(item);
+                    }
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to add " + items.size() + " items", e);
+        }
+    }
+
+    @Override
+    public void remove(Consumable item) {
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "DELETE FROM consumable WHERE item_id = ?")) {
+            statement.setObject(1, item.getItemId());
+
+            writeLock.lock();
+            try {
+                if (statement.executeUpdate() > 0 && changeListener != null) {
+                    changeListener.itemRemoved(item);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to remove item: " + item.getItemId(), e);
+        }
+    }
+
+    /**
+     * Selects and deletes the items with the passed in ids, committed as one transaction.
+     *
+     * @param itemIds the <code>UUID</code>s of the items to remove, skipping those of items which aren't stored
+     * @return a <code>List<Consumable></code> of the items removed, in natural order
+     */
+    @Override
+    public List<Consumable> removeAll(Collection<UUID> itemIds) {
+        return removeWhere("item_id = ANY(?)", (Object) itemIds.toArray(new UUID[0]));
+    }
+
+    /**
+     * Selects and deletes the items expiring before the passed in day through the index on expiry day,
+     * committed as one transaction.
+     *
+     * @param day the first expiry day to keep
+     * @return a <code>List<Consumable></code> of the items removed, in natural order
+     */
+    @Override
+    public List<Consumable> removeExpiringBefore(LocalDate day) {
+        return removeWhere("expiry_day < ?", day.toEpochDay());
+    }
+
+    @Override
+    public void setChangeListener(StoreChangeListener listener) {
+        writeLock.lock();
+        try {
+            changeListener = listener;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Forces every committed change to disk, including those the database hasn't written yet in the
+     * <code>async</code> mode.
+     */
+    @Override
+    public void flush() {
+        try (Connection connection = connectionPool.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CHECKPOINT SYNC");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to flush database", e);
+        }
+    }
+
+    @Override
+    public LoadProgress getLoadProgress() {
+        return loadProgress;
+    }
+
+    @Override
+    public RecoveryStats getRecoveryStats() {
+        return recoveryStats;
+    }
+
+    @Override
+    public PersistenceStats getPersistenceStats() {
+        return PersistenceStats.withoutJournal(mode);
+    }
+
+    /**
+     * Closes every connection to the database, which closes the database itself.
+     */
+    @Override
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    /**
+     * Helper method to set the parameters of <code>INSERT_ITEM</code> to the fields of the passed in item.
+     */
+    private static void setItemParameters(PreparedStatement statement, Consumable item) throws SQLException {
+        boolean isDrink = item instanceof Drink;
+        statement.setObject(1, item.getItemId());
+        statement.setString(2, isDrink ? DRINK_TYPE : FOOD_TYPE);
+        statement.setString(3, item.getName());
+        statement.setString(4, item.getNotes());
+        statement.setDouble(5, item.getPrice());
+        statement.setDouble(6, isDrink ? ((Drink) item).getVolume() : ((Food) item).getWeight());
+        // bound as a LocalDateTime rather than a Timestamp, which would go through the default time zone
+        statement.setObject(7, item.getExpiryDate());
+        statement.setLong(8, item.getExpiryDate().toLocalDate().toEpochDay());
+    }
+
+    /**
+     * Helper method to select the items matching the passed in condition and delete them in one transaction,
+     * telling the <code>StoreChangeListener</code> about every item deleted.
+     */
+    private List<Consumable> removeWhere(String condition, Object... parameters) {
+        try (Connection connection = connectionPool.getConnection();
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM consumable WHERE " + condition)) {
+            setParameters(delete, parameters);
+
+            writeLock.lock();
+            try {
+                List<Consumable> removedItems;
+                connection.setAutoCommit(false);
+                try {
+                    removedItems = query(connection, SELECT_ITEMS + "WHERE " + condition + " " + ORDER_BY_EXPIRY,
+                            parameters);
+                    delete.executeUpdate();
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+                if (changeListener != null) {
+                    for (Consumable item : removedItems) {
+                        changeListener.itemRemoved(item);
+                    }
+                }
+                return removedItems;
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to remove items", e);
+        }
+    }
+
+    /**
+     * Helper method to run a query selecting items and build a <code>Food</code> or <code>Drink</code> object
+     * from every row it returns.
+     */
+    private List<Consumable> query(String sql, Object... parameters) {
+        try (Connection connection = connectionPool.getConnection()) {
+            return query(connection, sql, parameters);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Unable to query items", e);
+        }
+    }
+
+    private static List<Consumable> query(Connection connection, String sql, Object... parameters)
+            throws SQLException {
+        List<Consumable> items = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            setParameters(statement, parameters);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    items.add(toConsumable(resultSet));
+                }
+            }
+        }
+        return items;
+    }
+
+    private static void setParameters(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int index = 0; index < parameters.length; index++) {
+            statement.setObject(index + 1, parameters[index]);
+        }
+    }
+
+    private static Consumable toConsumable(ResultSet resultSet) throws SQLException {
+        String name = resultSet.getString("name");
+        String notes = resultSet.getString("notes");
+        double price = resultSet.getDouble("price");
+        double amount = resultSet.getDouble("amount");
+        LocalDateTime expiryDate = resultSet.getObject("expiry_date", LocalDateTime.class);
+
+        Consumable item = DRINK_TYPE.equals(resultSet.getString("item_type"))
+                ? new Drink(name, notes, price, amount, expiryDate)
+                : new Food(name, notes, price, amount, expiryDate);
+        item.setItemId(resultSet.getObject("item_id", UUID.class));
+        return item;
+    }
+}
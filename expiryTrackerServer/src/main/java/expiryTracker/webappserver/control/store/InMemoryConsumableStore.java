@@ -0,0 +1,125 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.control.persistence.DurabilityMode;
+import expiryTracker.webappserver.control.persistence.ImmutableConsumableList;
+import expiryTracker.webappserver.control.persistence.LoadProgress;
+import expiryTracker.webappserver.control.persistence.PersistenceStats;
+import expiryTracker.webappserver.control.persistence.RecoveryStats;
+import expiryTracker.webappserver.model.Consumable;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A <code>ConsumableStore</code> which only keeps its items in memory, starting out empty on every run.
+ * Meant for benchmarks and tests.
+ */
+public class InMemoryConsumableStore implements ConsumableStore {
+    private final LoadProgress loadProgress = new LoadProgress();
+    private final ItemIdIndex itemIdIndex = new ItemIdIndex();
+    private volatile ImmutableConsumableList items = ImmutableConsumableList.empty();
+    private StoreChangeListener changeListener;
+
+    /**
+     * Constructs an empty <code>InMemoryConsumableStore</code>.
+     */
+    public InMemoryConsumableStore() {
+        loadProgress.finish(LoadProgress.Phase.READY);
+    }
+
+    @Override
+    public List<Consumable> findAll() {
+        return items;
+    }
+
+    @Override
+    public List<Consumable> findByExpiryDateBetween(LocalDate firstDay, LocalDate lastDay) {
+        return items.expiringBetween(firstDay, lastDay);
+    }
+
+    @Override
+    public Consumable findById(UUID itemId) {
+        return itemIdIndex.find(items, itemId);
+    }
+
+    @Override
+    public synchronized void add(Consumable item) {
+        items = items.plus(item);
+        itemIdIndex.add(item);
+        if (changeListener != null) {
+            changeListener.itemAdded(item);
+        }
+    }
+
+    @Override
+    public synchronized void addAll(List<? extends Consumable> batch) {
+        items = items.plusAll(batch);
+        for (Consumable item : batch) {
+            itemIdIndex.add(item);
+            if (changeListener != null) {
+                changeListener.itemAdded(item);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void remove(Consumable item) {
+        ImmutableConsumableList remainingItems = items.minusItemId(item.getItemId(),
+                item.getExpiryDate().toLocalDate().toEpochDay());
+        if (remainingItems == items) {
+            return;
+        }
+
+        items = remainingItems;
+        itemIdIndex.remove(item.getItemId());
+        if (changeListener != null) {
+            changeListener.itemRemoved(item);
+        }
+    }
+
+    @Override
+    public synchronized List<Consumable> removeAll(Collection<UUID> itemIds) {
+        return removeItems(itemIdIndex.findAll(items, itemIds));
+    }
+
+    @Override
+    public synchronized List<Consumable> removeExpiringBefore(LocalDate day) {
+        return removeItems(items.expiringBetween(null, day.minusDays(1)));
+    }
+
+    @Override
+    public synchronized void setChangeListener(StoreChangeListener listener) {
+        changeListener = listener;
+    }
+
+    /**
+     * Helper method to remove the passed in stored items from the list in one go.
+     */
+    private List<Consumable> removeItems(List<Consumable> removedItems) {
+        items = items.minusItems(removedItems);
+        for (Consumable item : removedItems) {
+            itemIdIndex.remove(item.getItemId());
+            if (changeListener != null) {
+                changeListener.itemRemoved(item);
+            }
+        }
+        return removedItems;
+    }
+
+    @Override
+    public LoadProgress getLoadProgress() {
+        return loadProgress;
+    }
+
+    @Override
+    public RecoveryStats getRecoveryStats() {
+        return new RecoveryStats(0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public PersistenceStats getPersistenceStats() {
+        return PersistenceStats.withoutJournal(DurabilityMode.MEMORY);
+    }
+}
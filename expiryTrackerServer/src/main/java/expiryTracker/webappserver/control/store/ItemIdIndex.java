@@ -0,0 +1,79 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.control.persistence.ImmutableConsumableList;
+import expiryTracker.webappserver.model.Consumable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A hash index from the id of every item in an <code>ImmutableConsumableList</code> to the day it expires on,
+ * shared by the stores holding their items in one.
+ * <p>
+ * The list is ordered by expiry day and id, so knowing an item's day finds it in O(log n) instead of checking every
+ * item. Only ids and days are kept, so items loaded from a binary snapshot stay undecoded until they are looked up.
+ * <p>
+ * Changes to the index are expected to be made by one thread at a time, along with the changes to the list,
+ * while lookups may happen from any thread.
+ */
+final class ItemIdIndex {
+    private final ConcurrentHashMap<UUID, Long> expiryEpochDays = new ConcurrentHashMap<>();
+
+    /**
+     * Replaces the contents of the index with the items of the passed in list.
+     *
+     * @param items the <code>ImmutableConsumableList</code> to index
+     */
+    void rebuild(ImmutableConsumableList items) {
+        expiryEpochDays.clear();
+        items.forEachItemIdAndEpochDay(expiryEpochDays::put);
+    }
+
+    void add(Consumable item) {
+        expiryEpochDays.put(item.getItemId(), item.getExpiryDate().toLocalDate().toEpochDay());
+    }
+
+    void remove(UUID itemId) {
+        expiryEpochDays.remove(itemId);
+    }
+
+    /**
+     * Finds the item with the passed in id in the passed in list.
+     *
+     * @param items  the indexed <code>ImmutableConsumableList</code>, or a version of it
+     * @param itemId the <code>UUID</code> of the item
+     * @return the <code>Consumable</code> object with the id, or <code>null</code> if the list doesn't contain it
+     */
+    Consumable find(ImmutableConsumableList items, UUID itemId) {
+        Long expiryEpochDay = expiryEpochDays.get(itemId);
+        if (expiryEpochDay == null) {
+            return null;
+        }
+        int index = items.indexOf(itemId, expiryEpochDay);
+        return index >= 0 ? items.get(index) : null;
+    }
+
+    /**
+     * Finds the items with the passed in ids in the passed in list, skipping ids of items it doesn't contain.
+     *
+     * @param items   the indexed <code>ImmutableConsumableList</code>, or a version of it
+     * @param itemIds the <code>UUID</code>s of the items, possibly repeated
+     * @return a new <code>List<Consumable></code> of the items found, each once, in natural order
+     */
+    List<Consumable> findAll(ImmutableConsumableList items, Collection<UUID> itemIds) {
+        List<Consumable> foundItems = new ArrayList<>();
+        for (UUID itemId : new HashSet<>(itemIds)) {
+            Consumable item = find(items, itemId);
+            if (item != null) {
+                foundItems.add(item);
+            }
+        }
+        Collections.sort(foundItems);
+        return foundItems;
+    }
+}
@@ -0,0 +1,28 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.model.Consumable;
+
+/**
+ * Listens to the changes made to the items of a <code>ConsumableStore</code>.
+ * <p>
+ * Called by the store on the thread making each change while it makes it, one change at a time and in the order the
+ * changes become visible to readers, so that a listener numbering the changes numbers them in the same order as the
+ * lists handed out see them. Calls therefore hold up the store's writers, and must be quick and must not call back
+ * into the store.
+ */
+public interface StoreChangeListener {
+
+    /**
+     * Called when an item has been added.
+     *
+     * @param item the added <code>Consumable</code> object
+     */
+    void itemAdded(Consumable item);
+
+    /**
+     * Called when an item has been removed.
+     *
+     * @param item the removed <code>Consumable</code> object
+     */
+    void itemRemoved(Consumable item);
+}
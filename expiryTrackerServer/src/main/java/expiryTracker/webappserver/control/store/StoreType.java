@@ -0,0 +1,21 @@
+package expiryTracker.webappserver.control.store;
+
+/**
+ * The <code>ConsumableStore</code> implementations the server can be configured with.
+ */
+public enum StoreType {
+    /**
+     * <code>FileConsumableStore</code>: the item list file, snapshots and a write-ahead journal, held in memory.
+     */
+    FILE,
+
+    /**
+     * <code>InMemoryConsumableStore</code>: held in memory only, never saved.
+     */
+    MEMORY,
+
+    /**
+     * <code>H2ConsumableStore</code>: an embedded H2 database on disk, queried through its indexes.
+     */
+    H2
+}
@@ -0,0 +1,153 @@
+package expiryTracker.webappserver.control.utils;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Converts <code>Food</code> and <code>Drink</code> objects to and from JSON objects field by field, straight from
+ * and to the stream, without the <code>JsonElement</code> tree and reflection <code>RuntimeTypeAdapterFactory</code>
+ * goes through for every item.
+ * <p>
+ * The subclass is given by the field <code>type</code>, written first as the compact tag <code>food</code> or
+ * <code>drink</code>. The fields of an item are read into locals in whatever order they come, so items written by
+ * older versions, tagged with the class names of the server or the client and with <code>type</code> last, are read
+ * as well.
+ */
+public class ConsumableTypeAdapter extends TypeAdapter<Consumable> {
+    public static final String FOOD_TAG = "food";
+    public static final String DRINK_TAG = "drink";
+
+    /**
+     * Creates the adapter for <code>Consumable</code>, <code>Food</code> and <code>Drink</code>, for registering with
+     * <code>GsonBuilder.registerTypeAdapterFactory()</code>.
+     */
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+            Class<? super T> rawType = typeToken.getRawType();
+            if (rawType == Consumable.class) {
+                return (TypeAdapter<T>) new ConsumableTypeAdapter(null).nullSafe();
+            }
+            if (rawType == Food.class || rawType == Drink.class) {
+                return (TypeAdapter<T>) new ConsumableTypeAdapter((Class<? extends Consumable>) rawType).nullSafe();
+            }
+            return null;
+        }
+    };
+
+    // the subclass to read items as, or null to go by their tag
+    private final Class<? extends Consumable> readType;
+
+    private ConsumableTypeAdapter(Class<? extends Consumable> readType) {
+        this.readType = readType;
+    }
+
+    @Override
+    public void write(JsonWriter jsonWriter, Consumable item) throws IOException {
+        boolean isDrink = item instanceof Drink;
+        jsonWriter.beginObject();
+        jsonWriter.name("type").value(isDrink ? DRINK_TAG : FOOD_TAG);
+        if (item.getItemId() != null) {
+            jsonWriter.name("itemId").value(item.getItemId().toString());
+        }
+        jsonWriter.name("name").value(item.getName());
+        jsonWriter.name("notes").value(item.getNotes());
+        jsonWriter.name("price").value(item.getPrice());
+        if (isDrink) {
+            jsonWriter.name("volume").value(((Drink) item).getVolume());
+        } else {
+            jsonWriter.name("weight").value(((Food) item).getWeight());
+        }
+        if (item.getExpiryDate() != null) {
+            jsonWriter.name("expiryDate").value(item.getExpiryDate().toString());
+        }
+        jsonWriter.endObject();
+    }
+
+    @Override
+    public Consumable read(JsonReader jsonReader) throws IOException {
+        Class<? extends Consumable> type = readType;
+        UUID itemId = null;
+        String name = null;
+        String notes = null;
+        double price = 0;
+        double weightOrVolume = 0;
+        LocalDateTime expiryDate = null;
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String fieldName = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                continue;
+            }
+            switch (fieldName) {
+                case "type":
+                    String tag = jsonReader.nextString();
+                    if (readType == null) {
+                        type = typeOf(tag);
+                    }
+                    break;
+                case "itemId":
+                    itemId = UUID.fromString(jsonReader.nextString());
+                    break;
+                case "name":
+                    name = jsonReader.nextString();
+                    break;
+                case "notes":
+                    notes = jsonReader.nextString();
+                    break;
+                case "price":
+                    price = jsonReader.nextDouble();
+                    break;
+                case "weight":
+                case "volume":
+                    weightOrVolume = jsonReader.nextDouble();
+                    break;
+                case "expiryDate":
+                    expiryDate = LocalDateTime.parse(jsonReader.nextString());
+                    break;
+                default:
+                    jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+
+        if (type == null) {
+            throw new JsonParseException("Item without a type at " + jsonReader.getPath());
+        }
+        Consumable item = type == Drink.class
+                ? new Drink(name, notes, price, weightOrVolume, expiryDate)
+                : new Food(name, notes, price, weightOrVolume, expiryDate);
+        item.setItemId(itemId);
+        return item;
+    }
+
+    /**
+     * Helper method to get the subclass named by the passed in type tag, which is either a compact tag or, for items
+     * written by older versions, the name of the class on the server or the client.
+     */
+    private static Class<? extends Consumable> typeOf(String tag) {
+        if (tag.equals(FOOD_TAG) || tag.endsWith(".Food")) {
+            return Food.class;
+        }
+        if (tag.equals(DRINK_TAG) || tag.endsWith(".Drink")) {
+            return Drink.class;
+        }
+        throw new JsonParseException("Unknown item type: " + tag);
+    }
+}
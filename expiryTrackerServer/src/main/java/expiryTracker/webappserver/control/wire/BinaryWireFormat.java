@@ -0,0 +1,189 @@
+package expiryTracker.webappserver.control.wire;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Writes and reads items in the binary format sent to clients asking for
+ * <code>application/vnd.expirytracker.binary</code>, which is smaller and much quicker to write and read than JSON.
+ * <p>
+ * Every message starts with a version byte, followed by a list, a single item or a change. All numbers are big-endian.
+ * <pre>
+ * list:    int item count, one record per item
+ * item:    one record
+ * change:  long version of the list, one record of the item added or removed
+ * record:  byte type ('F' or 'D'), long itemId most significant bits, long itemId least significant bits,
+ *          int expiry date epoch day, long expiry date nano of day, double price, double weight or volume,
+ *          string name, string notes
+ * string:  int length in bytes, or -1 for <code>null</code>, followed by the UTF-8 encoded string
+ * </pre>
+ * Records are self-contained, so the bytes of an item can be encoded once and copied into every message it is sent in.
+ */
+public final class BinaryWireFormat {
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.expirytracker.binary";
+    private static final byte VERSION = 1;
+    private static final byte FOOD_TYPE = 'F';
+    private static final byte DRINK_TYPE = 'D';
+    private static final int NULL_STRING_LENGTH = -1;
+
+    private BinaryWireFormat() {
+    }
+
+    /**
+     * Encodes the passed in item as a record.
+     *
+     * @param item a <code>Food</code> or <code>Drink</code> object to encode
+     * @return a <code>byte[]</code> holding the record of the item
+     */
+    public static byte[] encode(Consumable item) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream(64);
+        DataOutputStream dataOutputStream = new DataOutputStream(record);
+        boolean isDrink = item instanceof Drink;
+        try {
+            dataOutputStream.writeByte(isDrink ? DRINK_TYPE : FOOD_TYPE);
+            dataOutputStream.writeLong(item.getItemId().getMostSignificantBits());
+            dataOutputStream.writeLong(item.getItemId().getLeastSignificantBits());
+            dataOutputStream.writeInt((int) item.getExpiryDate().toLocalDate().toEpochDay());
+            dataOutputStream.writeLong(item.getExpiryDate().toLocalTime().toNanoOfDay());
+            dataOutputStream.writeDouble(item.getPrice());
+            dataOutputStream.writeDouble(isDrink ? ((Drink) item).getVolume() : ((Food) item).getWeight());
+            writeString(dataOutputStream, item.getName());
+            writeString(dataOutputStream, item.getNotes());
+        } catch (IOException e) {
+            // a ByteArrayOutputStream doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return record.toByteArray();
+    }
+
+    /**
+     * Writes the start of a list of the passed in number of items, to be followed by their records.
+     *
+     * @param itemCount    an <code>int</code> representing the number of records to follow
+     * @param outputStream the <code>OutputStream</code> to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeListHeader(int itemCount, OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeByte(VERSION);
+        dataOutputStream.writeInt(itemCount);
+    }
+
+    /**
+     * Writes the start of a single item, to be followed by its record.
+     *
+     * @param outputStream the <code>OutputStream</code> to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeItemHeader(OutputStream outputStream) throws IOException {
+        outputStream.write(VERSION);
+    }
+
+    /**
+     * Writes the start of a change making the passed in version of the list, to be followed by the record of the item.
+     *
+     * @param version      a <code>long</code> representing the version of the list the change made
+     * @param outputStream the <code>OutputStream</code> to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeChangeHeader(long version, OutputStream outputStream) throws IOException {
+        DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+        dataOutputStream.writeByte(VERSION);
+        dataOutputStream.writeLong(version);
+    }
+
+    /**
+     * Reads a list of items.
+     *
+     * @param inputStream the <code>InputStream</code> to read the list from
+     * @return a new <code>List<Consumable></code> of the items in the order they were written
+     * @throws IOException if the list can't be read or is of an unsupported version
+     */
+    public static List<Consumable> readList(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        readVersion(dataInputStream);
+        int itemCount = dataInputStream.readInt();
+        List<Consumable> items = new ArrayList<>(itemCount);
+        for (int index = 0; index < itemCount; index++) {
+            items.add(readRecord(dataInputStream));
+        }
+        return items;
+    }
+
+    /**
+     * Reads a single item.
+     *
+     * @param inputStream the <code>InputStream</code> to read the item from
+     * @return a new <code>Food</code> or <code>Drink</code> object
+     * @throws IOException if the item can't be read or is of an unsupported version
+     */
+    public static Consumable readItem(InputStream inputStream) throws IOException {
+        DataInputStream dataInputStream = new DataInputStream(inputStream);
+        readVersion(dataInputStream);
+        return readRecord(dataInputStream);
+    }
+
+    private static Consumable readRecord(DataInputStream dataInputStream) throws IOException {
+        byte type = dataInputStream.readByte();
+        UUID itemId = new UUID(dataInputStream.readLong(), dataInputStream.readLong());
+        LocalDateTime expiryDate = LocalDateTime.of(LocalDate.ofEpochDay(dataInputStream.readInt()),
+                LocalTime.ofNanoOfDay(dataInputStream.readLong()));
+        double price = dataInputStream.readDouble();
+        double weightOrVolume = dataInputStream.readDouble();
+        String name = readString(dataInputStream);
+        String notes = readString(dataInputStream);
+
+        Consumable item;
+        if (type == DRINK_TYPE) {
+            item = new Drink(name, notes, price, weightOrVolume, expiryDate);
+        } else if (type == FOOD_TYPE) {
+            item = new Food(name, notes, price, weightOrVolume, expiryDate);
+        } else {
+            throw new IOException("Unknown item type: " + type);
+        }
+        item.setItemId(itemId);
+        return item;
+    }
+
+    private static void readVersion(DataInputStream dataInputStream) throws IOException {
+        byte version = dataInputStream.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary format version " + version);
+        }
+    }
+
+    private static void writeString(DataOutputStream dataOutputStream, String value) throws IOException {
+        if (value == null) {
+            dataOutputStream.writeInt(NULL_STRING_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        dataOutputStream.writeInt(bytes.length);
+        dataOutputStream.write(bytes);
+    }
+
+    private static String readString(DataInputStream dataInputStream) throws IOException {
+        int length = dataInputStream.readInt();
+        if (length == NULL_STRING_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        dataInputStream.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
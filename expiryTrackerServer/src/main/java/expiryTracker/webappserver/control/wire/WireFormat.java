@@ -0,0 +1,48 @@
+package expiryTracker.webappserver.control.wire;
+
+/**
+ * The formats items are sent to clients in, chosen by the <code>Accept</code> header of the request.
+ */
+public enum WireFormat {
+    /**
+     * A JSON Array object, or a JSON object for a single item or change. The default.
+     */
+    JSON("application/json", ""),
+
+    /**
+     * Every item of a list as a JSON object on a line of its own. Only sent for lists.
+     */
+    NDJSON("application/x-ndjson", "-ndjson"),
+
+    /**
+     * The binary format of <code>BinaryWireFormat</code>.
+     */
+    BINARY(BinaryWireFormat.MEDIA_TYPE_VALUE, "-binary");
+
+    private final String mediaType;
+    private final String eTagSuffix;
+
+    WireFormat(String mediaType, String eTagSuffix) {
+        this.mediaType = mediaType;
+        this.eTagSuffix = eTagSuffix;
+    }
+
+    /**
+     * Gets the media type of the format, as sent in the <code>Content-Type</code> header.
+     *
+     * @return a <code>String</code> representing the media type
+     */
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Gets what is appended to the <code>ETag</code> of a list in this format, so that every format of the same
+     * version of a list has its own tag.
+     *
+     * @return a <code>String</code> to append to the tag, empty for the default format
+     */
+    public String getETagSuffix() {
+        return eTagSuffix;
+    }
+}
@@ -1,16 +1,44 @@
 package expiryTracker.webappserver.controllers;
 
 import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.control.changes.ChangeEvent;
+import expiryTracker.webappserver.control.changes.ChangeFeed;
+import expiryTracker.webappserver.control.importer.ImportFormat;
+import expiryTracker.webappserver.control.importer.ImportReport;
+import expiryTracker.webappserver.control.importer.ItemImporter;
+import expiryTracker.webappserver.control.persistence.LoadProgress;
+import expiryTracker.webappserver.control.wire.WireFormat;
 import expiryTracker.webappserver.model.Consumable;
 import expiryTracker.webappserver.model.Drink;
 import expiryTracker.webappserver.model.Food;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 // https://www.youtube.com/watch?v=rXBsnNCH59o&ab_channel=BrianFraser
@@ -20,7 +48,22 @@ import java.util.UUID;
  */
 @RestController
 public class ConsumableController {
-    private final ConsumableManager consumableManager = ConsumableManager.getInstance();
+    // bounds the memory and the journal record taken by a single batch
+    private static final int MAX_BATCH_SIZE = 10_000;
+    // how long a /changes stream is kept open, after which the client reconnects from the last event it got
+    private static final long CHANGE_STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private final ConsumableManager consumableManager;
+
+    /**
+     * Constructs a <code>ConsumableController</code> serving the items of the passed in <code>ConsumableManager</code>
+     *
+     * @param consumableManager the <code>ConsumableManager</code> Singleton, created by Spring with the
+     *                          settings from <code>application.properties</code>
+     */
+    public ConsumableController(ConsumableManager consumableManager) {
+        this.consumableManager = consumableManager;
+    }
 
     /**
      * A GET request endpoint to determine if the server is online.
@@ -38,144 +81,624 @@ public class ConsumableController {
     }
 
     /**
-     * A GET request endpoint to signal the server to save the list of items stored in the control to a file.
+     * A GET request endpoint to determine if the server has finished loading its list of items.
+     * <p>
+     * Answers with status 503 while the items are still being loaded, reporting how far loading has come,
+     * and with status 200 once they are loaded.
+     * </p>
+     *
+     * @return a <code>ResponseEntity<String></code> representing the loading progress as a JSON object
+     */
+    @GetMapping("/ready")
+    public ResponseEntity<String> readinessCheck() {
+        LoadProgress loadProgress = consumableManager.getLoadProgress();
+        return ResponseEntity
+                .status(loadProgress.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(consumableManager.getCustomGsonObj().toJson(loadProgress));
+    }
+
+    /**
+     * A GET request endpoint reporting how the server recovered its list of items on startup
+     * and how long each step of the recovery took.
+     *
+     * @return a <code>String</code> representing the recovery timings as a JSON object
+     */
+    @GetMapping("/recoveryStats")
+    @ResponseStatus(HttpStatus.OK)
+    public String getRecoveryStats() {
+        return consumableManager.getCustomGsonObj().toJson(consumableManager.getRecoveryStats());
+    }
+
+    /**
+     * A GET request endpoint reporting the depth of the queue of changes waiting to be persisted
+     * and how long flushing them to disk has taken.
+     *
+     * @return a <code>String</code> representing the persistence metrics as a JSON object
+     */
+    @GetMapping("/persistenceStats")
+    @ResponseStatus(HttpStatus.OK)
+    public String getPersistenceStats() {
+        return consumableManager.getCustomGsonObj().toJson(consumableManager.getPersistenceStats());
+    }
+
+    /**
+     * A GET request endpoint reporting how often the views of the list were sent from the cache of views,
+     * how much the cache holds and how long building the views it didn't hold took.
+     *
+     * @return a <code>String</code> representing the view cache metrics as a JSON object
+     */
+    @GetMapping("/viewCacheStats")
+    @ResponseStatus(HttpStatus.OK)
+    public String getViewCacheStats() {
+        return consumableManager.getCustomGsonObj().toJson(consumableManager.getViewCacheStats());
+    }
+
+    /**
+     * A GET request endpoint to signal the server to make sure every change to the list of items is saved,
+     * flushing changes still waiting to be written to disk.
      */
     @GetMapping("/exit")
     @ResponseStatus(HttpStatus.OK)
     public void exitRequest() {
-        consumableManager.writeToFile();
+        consumableManager.flush();
     }
 
     /**
      * A GET request endpoint for the program's list of <code>Consumable</code> items
+     * <p>
+     * Written to the response one item at a time, as a JSON Array object, or as newline delimited JSON when the
+     * request accepts <code>application/x-ndjson</code>.
+     * </p>
+     * <p>
+     * Tagged with an <code>ETag</code> of the version of the list, so that a request with a matching
+     * <code>If-None-Match</code> header is answered with status 304 and no body while the list hasn't changed.
+     * </p>
      *
-     * @return a <code>String</code> representing the program's list of <code>Consumable</code> items
-     * as a JSON Array object.
+     * @param request  the <code>HttpServletRequest</code> asking for the items
+     * @param response the <code>HttpServletResponse</code> the items are written to
+     * @throws IOException if writing the response fails
      */
     @GetMapping("/listAll")
-    @ResponseStatus(HttpStatus.OK)
-    public String getFridge() {
-        return consumableManager.toJSONArray(consumableManager.getFridge());
+    public void getFridge(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeList("All", request, response);
     }
 
     /**
-     * A GET request endpoint for a filtered list of Expired <code>Consumable</code> items
+     * A GET request endpoint for a filtered list of Expired <code>Consumable</code> items,
+     * written to the response the same way as <code>/listAll</code>, with an <code>ETag</code> which also changes
+     * with the day
      *
-     * @return a <code>String</code> representing a filtered list of Expired <code>Consumable</code> items
-     * as a JSON Array object.
+     * @param request  the <code>HttpServletRequest</code> asking for the items
+     * @param response the <code>HttpServletResponse</code> the items are written to
+     * @throws IOException if writing the response fails
      */
     @GetMapping("/listExpired")
-    @ResponseStatus(HttpStatus.OK)
-    public String getExpired() {
-        List<Consumable> filteredList = consumableManager.filterList("Expired");
-        return consumableManager.toJSONArray(filteredList);
+    public void getExpired(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeList("Expired", request, response);
     }
 
     /**
-     * A GET request endpoint for a filtered list of Non-Expired <code>Consumable</code> items
+     * A GET request endpoint for a filtered list of Non-Expired <code>Consumable</code> items,
+     * written to the response the same way as <code>/listAll</code>, with an <code>ETag</code> which also changes
+     * with the day
      *
-     * @return a <code>String</code> representing a filtered list of Non-Expired <code>Consumable</code> items
-     * as a JSON Array object.
+     * @param request  the <code>HttpServletRequest</code> asking for the items
+     * @param response the <code>HttpServletResponse</code> the items are written to
+     * @throws IOException if writing the response fails
      */
     @GetMapping("/listNonExpired")
-    @ResponseStatus(HttpStatus.OK)
-    public String getNonExpired() {
-        List<Consumable> filteredList = consumableManager.filterList("Not Expired");
-        return consumableManager.toJSONArray(filteredList);
+    public void getNonExpired(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeList("Not Expired", request, response);
     }
 
     /**
-     * A GET request endpoint for a filtered list of <code>Consumable</code> items expiring in 7 days
+     * A GET request endpoint for a filtered list of <code>Consumable</code> items expiring in 7 days,
+     * written to the response the same way as <code>/listAll</code>, with an <code>ETag</code> which also changes
+     * with the day
      *
-     * @return a <code>String</code> representing a filtered list of <code>Consumable</code> items
-     * expiring in 7 days as a JSON Array object.
+     * @param request  the <code>HttpServletRequest</code> asking for the items
+     * @param response the <code>HttpServletResponse</code> the items are written to
+     * @throws IOException if writing the response fails
      */
     @GetMapping("/listExpiringIn7Days")
-    @ResponseStatus(HttpStatus.OK)
-    public String getExpiring7Days() {
-        List<Consumable> filteredList = consumableManager.filterList("Expiring in 7 Days");
-        return consumableManager.toJSONArray(filteredList);
+    public void getExpiring7Days(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        writeList("Expiring in 7 Days", request, response);
+    }
+
+    /**
+     * A GET request endpoint streaming the changes made to the program's list of <code>Consumable</code> items
+     * as Server-Sent Events, so that clients can keep their copy of the list up to date without getting it again.
+     * <p>
+     * Every item added or removed is sent as an <code>add</code> or <code>remove</code> event holding the new version
+     * of the list and the item. A client reconnecting with the <code>Last-Event-ID</code> header is sent just the
+     * changes it missed. A new client, or one which missed too many changes, is sent a <code>reset</code> event,
+     * after which it should get the whole list again.
+     * </p>
+     *
+     * @param lastEventId the id of the last event the client got, if it is reconnecting
+     * @return an <code>SseEmitter</code> the events are sent through, kept open until the client goes away or for
+     * 30 minutes, after which the client reconnects with the id of the last event it got
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        // clients that went away in the meantime are found by the keep-alive comments failing to send
+        SseEmitter emitter = new SseEmitter(CHANGE_STREAM_TIMEOUT_MILLIS);
+        AtomicBoolean open = new AtomicBoolean(true);
+        emitter.onCompletion(() -> open.set(false));
+        emitter.onError(throwable -> open.set(false));
+        emitter.onTimeout(() -> {
+            open.set(false);
+            emitter.complete();
+        });
+
+        consumableManager.subscribeToChanges(lastEventId, new ChangeFeed.Subscriber() {
+            @Override
+            public boolean send(ChangeEvent event) {
+                return sendEvent(SseEmitter.event()
+                        .id(event.getId())
+                        .name(event.getType().getEventName())
+                        .data(consumableManager.toJSON(event)));
+            }
+
+            @Override
+            public boolean keepAlive() {
+                return sendEvent(SseEmitter.event().comment("keep-alive"));
+            }
+
+            private boolean sendEvent(SseEmitter.SseEventBuilder event) {
+                if (!open.get()) {
+                    return false;
+                }
+                try {
+                    emitter.send(event);
+                    return true;
+                } catch (IOException | IllegalStateException e) {
+                    open.set(false);
+                    emitter.completeWithError(e);
+                    return false;
+                }
+            }
+        });
+        return emitter;
+    }
+
+    /**
+     * A GET request endpoint for a single item in the program's list of <code>Consumable</code> items,
+     * in the binary format if the request's <code>Accept</code> header asks for it
+     *
+     * @param itemId a <code>String</code> id in the format of a <code>UUID</code> representing
+     *               the id of the object to be returned
+     * @param accept the <code>Accept</code> header of the request
+     * @return a <code>ResponseEntity<byte[]></code> representing the <code>Consumable</code> item as a JSON object,
+     * or status 404 if there is no item with the id
+     */
+    @GetMapping("/item/{uuid}")
+    public ResponseEntity<byte[]> getItem(@PathVariable("uuid") String itemId,
+                                          @RequestHeader(value = "Accept", required = false) String accept) {
+        Consumable item = consumableManager.findConsumableItem(UUID.fromString(itemId));
+        if (item == null) {
+            throw itemNotFound();
+        }
+
+        WireFormat format = negotiateFormat(accept, false);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getMediaType()))
+                .body(consumableManager.encodeItem(item, format));
     }
 
     /**
      * A POST request endpoint for creating a new <code>Food</code> item
      *
-     * @param item a <code>String</code> JSON object representing the passed in data from the POST request
-     * @return a <code>String</code> representing the program's updated list of <code>Consumable</code> items
-     * as a JSON Array object
+     * @param item         a <code>String</code> JSON object representing the passed in data from the POST request
+     * @param prefer       the <code>Prefer</code> header of the request, <code>return=minimal</code> for a delta
+     * @param responseMode the <code>response</code> query parameter, <code>delta</code> for a delta
+     * @param accept       the <code>Accept</code> header of the request, which may ask for the binary format
+     * @return a <code>ResponseEntity<byte[]></code> representing the program's updated list of
+     * <code>Consumable</code> items as a JSON Array object, or only the new item and version as a JSON object,
+     * or status 400 if the item has no name or expiry date
      */
     @PostMapping("/addItem/Food")
-    @ResponseStatus(HttpStatus.CREATED)
-    public String addFoodItem(@RequestBody String item) {
+    public ResponseEntity<byte[]> addFoodItem(@RequestBody String item,
+                                             @RequestHeader(value = "Prefer", required = false) String prefer,
+                                             @RequestParam(value = "response", required = false) String responseMode,
+                                             @RequestHeader(value = "Accept", required = false) String accept) {
         // deserialize the json object
         Type typeConsumable = new TypeToken<Food>() {
         }.getType();
         Food foodItem = consumableManager.getCustomGsonObj().fromJson(item, typeConsumable);
+        if (foodItem == null || foodItem.getName() == null || foodItem.getExpiryDate() == null) {
+            return missingFieldsResponse();
+        }
         foodItem.setItemId(UUID.randomUUID());
 
-        consumableManager.addConsumableItem(foodItem);
-        consumableManager.sortFridge();
-
-        // return updated list as serialized json array string
-        return consumableManager.toJSONArray(consumableManager.getFridge());
+        ChangeEvent change = consumableManager.addConsumableItem(foodItem);
+        return mutationResponse(change, prefer, responseMode, accept);
     }
 
     /**
      * A POST request endpoint for creating a new <code>Drink/code> item
      *
-     * @param item a <code>String</code> JSON object representing the passed in data from the POST request
-     * @return a <code>String</code> representing the program's updated list of <code>Consumable</code> items
-     * as a JSON Array object
+     * @param item         a <code>String</code> JSON object representing the passed in data from the POST request
+     * @param prefer       the <code>Prefer</code> header of the request, <code>return=minimal</code> for a delta
+     * @param responseMode the <code>response</code> query parameter, <code>delta</code> for a delta
+     * @param accept       the <code>Accept</code> header of the request, which may ask for the binary format
+     * @return a <code>ResponseEntity<byte[]></code> representing the program's updated list of
+     * <code>Consumable</code> items as a JSON Array object, or only the new item and version as a JSON object,
+     * or status 400 if the item has no name or expiry date
      */
     @PostMapping("/addItem/Drink")
-    @ResponseStatus(HttpStatus.CREATED)
-    public String addDrinkItem(@RequestBody String item) {
+    public ResponseEntity<byte[]> addDrinkItem(@RequestBody String item,
+                                              @RequestHeader(value = "Prefer", required = false) String prefer,
+                                              @RequestParam(value = "response", required = false) String responseMode,
+                                             @RequestHeader(value = "Accept", required = false) String accept) {
         // deserialize the json object
         Type typeConsumable = new TypeToken<Drink>() {
         }.getType();
         Drink drinkItem = consumableManager.getCustomGsonObj().fromJson(item, typeConsumable);
+        if (drinkItem == null || drinkItem.getName() == null || drinkItem.getExpiryDate() == null) {
+            return missingFieldsResponse();
+        }
         drinkItem.setItemId(UUID.randomUUID());
 
-        consumableManager.addConsumableItem(drinkItem);
-        consumableManager.sortFridge();
+        ChangeEvent change = consumableManager.addConsumableItem(drinkItem);
+        return mutationResponse(change, prefer, responseMode, accept);
+    }
+
+    /**
+     * A POST request endpoint for adding a batch of <code>Food</code> and <code>Drink</code> items at once, such as a
+     * whole shopping trip, in a single request.
+     * <p>
+     * Every item of the batch is checked before any is added. The items are assigned their ids and inserted into the
+     * list in a single pass, so the batch takes one sort of the list and one record in the journal, and readers see
+     * either none of the items or all of them. Only a batch too large for one journal record, such as one of items
+     * with very long notes, is spread over several, and can then be recovered only in part after a crash.
+     * </p>
+     *
+     * @param items a <code>String</code> JSON Array object of items, each with <code>"type"</code> set to
+     *              <code>food</code> or <code>drink</code>
+     * @return a <code>ResponseEntity<String></code> representing the ids assigned to the items as a JSON Array
+     * object, in the order the items were sent in, or a message saying which item is invalid with status 400
+     */
+    @PostMapping("/items:batch")
+    public ResponseEntity<String> addItems(@RequestBody String items) {
+        List<Consumable> batch;
+        try {
+            batch = readBatch(items);
+        } catch (JsonParseException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
 
-        // return updated list as serialized json array string
-        return consumableManager.toJSONArray(consumableManager.getFridge());
+        JsonArray itemIds = new JsonArray(batch.size());
+        for (Consumable item : batch) {
+            item.setItemId(UUID.randomUUID());
+            itemIds.add(item.getItemId().toString());
+        }
+        consumableManager.addConsumableItems(batch);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(consumableManager.getCustomGsonObj().toJson(itemIds));
     }
 
     /**
      * A POST request endpoint to remove an item in the program's list of <code>Consumable</code> items
      *
-     * @param itemId a <code>String</code> id in the format of a <code>UUID</code> representing
-     *               the id of the object to be removed
-     * @return a <code>String</code> representing the program's updated list of <code>Consumable</code> items
-     * as a JSON Array object
+     * @param itemId       a <code>String</code> id in the format of a <code>UUID</code> representing
+     *                     the id of the object to be removed
+     * @param prefer       the <code>Prefer</code> header of the request, <code>return=minimal</code> for a delta
+     * @param responseMode the <code>response</code> query parameter, <code>delta</code> for a delta
+     * @param accept       the <code>Accept</code> header of the request, which may ask for the binary format
+     * @return a <code>ResponseEntity<byte[]></code> representing the program's updated list of
+     * <code>Consumable</code> items as a JSON Array object, or only the removed item and new version as a JSON object,
+     * or status 404 if there is no item with the id
      */
     @PostMapping("/removeItem/{uuid}")
-    @ResponseStatus(HttpStatus.CREATED)
-    public String deleteItem(@PathVariable("uuid") String itemId) {
-        Consumable itemToRemove = null;
-        for (Consumable item : consumableManager.getFridge()) {
-            if (item.getItemId().equals(UUID.fromString(itemId))) {
-                itemToRemove = item;
+    public ResponseEntity<byte[]> deleteItem(@PathVariable("uuid") String itemId,
+                                             @RequestHeader(value = "Prefer", required = false) String prefer,
+                                             @RequestParam(value = "response", required = false) String responseMode,
+                                             @RequestHeader(value = "Accept", required = false) String accept) {
+        Consumable itemToRemove = consumableManager.findConsumableItem(UUID.fromString(itemId));
+
+        ChangeEvent change = itemToRemove != null ? consumableManager.removeConsumableItem(itemToRemove) : null;
+        if (change == null) {
+            // not found, or removed by another request in the meantime
+            throw itemNotFound();
+        }
+
+        return mutationResponse(change, prefer, responseMode, accept);
+    }
+
+    /**
+     * A POST request endpoint for removing a batch of items at once by their ids.
+     * <p>
+     * The items are removed from the list in a single pass, taking one record in the journal, and readers see either
+     * none of the items removed or all of them. Ids of items which aren't in the list are skipped.
+     * </p>
+     *
+     * @param itemIds a <code>String</code> JSON Array object of ids in the format of a <code>UUID</code>
+     * @return a <code>ResponseEntity<String></code> representing the ids of the items removed as a JSON Array object,
+     * or a message saying which id is invalid with status 400
+     */
+    @PostMapping("/items:batchDelete")
+    public ResponseEntity<String> deleteItems(@RequestBody String itemIds) {
+        List<UUID> batch;
+        try {
+            batch = readItemIds(itemIds);
+        } catch (JsonParseException e) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(e.getMessage());
+        }
+        return removedItemsResponse(consumableManager.removeConsumableItems(batch));
+    }
+
+    /**
+     * A POST request endpoint for removing every item which expired more than the passed in number of days ago.
+     * <p>
+     * The items are found through the order of the list by expiry day rather than by checking every item, and
+     * removed in a single pass, taking as few records in the journal as their ids fit in.
+     * </p>
+     *
+     * @param olderThanDays the <code>olderThanDays</code> query parameter, the number of days an item has to have
+     *                      expired for before it is removed, <code>0</code> for every expired item
+     * @return a <code>ResponseEntity<String></code> representing the ids of the items removed as a JSON Array object
+     */
+    @PostMapping("/items:deleteExpired")
+    public ResponseEntity<String> deleteExpiredItems(
+            @RequestParam(value = "olderThanDays", defaultValue = "0") int olderThanDays) {
+        if (olderThanDays < 0) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                    .body("olderThanDays can't be negative");
+        }
+        LocalDate firstDayToKeep = LocalDateTime.now().toLocalDate().minusDays(olderThanDays);
+        return removedItemsResponse(consumableManager.removeItemsExpiringBefore(firstDayToKeep));
+    }
+
+    /**
+     * A POST request endpoint for importing an inventory file of <code>Food</code> and <code>Drink</code> items, such
+     * as one exported from another system, in CSV or NDJSON format.
+     * <p>
+     * The file is read while it is still being received and its items are added in batches of
+     * <code>batchSize</code>, each in a single pass taking as few records in the journal as it fits in, so that
+     * memory use doesn't depend on the size of the file. Rows which don't hold a valid item are skipped, while the
+     * rows around them are still imported.
+     * </p>
+     *
+     * @param request   the request, with the body of the file and <code>Content-Type</code> set to
+     *                  <code>text/csv</code> or <code>application/x-ndjson</code>
+     * @param batchSize the <code>batchSize</code> query parameter, the number of items added at once
+     * @return a <code>ResponseEntity<String></code> representing the <code>ImportReport</code> as a JSON object,
+     * with status 400 if the import stopped before the end of the file
+     */
+    @PostMapping("/items:import")
+    public ResponseEntity<String> importItems(HttpServletRequest request,
+                                              @RequestParam(value = "batchSize",
+                                                      defaultValue = "" + ItemImporter.DEFAULT_BATCH_SIZE)
+                                              int batchSize) throws IOException {
+        ImportFormat format = ImportFormat.fromContentType(request.getContentType());
+        if (format == null) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).contentType(MediaType.TEXT_PLAIN)
+                    .body("Expected Content-Type " + ImportFormat.CSV.getMediaType() + " or "
+                            + ImportFormat.NDJSON.getMediaType());
+        }
+        if (batchSize < 1 || batchSize > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                    .body("batchSize must be between 1 and " + MAX_BATCH_SIZE);
+        }
+
+        Charset charset = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+        ImportReport report;
+        try (Reader reader = new BufferedReader(new InputStreamReader(request.getInputStream(), charset))) {
+            ItemImporter importer = new ItemImporter(consumableManager.getCustomGsonObj(),
+                    consumableManager::addConsumableItems, batchSize);
+            report = importer.importItems(reader, format);
+        }
+
+        return ResponseEntity.status(report.getStoppedBy() == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(consumableManager.getCustomGsonObj().toJson(report));
+    }
+
+    /**
+     * Helper method to read a batch of item ids to remove, checking that there aren't too many.
+     *
+     * @throws JsonParseException if the batch isn't a JSON Array object of valid ids
+     */
+    private List<UUID> readItemIds(String itemIds) {
+        JsonArray batch = consumableManager.getCustomGsonObj().fromJson(itemIds, JsonArray.class);
+        if (batch == null) {
+            throw new JsonParseException("Expected a JSON array of item ids");
+        }
+        if (batch.size() > MAX_BATCH_SIZE) {
+            throw new JsonParseException("Too many item ids: " + batch.size() + ", at most " + MAX_BATCH_SIZE
+                    + " can be removed at once");
+        }
+
+        List<UUID> ids = new ArrayList<>(batch.size());
+        for (int index = 0; index < batch.size(); index++) {
+            try {
+                ids.add(UUID.fromString(batch.get(index).getAsString()));
+            } catch (RuntimeException e) {
+                throw new JsonParseException("Item id " + index + " isn't a valid UUID");
             }
         }
+        return ids;
+    }
 
-        if (itemToRemove != null) {
-            consumableManager.removeConsumableItem(itemToRemove);
-        } else {
-            throw new IllegalArgumentException();
+    /**
+     * Helper method to answer a batch removal with the ids of the items removed as a JSON Array object.
+     */
+    private ResponseEntity<String> removedItemsResponse(List<Consumable> removedItems) {
+        JsonArray itemIds = new JsonArray(removedItems.size());
+        for (Consumable item : removedItems) {
+            itemIds.add(item.getItemId().toString());
         }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(consumableManager.getCustomGsonObj().toJson(itemIds));
+    }
 
-        return consumableManager.toJSONArray(consumableManager.getFridge());
+    /**
+     * Helper method to answer a request adding an item without a name or an expiry date with status 400, before
+     * anything is added.
+     */
+    private static ResponseEntity<byte[]> missingFieldsResponse() {
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN)
+                .body("Item needs a name and an expiryDate".getBytes(StandardCharsets.UTF_8));
     }
 
     /**
-     * Response Status Handler for all IllegalArgumentExceptions thrown by
-     * the POST request localhost:8080/removeItem/{uuid}
+     * Helper method to read a batch of items to add, checking that there aren't too many and that every item has a
+     * type, a name and an expiry date.
+     *
+     * @throws JsonParseException if the batch isn't a JSON Array object of valid items
+     */
+    private List<Consumable> readBatch(String items) {
+        Type typeConsumableList = new TypeToken<List<Consumable>>() {
+        }.getType();
+        List<Consumable> batch = consumableManager.getCustomGsonObj().fromJson(items, typeConsumableList);
+        if (batch == null) {
+            throw new JsonParseException("Expected a JSON array of items");
+        }
+        if (batch.size() > MAX_BATCH_SIZE) {
+            throw new JsonParseException("Too many items: " + batch.size() + ", at most " + MAX_BATCH_SIZE
+                    + " can be added at once");
+        }
+
+        for (int index = 0; index < batch.size(); index++) {
+            Consumable item = batch.get(index);
+            if (item == null || item.getName() == null || item.getExpiryDate() == null) {
+                throw new JsonParseException("Item " + index + " needs a type, a name and an expiryDate");
+            }
+        }
+        return new ArrayList<>(batch);
+    }
+
+    /**
+     * Helper method to answer a request changing the list with status 201 and, depending on what the request asks
+     * for, either the whole updated list, or only the change made and the version of the list it made, which takes
+     * as long to send however long the list is.
+     * <p>
+     * Only the change is sent if the request has the header <code>Prefer: return=minimal</code> or the query
+     * parameter <code>response=delta</code>, as a JSON object in the same format as the events of
+     * <code>/changes</code>: <code>{"version": 3, "item": {...}}</code>.
+     * </p>
+     * <p>
+     * Either is sent in the format the request's <code>Accept</code> header asks for.
+     * </p>
+     */
+    private ResponseEntity<byte[]> mutationResponse(ChangeEvent change, String prefer, String responseMode,
+                                                    String accept) {
+        boolean preferMinimal = prefer != null && prefer.contains("return=minimal");
+        boolean sendList = !preferMinimal && !"delta".equals(responseMode);
+        WireFormat format = negotiateFormat(accept, sendList);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.CREATED)
+                .contentType(MediaType.parseMediaType(format.getMediaType()));
+
+        if (sendList) {
+            // return the updated list
+            return response.body(consumableManager.encodeList(consumableManager.getFridge(), format));
+        }
+
+        if (preferMinimal) {
+            response.header("Preference-Applied", "return=minimal");
+        }
+        return response.body(consumableManager.encodeChange(change, format));
+    }
+
+    /**
+     * Helper method to write the list filtered by the passed in mode straight to the response's
+     * <code>OutputStream</code>, in the binary format or as newline delimited JSON if the request's <code>Accept</code>
+     * header asks for either and as a JSON Array object otherwise, unless the request's <code>If-None-Match</code>
+     * header holds the current <code>ETag</code>.
+     * <p>
+     * A view sent before for the same version of the list is written from the cache of views. Otherwise nothing but
+     * the item being written is held as JSON besides the copy kept for the cache, and the response buffer is sent
+     * whenever it fills up, so the first bytes go out as soon as the first items are converted however long the list
+     * is.
+     * </p>
+     */
+    private void writeList(String mode, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        WireFormat format = negotiateFormat(request.getHeader(HttpHeaders.ACCEPT), true);
+
+        // the version is taken before the list, so that a change in between can only make the tag older than the list
+        String listVersion = consumableManager.getListVersion(mode);
+        // weak, since the bytes differ when the response is gzipped, which Tomcat also won't do with a strong one
+        String eTag = "W/\"" + listVersion + format.getETagSuffix() + "\"";
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return;
+        }
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(format.getMediaType());
+        if (format != WireFormat.BINARY) {
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        }
+        consumableManager.writeList(mode, format, listVersion, response.getOutputStream());
+    }
+
+    /**
+     * Helper method to pick the format to send items in from the passed in <code>Accept</code> header: the format of
+     * the media type the header prefers most, by quality and then by how specific it is, leaving out media types of
+     * quality 0, which the client refuses. Newline delimited JSON is only picked for a list, since a single item or
+     * change isn't a stream of items. JSON is picked if the header names none of the formats.
+     *
+     * @param accept the <code>Accept</code> header of the request, may be <code>null</code>
+     * @param isList whether a list of items is sent
+     * @return the <code>WireFormat</code> to send items in
+     */
+    private static WireFormat negotiateFormat(String accept, boolean isList) {
+        if (accept == null) {
+            return WireFormat.JSON;
+        }
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+
+        List<WireFormat> acceptableFormats = new ArrayList<>();
+        for (WireFormat format : WireFormat.values()) {
+            if (format == WireFormat.NDJSON && !isList) {
+                continue;
+            }
+            MediaType formatMediaType = MediaType.parseMediaType(format.getMediaType());
+            boolean refused = mediaTypes.stream().anyMatch(mediaType -> mediaType.getQualityValue() == 0
+                    && mediaType.includes(formatMediaType));
+            if (!refused) {
+                acceptableFormats.add(format);
+            }
+        }
+
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            // JSON comes first, so that a wildcard picks it
+            for (WireFormat format : acceptableFormats) {
+                if (mediaType.includes(MediaType.parseMediaType(format.getMediaType()))) {
+                    return format;
+                }
+            }
+        }
+        return WireFormat.JSON;
+    }
+
+    /**
+     * Helper method to create the exception answering a request for an item which isn't in the list with status 404.
+     */
+    private static ResponseStatusException itemNotFound() {
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Requested Item ID Not Found");
+    }
+
+    /**
+     * Response Status Handler for all IllegalArgumentExceptions thrown while handling a request, such as by an item id
+     * which isn't a <code>UUID</code> or a malformed <code>Accept</code> header, answered with status 400 and the
+     * message saying what was wrong
+     *
+     * @param e the <code>IllegalArgumentException</code> thrown
+     * @return a <code>ResponseEntity<String></code> representing the message of the exception with status 400
      */
-    @ResponseStatus(value = HttpStatus.BAD_REQUEST, reason = "Requested Item ID Not Found")
     @ExceptionHandler(IllegalArgumentException.class)
-    public void invalidIdExceptionHandler() {
+    public ResponseEntity<String> invalidArgumentExceptionHandler(IllegalArgumentException e) {
+        String message = e.getMessage() != null ? e.getMessage() : "Invalid request";
+        return ResponseEntity.badRequest().contentType(MediaType.TEXT_PLAIN).body(message);
     }
 }
@@ -1,10 +1,9 @@
 package expiryTracker.webappserver.model;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.UUID;
 
-import static java.time.temporal.ChronoUnit.DAYS;
-
 /**
  * Represents the base class/ parent class
  * of subclasses <code>Food</code> and <code>Drink</code>.
@@ -14,27 +13,44 @@ import static java.time.temporal.ChronoUnit.DAYS;
  * itself and other objects of type <code>Consumable</code>
  */
 public class Consumable implements Comparable<Consumable> {
+    // items without an id yet come first among the items expiring on the same day
+    private static final Comparator<UUID> ITEM_ID_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
     protected UUID itemId;
     protected String name;
     protected String notes;
     protected double price;
     protected LocalDateTime expiryDate;
 
-    // for Gson to determine the subclass type when serializing/deserializing
-    protected String type = getClass().getName();
+    // the item as encoded in responses, kept since items are never changed once stored; never saved
+    private transient volatile byte[] compactJson;
+    private transient volatile byte[] binaryRecord;
 
     /**
-     * Sets the subclass type for <code>Gson</code> to determine an object of subclass type <code>Food</code>
-     * or <code>Drink</code> during serialization and deserialization
+     * Gets the name of the Consumable item.
      *
-     * @param type a <code>String</code> defined by <code>classObject.getClass().getName()</code>
+     * @return a <code>String</code> representing the object's <code>name</code>
      */
-    public void setType(String type) {
-        this.type = type;
+    public String getName() {
+        return name;
     }
 
-    public String getType() {
-        return type;
+    /**
+     * Gets the notes about the Consumable item.
+     *
+     * @return a <code>String</code> representing the object's <code>notes</code>
+     */
+    public String getNotes() {
+        return notes;
+    }
+
+    /**
+     * Gets the price of the Consumable item.
+     *
+     * @return a <code>double</code> representing the object's <code>price</code>
+     */
+    public double getPrice() {
+        return price;
     }
 
     /**
@@ -63,22 +79,62 @@ public class Consumable implements Comparable<Consumable> {
         this.itemId = itemId;
     }
 
+    /**
+     * Gets the item encoded as a JSON object on a single line, if it has been encoded yet.
+     *
+     * @return a <code>byte[]</code> holding the encoded item in UTF-8, or <code>null</code> if not encoded yet
+     */
+    public byte[] getCompactJson() {
+        return compactJson;
+    }
+
+    /**
+     * Keeps the item encoded as a JSON object on a single line, for every later list, event or response to reuse.
+     *
+     * @param compactJson a <code>byte[]</code> holding the encoded item in UTF-8, which is never changed
+     */
+    public void setCompactJson(byte[] compactJson) {
+        this.compactJson = compactJson;
+    }
+
+    /**
+     * Gets the item encoded as a record of <code>BinaryWireFormat</code>, if it has been encoded yet.
+     *
+     * @return a <code>byte[]</code> holding the record of the item, or <code>null</code> if not encoded yet
+     */
+    public byte[] getBinaryRecord() {
+        return binaryRecord;
+    }
+
+    /**
+     * Keeps the item encoded as a record of <code>BinaryWireFormat</code>, for every later list or response to reuse.
+     *
+     * @param binaryRecord a <code>byte[]</code> holding the record of the item, which is never changed
+     */
+    public void setBinaryRecord(byte[] binaryRecord) {
+        this.binaryRecord = binaryRecord;
+    }
+
     /**
      * Compare this object to other objects of type <code>Consumable</code> for the purpose
      * of <code>Collections.sort()</code> to determine a natural ordering between custom object fields
      * <p>
-     * Returns an <code>int</code> of -1, 0, or 1:
-     * -1: the object to be compared is greater than this object
-     * 0: the object to be compared is equal to this object
-     * 1: the object to be compared is less than this object
+     * Objects are ordered by the day they expire on, and objects expiring on the same day by their
+     * <code>itemId</code>, objects without one first, so that the order doesn't depend on the order the objects were
+     * added in. Only objects expiring on the same day with the same <code>itemId</code> are equal.
      *
      * @param object an object of type <code>Consumable</code> being compared to
-     * @return an <code>int</code> of either -1, 0, or 1 determine the natural ordering
-     * between this object and the object being compared
+     * @return a negative <code>int</code> if this object comes before the object being compared, 0 if they are equal,
+     * or a positive <code>int</code> if this object comes after it
      */
     @Override
     public int compareTo(Consumable object) {
-        return (int) DAYS.between(object.expiryDate.toLocalDate(), this.expiryDate.toLocalDate());
+        int dayOrder = Long.compare(this.expiryDate.toLocalDate().toEpochDay(),
+                object.expiryDate.toLocalDate().toEpochDay());
+        if (dayOrder != 0) {
+            return dayOrder;
+        }
+        return ITEM_ID_ORDER.compare(this.itemId, object.itemId);
     }
 }
 
@@ -34,6 +34,15 @@ public class Drink extends Consumable {
         this.expiryDate = expiryDate;
     }
 
+    /**
+     * Gets the volume of the drink item.
+     *
+     * @return a <code>double</code> representing the object's <code>volume</code>
+     */
+    public double getVolume() {
+        return volume;
+    }
+
     /**
      * A helper method to assist with returning the correct expiry message of the <code>Drink</code> object.
      *
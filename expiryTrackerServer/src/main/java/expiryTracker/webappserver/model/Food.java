@@ -34,6 +34,15 @@ public class Food extends Consumable {
         this.expiryDate = expiryDate;
     }
 
+    /**
+     * Gets the weight of the food item.
+     *
+     * @return a <code>double</code> representing the object's <code>weight</code>
+     */
+    public double getWeight() {
+        return weight;
+    }
+
     /**
      * A helper method to assist with returning the correct expiry message of the <code>Food</code> object.
      *
@@ -0,0 +1,229 @@
+package expiryTracker.benchmark;
+
+import expiryTracker.webappserver.WebAppServerApplication;
+import expiryTracker.webappserver.config.VirtualThreadConfig;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.support.GenericApplicationContext;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares serving requests on Tomcat's pool of platform threads with serving them on virtual threads
+ * (<code>expirytracker.server.virtual-threads</code>), by the number of requests handled at once and their latency.
+ * <p>
+ * Starts the server once per mode, in its own JVM since <code>ConsumableManager</code> is a Singleton, with the item
+ * list file in a temporary directory and the <code>sync</code> mode, so that every request to the default path
+ * <code>/exit</code> blocks until its flush of the journal is on disk. Then every client sends its requests one after
+ * the other, all clients at once.
+ * <p>
+ * Run it after <code>mvn test-compile</code> with JDK 21 or later, otherwise both modes use platform threads:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     expiryTracker.benchmark.VirtualThreadBenchmark [clients] [requests per client] [path]
+ * </pre>
+ */
+public class VirtualThreadBenchmark {
+    private static final String PEAK_IN_FLIGHT_PATH = "/benchmark/peakInFlight";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("serve")) {
+            serve(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String path = args.length > 2 ? args[2] : "/exit";
+        System.out.println("JDK " + Runtime.version() + ", virtual threads "
+                + (VirtualThreadConfig.newVirtualThreadPerTaskExecutor() != null ? "available" : "unavailable"));
+        System.out.println(clients + " clients x " + requestsPerClient + " requests to " + path);
+        System.out.printf("%-10s %12s %10s %10s %10s %10s %12s%n",
+                "threads", "peak handled", "p50 ms", "p99 ms", "max ms", "failed", "requests/s");
+
+        for (boolean virtualThreads : new boolean[]{false, true}) {
+            run(virtualThreads, clients, requestsPerClient, path);
+        }
+    }
+
+    /**
+     * Helper method to start the server in the passed in mode, load it and print the results.
+     */
+    private static void run(boolean virtualThreads, int clients, int requestsPerClient, String path)
+            throws Exception {
+        Path dataDirectory = Files.createTempDirectory("expiry-tracker-benchmark");
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        Process server = new ProcessBuilder(ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path"), VirtualThreadBenchmark.class.getName(), "serve",
+                "--server.port=" + port,
+                "--expirytracker.server.virtual-threads=" + virtualThreads,
+                "--expirytracker.persistence.mode=sync",
+                "--expirytracker.persistence.snapshot-interval=0",
+                "--expirytracker.persistence.file-path=" + dataDirectory.resolve("itemList.json"))
+                .redirectErrorStream(true)
+                .redirectOutput(dataDirectory.resolve("server.log").toFile())
+                .start();
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+        String baseUrl = "http://localhost:" + port;
+        try {
+            awaitReady(client, baseUrl, server);
+
+            // the first round only warms up the server
+            load(client, baseUrl + path, clients, 1);
+            get(client, baseUrl + PEAK_IN_FLIGHT_PATH + "?reset");
+
+            long startTime = System.nanoTime();
+            LoadResult result = load(client, baseUrl + path, clients, requestsPerClient);
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            String peakInFlight = get(client, baseUrl + PEAK_IN_FLIGHT_PATH);
+
+            long[] latencies = result.latencyNanos();
+            Arrays.sort(latencies);
+            System.out.printf("%-10s %12s %10.1f %10.1f %10.1f %10d %12.0f%n",
+                    virtualThreads ? "virtual" : "platform", peakInFlight,
+                    percentileMillis(latencies, 0.50), percentileMillis(latencies, 0.99),
+                    percentileMillis(latencies, 1.0), result.failed(), latencies.length / seconds);
+        } finally {
+            server.destroy();
+            server.waitFor(30, TimeUnit.SECONDS);
+            deleteRecursively(dataDirectory.toFile());
+        }
+    }
+
+    /**
+     * Helper method to have every client send its requests one after the other, all clients at once.
+     */
+    private static LoadResult load(HttpClient client, String url, int clients, int requestsPerClient) {
+        long[] latencyNanos = new long[clients * requestsPerClient];
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofMinutes(2)).build();
+
+        List<CompletableFuture<Void>> clientRuns = new ArrayList<>();
+        for (int clientIndex = 0; clientIndex < clients; clientIndex++) {
+            CompletableFuture<Void> clientRun = CompletableFuture.completedFuture(null);
+            for (int requestIndex = 0; requestIndex < requestsPerClient; requestIndex++) {
+                clientRun = clientRun.thenCompose(ignored -> {
+                    long sentTime = System.nanoTime();
+                    return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                            .handle((response, throwable) -> {
+                                if (throwable != null || response.statusCode() != 200) {
+                                    failed.incrementAndGet();
+                                }
+                                latencyNanos[completed.getAndIncrement()] = System.nanoTime() - sentTime;
+                                return null;
+                            });
+                });
+            }
+            clientRuns.add(clientRun);
+        }
+        CompletableFuture.allOf(clientRuns.toArray(new CompletableFuture[0])).join();
+        return new LoadResult(latencyNanos, failed.get());
+    }
+
+    private static void awaitReady(HttpClient client, String baseUrl, Process server) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/ready")).build();
+        for (int attempt = 0; attempt < 600; attempt++) {
+            if (!server.isAlive()) {
+                throw new IllegalStateException("Server exited with " + server.exitValue());
+            }
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // not listening yet
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("Server didn't become ready: " + baseUrl);
+    }
+
+    private static String get(HttpClient client, String url) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(url)).build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    private static double percentileMillis(long[] sortedLatencyNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedLatencyNanos.length) - 1;
+        return sortedLatencyNanos[Math.max(index, 0)] / 1e6;
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        if (!file.delete()) {
+            System.out.println("Unable to delete " + file);
+        }
+    }
+
+    /**
+     * Body of the server JVM: runs the server with a filter counting the requests being handled at once.
+     */
+    private static void serve(String[] args) {
+        InFlightFilter inFlightFilter = new InFlightFilter();
+        new SpringApplicationBuilder(WebAppServerApplication.class)
+                .initializers(context -> ((GenericApplicationContext) context)
+                        .registerBean("inFlightFilter", Filter.class, () -> inFlightFilter))
+                .run(args);
+    }
+
+    private record LoadResult(long[] latencyNanos, int failed) {
+    }
+
+    /**
+     * Counts the requests being handled at once and answers <code>/benchmark/peakInFlight</code> with the highest
+     * count so far, resetting it when asked to with <code>?reset</code>.
+     */
+    private static final class InFlightFilter implements Filter {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger peakInFlight = new AtomicInteger();
+
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            HttpServletRequest httpRequest = (HttpServletRequest) request;
+            if (httpRequest.getRequestURI().equals(PEAK_IN_FLIGHT_PATH)) {
+                response.getWriter().print(httpRequest.getQueryString() != null
+                        ? peakInFlight.getAndSet(0)
+                        : peakInFlight.get());
+                return;
+            }
+
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package expiryTracker.benchmark;
+
+import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.control.wire.BinaryWireFormat;
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Compares encoding and decoding a list of items as JSON, the way the server and client convert them with
+ * <code>Gson</code>, with <code>BinaryWireFormat</code>, by the size of the encoded list and items per second.
+ * <p>
+ * Every round converts every item afresh, as happens for the first request after the items are loaded and on
+ * every client, rather than reusing the bytes the server keeps for each item.
+ * <p>
+ * Run it after <code>mvn test-compile</code>:
+ * <pre>
+ * java -cp target/classes:target/test-classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     expiryTracker.benchmark.WireFormatBenchmark [items] [rounds]
+ * </pre>
+ */
+public class WireFormatBenchmark {
+    private static final Type CONSUMABLE_LIST_TYPE = new TypeToken<List<Consumable>>() {
+    }.getType();
+
+    public static void main(String[] args) throws IOException {
+        int itemCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        List<Consumable> items = newItems(itemCount);
+        Gson gson = ConsumableManager.newCustomGsonBuilder().create();
+
+        System.out.println(itemCount + " items, best of " + rounds + " rounds");
+        System.out.printf("%-8s %12s %16s %16s%n", "format", "bytes", "encode items/s", "decode items/s");
+
+        byte[] json = gson.toJson(items, List.class).getBytes(StandardCharsets.UTF_8);
+        long jsonEncodeNanos = bestOf(rounds, () -> gson.toJson(items, List.class).getBytes(StandardCharsets.UTF_8));
+        long jsonDecodeNanos = bestOf(rounds, () -> gson.fromJson(
+                new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8), CONSUMABLE_LIST_TYPE));
+        print("json", json.length, itemCount, jsonEncodeNanos, jsonDecodeNanos);
+
+        byte[] binary = encodeBinary(items);
+        long binaryEncodeNanos = bestOf(rounds, () -> encodeBinary(items));
+        long binaryDecodeNanos = bestOf(rounds,
+                () -> BinaryWireFormat.readList(new ByteArrayInputStream(binary)));
+        print("binary", binary.length, itemCount, binaryEncodeNanos, binaryDecodeNanos);
+    }
+
+    private static byte[] encodeBinary(List<Consumable> items) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        BinaryWireFormat.writeListHeader(items.size(), outputStream);
+        for (Consumable item : items) {
+            outputStream.write(BinaryWireFormat.encode(item));
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Helper method to run the passed in conversion the passed in number of times, after as many rounds to warm up,
+     * and get the time the quickest run took.
+     */
+    private static long bestOf(int rounds, Conversion conversion) throws IOException {
+        for (int round = 0; round < rounds; round++) {
+            conversion.run();
+        }
+        long bestNanos = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            long startTime = System.nanoTime();
+            conversion.run();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - startTime);
+        }
+        return bestNanos;
+    }
+
+    private static void print(String format, int bytes, int itemCount, long encodeNanos, long decodeNanos) {
+        System.out.printf("%-8s %12d %16.0f %16.0f%n", format, bytes,
+                itemCount / (encodeNanos / 1e9), itemCount / (decodeNanos / 1e9));
+    }
+
+    private static List<Consumable> newItems(int itemCount) {
+        Random random = new Random(42);
+        List<Consumable> items = new ArrayList<>(itemCount);
+        for (int index = 0; index < itemCount; index++) {
+            LocalDateTime expiryDate = LocalDateTime.of(2020, 1, 1, 23, 59).plusDays(random.nextInt(4000));
+            Consumable item = random.nextBoolean()
+                    ? new Food("Food " + index, "bought at store " + random.nextInt(20),
+                    random.nextInt(2000) / 100.0, random.nextInt(1000), expiryDate)
+                    : new Drink("Drink " + index, "bought at store " + random.nextInt(20),
+                    random.nextInt(2000) / 100.0, random.nextInt(1000), expiryDate);
+            item.setItemId(UUID.randomUUID());
+            items.add(item);
+        }
+        return items;
+    }
+
+    private interface Conversion {
+        Object run() throws IOException;
+    }
+}
@@ -2,8 +2,11 @@ package expiryTracker.webappserver;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
 
+// the ConsumableManager is a Singleton, so the context is closed after the tests for the next one to create its own
 @SpringBootTest
+@DirtiesContext
 class WebAppServerApplicationTests {
 
 	@Test
@@ -0,0 +1,75 @@
+package expiryTracker.webappserver.control.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ViewCacheTests {
+	private final AtomicInteger builds = new AtomicInteger();
+
+	@Test
+	void viewsAreBuiltOncePerVersionUntilInvalidated() throws IOException {
+		ViewCache cache = new ViewCache(1024);
+
+		assertEquals("All@v1", write(cache, "All", "v1"));
+		assertEquals("All@v1", write(cache, "All", "v1"));
+		assertEquals(1, builds.get());
+
+		// a newer version of the list is never answered with the view of an older one
+		assertEquals("All@v2", write(cache, "All", "v2"));
+		assertEquals(2, builds.get());
+
+		cache.invalidate();
+		assertEquals("All@v2", write(cache, "All", "v2"));
+		assertEquals(3, builds.get());
+
+		ViewCacheStats stats = cache.getStats();
+		assertEquals(1, stats.getHits());
+		assertEquals(3, stats.getMisses());
+		assertEquals(1, stats.getInvalidations());
+		assertEquals(1, stats.getEntries());
+	}
+
+	@Test
+	void leastRecentlyUsedViewsAreEvictedToStayWithinTheBudget() throws IOException {
+		// each view is 10 bytes, so only two fit
+		ViewCache cache = new ViewCache(20);
+		write(cache, "Expired", "v1");
+		write(cache, "Not Exp", "v1");
+		write(cache, "Expired", "v1");
+		write(cache, "Exp 7 D", "v1");
+		assertEquals(3, builds.get());
+
+		write(cache, "Expired", "v1");
+		assertEquals(3, builds.get());
+		write(cache, "Not Exp", "v1");
+		assertEquals(4, builds.get());
+
+		ViewCacheStats stats = cache.getStats();
+		assertEquals(2, stats.getEvictions());
+		assertEquals(20, stats.getCachedBytes());
+	}
+
+	@Test
+	void viewsLargerThanHalfTheBudgetAreSentWithoutBeingKept() throws IOException {
+		ViewCache cache = new ViewCache(16);
+		assertEquals("Expired@v1", write(cache, "Expired", "v1"));
+		assertEquals("Expired@v1", write(cache, "Expired", "v1"));
+		assertEquals(2, builds.get());
+		assertEquals(0, cache.getStats().getEntries());
+	}
+
+	private String write(ViewCache cache, String viewKey, String version) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		cache.write(viewKey, version, true, outputStream, viewOutputStream -> {
+			builds.incrementAndGet();
+			viewOutputStream.write((viewKey + "@" + version).getBytes(StandardCharsets.UTF_8));
+		});
+		return outputStream.toString(StandardCharsets.UTF_8);
+	}
+}
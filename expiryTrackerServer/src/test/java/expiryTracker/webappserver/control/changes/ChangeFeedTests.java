@@ -0,0 +1,237 @@
+package expiryTracker.webappserver.control.changes;
+
+import expiryTracker.webappserver.control.store.InMemoryConsumableStore;
+import expiryTracker.webappserver.model.Food;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChangeFeedTests {
+	private final ChangeFeed feed = new ChangeFeed(3);
+	private final InMemoryConsumableStore store = new InMemoryConsumableStore();
+
+	@AfterEach
+	void closeFeed() {
+		feed.close();
+	}
+
+	@Test
+	void subscribersAreSentEveryChangeInOrderAfterAReset() throws Exception {
+		store.setChangeListener(feed);
+		Food food = newFood();
+		store.add(food);
+
+		BlockingQueue<ChangeEvent> events = subscribe(null);
+		assertEquals(ChangeEvent.Type.RESET, nextEvent(events).getType());
+
+		store.remove(food);
+		store.remove(food);
+		Food otherFood = newFood();
+		store.add(otherFood);
+
+		ChangeEvent removed = nextEvent(events);
+		assertEquals(ChangeEvent.Type.REMOVE, removed.getType());
+		assertEquals(2, removed.getVersion());
+		assertEquals(food, removed.getItem());
+
+		// removing an item which is already gone isn't a change
+		ChangeEvent added = nextEvent(events);
+		assertEquals(ChangeEvent.Type.ADD, added.getType());
+		assertEquals(3, added.getVersion());
+		assertEquals(otherFood, added.getItem());
+		assertEquals(3, feed.getVersion());
+	}
+
+	@Test
+	void reconnectingSubscribersAreSentTheChangesTheyMissedWhileTheyAreKept() throws Exception {
+		store.setChangeListener(feed);
+		List<String> eventIds = new ArrayList<>();
+		BlockingQueue<ChangeEvent> firstEvents = subscribe(null);
+		eventIds.add(nextEvent(firstEvents).getId());
+		for (int count = 0; count < 5; count++) {
+			store.add(newFood());
+			eventIds.add(nextEvent(firstEvents).getId());
+		}
+
+		// the last 3 changes are kept, so versions 2 to 5 can be resumed from
+		BlockingQueue<ChangeEvent> resumedEvents = subscribe(eventIds.get(3));
+		assertEquals(4, nextEvent(resumedEvents).getVersion());
+		assertEquals(5, nextEvent(resumedEvents).getVersion());
+
+		BlockingQueue<ChangeEvent> upToDateEvents = subscribe(eventIds.get(5));
+		store.add(newFood());
+		assertEquals(6, nextEvent(upToDateEvents).getVersion());
+
+		for (String lastEventId : List.of(eventIds.get(1), feed.getEpoch() + "x:5", "0:5", "not an id")) {
+			BlockingQueue<ChangeEvent> resetEvents = subscribe(lastEventId);
+			ChangeEvent reset = nextEvent(resetEvents);
+			assertEquals(ChangeEvent.Type.RESET, reset.getType());
+			assertEquals(6, reset.getVersion());
+			assertNull(reset.getItem());
+		}
+	}
+
+	@Test
+	void subscribersWhichWentAwayAreSentNothingMore() throws Exception {
+		store.setChangeListener(feed);
+		BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+		feed.subscribe(null, new ChangeFeed.Subscriber() {
+			@Override
+			public boolean send(ChangeEvent event) {
+				events.add(event);
+				return event.getType() == ChangeEvent.Type.RESET;
+			}
+
+			@Override
+			public boolean keepAlive() {
+				return true;
+			}
+		});
+		nextEvent(events);
+
+		store.add(newFood());
+		store.add(newFood());
+		assertEquals(1, nextEvent(events).getVersion());
+		assertNull(events.poll(200, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	void aSubscriberWhichStopsReadingDoesNotHoldUpTheOthers() throws Exception {
+		ChangeFeed smallQueueFeed = new ChangeFeed(100, 4);
+		store.setChangeListener(smallQueueFeed);
+		CountDownLatch reading = new CountDownLatch(1);
+		BlockingQueue<ChangeEvent> slowEvents = new LinkedBlockingQueue<>();
+		try {
+			smallQueueFeed.subscribe(null, new ChangeFeed.Subscriber() {
+				@Override
+				public boolean send(ChangeEvent event) {
+					try {
+						reading.await();
+					} catch (InterruptedException e) {
+						return false;
+					}
+					return slowEvents.add(event);
+				}
+
+				@Override
+				public boolean keepAlive() {
+					return true;
+				}
+			});
+			BlockingQueue<ChangeEvent> fastEvents = new LinkedBlockingQueue<>();
+			smallQueueFeed.subscribe(null, new ChangeFeed.Subscriber() {
+				@Override
+				public boolean send(ChangeEvent event) {
+					return fastEvents.add(event);
+				}
+
+				@Override
+				public boolean keepAlive() {
+					return true;
+				}
+			});
+			nextEvent(fastEvents);
+
+			for (int version = 1; version <= 10; version++) {
+				store.add(newFood());
+				assertEquals(version, nextEvent(fastEvents).getVersion());
+			}
+
+			// the slow subscriber's queue overflowed, so it is sent a reset in place of the changes it couldn't take
+			reading.countDown();
+			assertEquals(ChangeEvent.Type.RESET, nextEvent(slowEvents).getType());
+			ChangeEvent lastEvent = nextEvent(slowEvents);
+			while (lastEvent.getVersion() < 10) {
+				lastEvent = nextEvent(slowEvents);
+			}
+			assertEquals(10, lastEvent.getVersion());
+		} finally {
+			smallQueueFeed.close();
+		}
+	}
+
+	@Test
+	void subscribersAreSentEventsByNoMoreThanTheSenderThreads() throws Exception {
+		ChangeFeed twoSenderFeed = new ChangeFeed(100, 4, 2);
+		store.setChangeListener(twoSenderFeed);
+		CountDownLatch reading = new CountDownLatch(1);
+		AtomicInteger sending = new AtomicInteger();
+		AtomicInteger mostSending = new AtomicInteger();
+		BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+		try {
+			for (int count = 0; count < 5; count++) {
+				twoSenderFeed.subscribe(null, new ChangeFeed.Subscriber() {
+					@Override
+					public boolean send(ChangeEvent event) {
+						mostSending.accumulateAndGet(sending.incrementAndGet(), Math::max);
+						try {
+							reading.await();
+						} catch (InterruptedException e) {
+							return false;
+						} finally {
+							sending.decrementAndGet();
+						}
+						return events.add(event);
+					}
+
+					@Override
+					public boolean keepAlive() {
+						return true;
+					}
+				});
+			}
+
+			// the stalled subscribers wait for one of the two senders instead of each pinning a thread of its own
+			Thread.sleep(200);
+			assertEquals(2, mostSending.get());
+			reading.countDown();
+			for (int count = 0; count < 5; count++) {
+				assertEquals(ChangeEvent.Type.RESET, nextEvent(events).getType());
+			}
+			assertEquals(2, mostSending.get());
+		} finally {
+			twoSenderFeed.close();
+		}
+	}
+
+	private BlockingQueue<ChangeEvent> subscribe(String lastEventId) {
+		BlockingQueue<ChangeEvent> events = new LinkedBlockingQueue<>();
+		feed.subscribe(lastEventId, new ChangeFeed.Subscriber() {
+			@Override
+			public boolean send(ChangeEvent event) {
+				return events.add(event);
+			}
+
+			@Override
+			public boolean keepAlive() {
+				return true;
+			}
+		});
+		return events;
+	}
+
+	private static ChangeEvent nextEvent(BlockingQueue<ChangeEvent> events) throws InterruptedException {
+		ChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+		assertNotNull(event);
+		return event;
+	}
+
+	private static Food newFood() {
+		Food food = new Food("Special Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, 20, 23, 59));
+		food.setItemId(UUID.randomUUID());
+		return food;
+	}
+}
@@ -0,0 +1,89 @@
+package expiryTracker.webappserver.control.importer;
+
+import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemImporterTests {
+	private final Gson gson = ConsumableManager.newCustomGsonBuilder().create();
+
+	@Test
+	void importsCsvRowsInBatchesSkippingInvalidOnes() {
+		String csv = "Name,Type,Price,Weight,Volume,ExpiryDate,Notes\r\n"
+				+ "Special Sushi,food,10.69,420,,2069-04-20T23:59:00,\"very yummy, \"\"fresh\"\"\"\r\n"
+				+ "\n"
+				+ "Milk Tea,drink,5.99,,700,2021-11-10,\"with\npearls\"\n"
+				+ "Mystery,snack,1,1,,2021-11-10,\n"
+				+ "Rice,food,abc,1000,,2030-01-01,\n"
+				+ "Beans,food,2.5,400,,2030-01-02";
+		List<List<Consumable>> batches = new ArrayList<>();
+
+		ImportReport report = new ItemImporter(gson, batches::add, 2)
+				.importItems(new StringReader(csv), ImportFormat.CSV);
+
+		assertEquals(5, report.getRowsRead());
+		assertEquals(3, report.getItemsImported());
+		assertEquals(2, report.getRowsRejected());
+		assertNull(report.getStoppedBy());
+		assertEquals(List.of(2, 1), batches.stream().map(List::size).toList());
+
+		Consumable sushi = batches.get(0).get(0);
+		assertTrue(sushi instanceof Food);
+		assertNotNull(sushi.getItemId());
+		assertEquals("very yummy, \"fresh\"", sushi.getNotes());
+		assertEquals(420, ((Food) sushi).getWeight());
+		Consumable milkTea = batches.get(0).get(1);
+		assertTrue(milkTea instanceof Drink);
+		assertEquals("with\npearls", milkTea.getNotes());
+		assertEquals(LocalDateTime.of(2021, 11, 10, 23, 59), milkTea.getExpiryDate());
+
+		// rows are numbered by the line they start on, counting the line break inside the quoted notes
+		assertEquals(6, report.getErrors().get(0).getLine());
+		assertEquals("Unknown item type: snack", report.getErrors().get(0).getMessage());
+		assertEquals(7, report.getErrors().get(1).getLine());
+		assertEquals("Invalid price: abc", report.getErrors().get(1).getMessage());
+	}
+
+	@Test
+	void importsNdjsonLinesSkippingInvalidOnes() {
+		String ndjson = "{\"type\":\"food\",\"name\":\"Special Sushi\",\"weight\":420,\"expiryDate\":\"2069-04-20T23:59:00\"}\n"
+				+ "{\"type\":\"drink\",\"name\":\"Milk Tea\"\n"
+				+ "\n"
+				+ "{\"type\":\"drink\",\"name\":\"Milk Tea\",\"volume\":700,\"expiryDate\":\"2021-11-10T23:59:00\"}\n"
+				+ "{\"type\":\"drink\",\"name\":\"Water\"}";
+		List<Consumable> imported = new ArrayList<>();
+
+		ImportReport report = new ItemImporter(gson, imported::addAll, ItemImporter.DEFAULT_BATCH_SIZE)
+				.importItems(new StringReader(ndjson), ImportFormat.NDJSON);
+
+		assertEquals(4, report.getRowsRead());
+		assertEquals(List.of("Special Sushi", "Milk Tea"), imported.stream().map(Consumable::getName).toList());
+		assertTrue(imported.get(1) instanceof Drink);
+		assertEquals(List.of(2L, 5L), report.getErrors().stream().map(ImportReport.RowError::getLine).toList());
+	}
+
+	@Test
+	void stopsAtACsvFileWithoutTheNeededColumns() {
+		List<Consumable> imported = new ArrayList<>();
+
+		ImportReport report = new ItemImporter(gson, imported::addAll, ItemImporter.DEFAULT_BATCH_SIZE)
+				.importItems(new StringReader("name,price\nSushi,10\n"), ImportFormat.CSV);
+
+		assertEquals("Line 1: CSV header needs the columns type, name and expiryDate", report.getStoppedBy());
+		assertEquals(0, report.getRowsRead());
+		assertTrue(imported.isEmpty());
+	}
+}
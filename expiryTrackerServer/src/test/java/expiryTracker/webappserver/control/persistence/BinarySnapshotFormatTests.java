@@ -0,0 +1,135 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinarySnapshotFormatTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void decodesItemsLazilyAfterRoundTrip() throws IOException {
+		Food food = newFood();
+		Drink drink = new Drink("Bubble Tea 🧋", null, 5.99, 700, LocalDateTime.of(2021, 11, 10, 23, 59, 1, 500));
+		drink.setItemId(UUID.randomUUID());
+		Path snapshotPath = writeSnapshot(List.of(drink, food));
+
+		List<Consumable> decodedItems = new ArrayList<>();
+		ImmutableConsumableList items = ImmutableConsumableList.of(BinarySnapshotFormat.map(snapshotPath, decodedItems::add));
+
+		assertEquals(2, items.size());
+		assertEquals(drink.getItemId(), items.itemIdAt(0));
+		assertEquals(2, items.undecodedSize());
+
+		Drink decodedDrink = (Drink) items.get(0);
+		assertEquals(List.of(decodedDrink), decodedItems);
+		assertEquals(1, items.undecodedSize());
+		assertEquals(drink.getName(), decodedDrink.getName());
+		assertNull(decodedDrink.getNotes());
+		assertEquals(drink.getPrice(), decodedDrink.getPrice());
+		assertEquals(drink.getVolume(), decodedDrink.getVolume());
+		assertEquals(drink.getExpiryDate(), decodedDrink.getExpiryDate());
+
+		Food decodedFood = (Food) items.get(1);
+		assertEquals(food.getItemId(), decodedFood.getItemId());
+		assertEquals(food.getWeight(), decodedFood.getWeight());
+		assertEquals(food.getNotes(), decodedFood.getNotes());
+	}
+
+	@Test
+	void findsItemsByExpiryDayWithoutDecodingTheRest() throws IOException {
+		List<Consumable> snapshotItems = new ArrayList<>();
+		for (int day = 0; day < 100; day++) {
+			Food food = new Food("Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, 1, 12, 0).plusDays(day));
+			food.setItemId(UUID.randomUUID());
+			snapshotItems.add(food);
+		}
+		ImmutableConsumableList items = ImmutableConsumableList.of(
+				BinarySnapshotFormat.map(writeSnapshot(snapshotItems), item -> { }));
+
+		List<Consumable> expiringItems = items.expiringBetween(LocalDate.of(2069, 5, 1), LocalDate.of(2069, 5, 3));
+
+		assertEquals(List.of(snapshotItems.get(30).getItemId(), snapshotItems.get(31).getItemId(),
+				snapshotItems.get(32).getItemId()), expiringItems.stream().map(Consumable::getItemId).toList());
+		assertEquals(97, items.undecodedSize());
+	}
+
+	@Test
+	void sortsSnapshotsWrittenOutOfOrderWithoutDecodingThem() throws IOException {
+		List<Consumable> snapshotItems = new ArrayList<>();
+		for (int day = 10; day > 0; day--) {
+			Food food = new Food("Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, day, 12, 0));
+			food.setItemId(UUID.randomUUID());
+			snapshotItems.add(food);
+		}
+		ImmutableConsumableList items = ImmutableConsumableList.of(
+				BinarySnapshotFormat.map(writeSnapshot(snapshotItems), item -> { }));
+
+		assertEquals(snapshotItems.get(9).getItemId(), items.itemIdAt(0));
+		assertEquals(snapshotItems.get(0).getItemId(), items.itemIdAt(9));
+		assertEquals(10, items.undecodedSize());
+	}
+
+	@Test
+	void removesItemsByIdWithoutDecodingTheRest() throws IOException {
+		List<Consumable> snapshotItems = new ArrayList<>(List.of(newFood(), newFood(), newFood()));
+		Collections.sort(snapshotItems);
+		ImmutableConsumableList items = ImmutableConsumableList.of(
+				BinarySnapshotFormat.map(writeSnapshot(snapshotItems), item -> { }));
+
+		ImmutableConsumableList remainingItems = items.minusItemIds(Set.of(snapshotItems.get(1).getItemId()));
+
+		assertEquals(2, remainingItems.size());
+		assertEquals(2, remainingItems.undecodedSize());
+		assertEquals(snapshotItems.get(0).getItemId(), remainingItems.itemIdAt(0));
+		assertEquals(snapshotItems.get(2).getItemId(), remainingItems.itemIdAt(1));
+		assertSame(remainingItems.get(1), items.get(2));
+	}
+
+	@Test
+	void rejectsDamagedSnapshot() throws IOException {
+		Path snapshotPath = writeSnapshot(List.of(newFood()));
+		try (RandomAccessFile file = new RandomAccessFile(snapshotPath.toFile(), "rw")) {
+			file.seek(file.length() - 1);
+			file.write('?');
+		}
+
+		assertThrows(IOException.class, () -> BinarySnapshotFormat.map(snapshotPath, item -> { }));
+	}
+
+	private Path writeSnapshot(List<Consumable> items) throws IOException {
+		Path snapshotPath = tempDir.resolve("itemList.1.snapshot.bin");
+		try (OutputStream outputStream = Files.newOutputStream(snapshotPath)) {
+			BinarySnapshotFormat.write(items, outputStream);
+		}
+		return snapshotPath;
+	}
+
+	private static Food newFood() {
+		Food food = new Food("Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, 20, 23, 59));
+		food.setItemId(UUID.randomUUID());
+		return food;
+	}
+}
@@ -0,0 +1,279 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsumableJournalTests {
+
+	private final Gson gson = new GsonBuilder().registerTypeAdapter(LocalDateTime.class,
+			new TypeAdapter<LocalDateTime>() {
+				@Override
+				public void write(JsonWriter jsonWriter, LocalDateTime localDateTime) throws IOException {
+					jsonWriter.value(localDateTime.toString());
+				}
+
+				@Override
+				public LocalDateTime read(JsonReader jsonReader) throws IOException {
+					return LocalDateTime.parse(jsonReader.nextString());
+				}
+			}).create();
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void replaysAddsAndRemovesInOrder() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+		Food food = newFood();
+		Drink drink = newDrink();
+
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson)) {
+			journal.appendAdd(food).join();
+			journal.appendAdd(drink).join();
+			journal.appendRemove(food.getItemId()).join();
+		}
+
+		List<Consumable> added = new ArrayList<>();
+		List<UUID> removed = new ArrayList<>();
+		assertEquals(3, ConsumableJournal.replay(journalPath, gson, added::add, removed::add));
+
+		assertEquals(2, added.size());
+		assertTrue(added.get(0) instanceof Food);
+		assertTrue(added.get(1) instanceof Drink);
+		assertEquals(drink.getItemId(), added.get(1).getItemId());
+		assertEquals(drink.getExpiryDate(), added.get(1).getExpiryDate());
+		assertEquals(List.of(food.getItemId()), removed);
+	}
+
+	@Test
+	void replaysABatchOfAddsFromASingleRecord() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+		List<Consumable> batch = List.of(newFood(), newDrink(), newFood());
+
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson)) {
+			journal.appendAddAll(batch).join();
+			journal.appendRemove(batch.get(0).getItemId()).join();
+		}
+
+		List<Consumable> added = new ArrayList<>();
+		List<UUID> removed = new ArrayList<>();
+		assertEquals(2, ConsumableJournal.replay(journalPath, gson, added::add, removed::add));
+
+		assertEquals(3, added.size());
+		assertTrue(added.get(1) instanceof Drink);
+		for (int index = 0; index < batch.size(); index++) {
+			assertEquals(batch.get(index).getItemId(), added.get(index).getItemId());
+		}
+		assertEquals(List.of(batch.get(0).getItemId()), removed);
+	}
+
+	@Test
+	void replaysABatchOfRemovesFromASingleRecord() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+		List<Consumable> batch = List.of(newFood(), newDrink(), newFood());
+
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson)) {
+			journal.appendAddAll(batch).join();
+			journal.appendRemoveAll(List.of(batch.get(2).getItemId(), batch.get(0).getItemId())).join();
+		}
+
+		List<UUID> removed = new ArrayList<>();
+		assertEquals(2, ConsumableJournal.replay(journalPath, gson, item -> { }, removed::add));
+		assertEquals(List.of(batch.get(2).getItemId(), batch.get(0).getItemId()), removed);
+	}
+
+	@Test
+	void skipsRecordsWhichCantBeApplied() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+		Consumable unreadable = newFood();
+		Consumable readable = newDrink();
+
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson)) {
+			journal.appendAdd(unreadable).join();
+			journal.appendAdd(readable).join();
+		}
+
+		List<UUID> added = new ArrayList<>();
+		ConsumableJournal.replay(journalPath, gson, item -> {
+			if (item.getItemId().equals(unreadable.getItemId())) {
+				throw new IllegalStateException("can't be applied");
+			}
+			added.add(item.getItemId());
+		}, itemId -> { });
+		assertEquals(List.of(readable.getItemId()), added);
+	}
+
+	@Test
+	void discardsTornRecordAtTheEnd() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson)) {
+			journal.appendAdd(newFood()).join();
+			journal.appendAdd(newDrink()).join();
+		}
+
+		// simulate a crash half way through writing the last record
+		long intactSize = Files.size(journalPath);
+		try (RandomAccessFile file = new RandomAccessFile(journalPath.toFile(), "rw")) {
+			file.setLength(intactSize - 5);
+		}
+
+		assertEquals(1, ConsumableJournal.replay(journalPath, gson, item -> { }, itemId -> { }));
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson)) {
+			journal.appendAdd(newFood()).join();
+		}
+		assertEquals(2, ConsumableJournal.replay(journalPath, gson, item -> { }, itemId -> { }));
+	}
+
+	@Test
+	void rollWritesLaterRecordsToTheNextSegment() throws IOException {
+		Path firstSegment = tempDir.resolve("itemList.0.journal");
+		Path secondSegment = tempDir.resolve("itemList.1.journal");
+
+		try (ConsumableJournal journal = new ConsumableJournal(firstSegment, gson)) {
+			journal.appendAdd(newFood());
+			journal.roll(secondSegment).join();
+			journal.appendAdd(newDrink()).join();
+			assertEquals(Files.size(secondSegment), journal.size());
+		}
+
+		List<Consumable> added = new ArrayList<>();
+		assertEquals(1, ConsumableJournal.replay(firstSegment, gson, added::add, itemId -> { }));
+		assertEquals(1, ConsumableJournal.replay(secondSegment, gson, added::add, itemId -> { }));
+		assertTrue(added.get(0) instanceof Food);
+		assertTrue(added.get(1) instanceof Drink);
+	}
+
+	@Test
+	void cutsOffTheTornRecordsOfAFailedWriteSoLaterRecordsAreKept() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+		FailingFileChannel segment = new FailingFileChannel(journalPath);
+		Food food = newFood();
+		Drink drink = newDrink();
+
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson, 16, 0, path -> segment)) {
+			journal.appendAdd(food).join();
+			segment.failWrites(true);
+			CompletableFuture<Void> failedRecord = journal.appendAdd(newFood());
+			assertThrows(CompletionException.class, failedRecord::join);
+			segment.failWrites(false);
+			journal.appendAdd(drink).join();
+			assertFalse(journal.hasFailed());
+		}
+
+		List<UUID> added = new ArrayList<>();
+		ConsumableJournal.replay(journalPath, gson, item -> added.add(item.getItemId()), itemId -> { });
+		assertEquals(List.of(food.getItemId(), drink.getItemId()), added);
+	}
+
+	@Test
+	void rejectsEveryRecordOnceTornRecordsCantBeCutOff() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+		FailingFileChannel segment = new FailingFileChannel(journalPath);
+
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson, 16, 0, path -> segment)) {
+			segment.failWrites(true);
+			segment.failTruncates(true);
+			assertThrows(CompletionException.class, () -> journal.appendAdd(newFood()).join());
+			segment.failWrites(false);
+			segment.failTruncates(false);
+
+			assertTrue(journal.hasFailed());
+			assertThrows(CompletionException.class, () -> journal.appendAdd(newDrink()).join());
+			assertNotNull(journal.stats(DurabilityMode.SYNC).getJournalFailure());
+		}
+	}
+
+	@Test
+	void keepsAppendingToTheCurrentSegmentIfTheNextCantBeOpened() throws IOException {
+		Path firstSegment = tempDir.resolve("itemList.0.journal");
+		Path secondSegment = tempDir.resolve("itemList.1.journal");
+		ConsumableJournal.SegmentOpener segmentOpener = path -> {
+			if (path.equals(secondSegment)) {
+				throw new IOException("Too many open files");
+			}
+			return ConsumableJournal.openSegment(path);
+		};
+
+		try (ConsumableJournal journal = new ConsumableJournal(firstSegment, gson, 16, 0, segmentOpener)) {
+			journal.appendAdd(newFood());
+			assertThrows(CompletionException.class, () -> journal.roll(secondSegment).join());
+			journal.appendAdd(newDrink()).join();
+		}
+
+		assertFalse(Files.exists(secondSegment));
+		assertEquals(2, ConsumableJournal.replay(firstSegment, gson, item -> { }, itemId -> { }));
+	}
+
+	@Test
+	void closeWritesTheRecordsWaitingForTheFlushIntervalAndFailsLaterOnes() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+		ConsumableJournal journal = new ConsumableJournal(journalPath, gson, 16, TimeUnit.MINUTES.toNanos(1));
+		CompletableFuture<Void> waitingRecord = journal.appendAdd(newFood());
+		journal.close();
+		CompletableFuture<Void> lateRecord = journal.appendAdd(newDrink());
+
+		assertTrue(waitingRecord.isDone());
+		waitingRecord.join();
+		assertThrows(CompletionException.class, lateRecord::join);
+		assertEquals(1, ConsumableJournal.replay(journalPath, gson, item -> { }, itemId -> { }));
+	}
+
+	@Test
+	void batchesRecordsUntilTheFlushIntervalOrAFlush() throws IOException {
+		Path journalPath = tempDir.resolve("itemList.journal");
+
+		try (ConsumableJournal journal = new ConsumableJournal(journalPath, gson, 16, TimeUnit.MINUTES.toNanos(1))) {
+			CompletableFuture<Void> firstRecord = journal.appendAdd(newFood());
+			journal.appendAdd(newDrink());
+			journal.appendRemove(UUID.randomUUID());
+			assertFalse(firstRecord.isDone());
+
+			journal.flush().join();
+			assertTrue(firstRecord.isDone());
+
+			PersistenceStats stats = journal.stats(DurabilityMode.ASYNC);
+			assertEquals(3, stats.getFlushedRecords());
+			assertEquals(0, stats.getQueueDepth());
+		}
+		assertEquals(3, ConsumableJournal.replay(journalPath, gson, item -> { }, itemId -> { }));
+	}
+
+	private static Food newFood() {
+		Food food = new Food("Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, 20, 23, 59));
+		food.setItemId(UUID.randomUUID());
+		return food;
+	}
+
+	private static Drink newDrink() {
+		Drink drink = new Drink("Milk Tea", "with pearls", 5.99, 700, LocalDateTime.of(2021, 11, 10, 23, 59));
+		drink.setItemId(UUID.randomUUID());
+		return drink;
+	}
+}
@@ -0,0 +1,128 @@
+package expiryTracker.webappserver.control.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * A <code>FileChannel</code> of a journal segment whose writes can be made to fail half way through, leaving a torn
+ * record behind as a full disk would.
+ */
+public class FailingFileChannel extends FileChannel {
+	private final FileChannel channel;
+	private volatile boolean failingWrites;
+	private volatile boolean failingTruncates;
+
+	public FailingFileChannel(Path segmentPath) throws IOException {
+		this.channel = ConsumableJournal.openSegment(segmentPath);
+	}
+
+	public void failWrites(boolean failingWrites) {
+		this.failingWrites = failingWrites;
+	}
+
+	public void failTruncates(boolean failingTruncates) {
+		this.failingTruncates = failingTruncates;
+	}
+
+	@Override
+	public int write(ByteBuffer source) throws IOException {
+		if (!failingWrites) {
+			return channel.write(source);
+		}
+		ByteBuffer firstHalf = source.duplicate();
+		firstHalf.limit(source.position() + source.remaining() / 2);
+		channel.write(firstHalf);
+		throw new IOException("No space left on device");
+	}
+
+	@Override
+	public FileChannel truncate(long size) throws IOException {
+		if (failingTruncates) {
+			throw new IOException("Input/output error");
+		}
+		channel.truncate(size);
+		return this;
+	}
+
+	@Override
+	public int read(ByteBuffer destination) throws IOException {
+		return channel.read(destination);
+	}
+
+	@Override
+	public long read(ByteBuffer[] destinations, int offset, int length) throws IOException {
+		return channel.read(destinations, offset, length);
+	}
+
+	@Override
+	public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public long position() throws IOException {
+		return channel.position();
+	}
+
+	@Override
+	public FileChannel position(long newPosition) throws IOException {
+		channel.position(newPosition);
+		return this;
+	}
+
+	@Override
+	public long size() throws IOException {
+		return channel.size();
+	}
+
+	@Override
+	public void force(boolean metaData) throws IOException {
+		channel.force(metaData);
+	}
+
+	@Override
+	public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+		return channel.transferTo(position, count, target);
+	}
+
+	@Override
+	public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public int read(ByteBuffer destination, long position) throws IOException {
+		return channel.read(destination, position);
+	}
+
+	@Override
+	public int write(ByteBuffer source, long position) throws IOException {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+		return channel.map(mode, position, size);
+	}
+
+	@Override
+	public FileLock lock(long position, long size, boolean shared) throws IOException {
+		return channel.lock(position, size, shared);
+	}
+
+	@Override
+	public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+		return channel.tryLock(position, size, shared);
+	}
+
+	@Override
+	protected void implCloseChannel() throws IOException {
+		channel.close();
+	}
+}
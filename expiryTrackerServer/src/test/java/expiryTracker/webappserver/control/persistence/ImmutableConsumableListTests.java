@@ -0,0 +1,180 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Food;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImmutableConsumableListTests {
+
+	@Test
+	void keepsItemsInTheOrderOfAStableSort() {
+		Random random = new Random(213);
+		List<Consumable> expectedItems = new ArrayList<>();
+		ImmutableConsumableList items = ImmutableConsumableList.empty();
+
+		for (int count = 0; count < 500; count++) {
+			Food food = newFood(random.nextInt(30));
+			expectedItems.add(food);
+			Collections.sort(expectedItems);
+			items = items.plus(food);
+
+			if (count % 3 == 0) {
+				Consumable removedItem = expectedItems.remove(random.nextInt(expectedItems.size()));
+				items = items.minus(removedItem);
+			}
+		}
+
+		assertEquals(expectedItems, items);
+		assertEquals(expectedItems, new ArrayList<>(items));
+	}
+
+	@Test
+	void addsBatchesInTheSameOrderAsOneByOne() {
+		Random random = new Random(213);
+		ImmutableConsumableList oneByOne = ImmutableConsumableList.empty();
+		ImmutableConsumableList batched = ImmutableConsumableList.empty();
+
+		// a large first batch is merged with the list, the small ones after it are inserted
+		for (int batchSize : new int[]{300, 1, 5, 300, 2}) {
+			List<Consumable> batch = new ArrayList<>();
+			for (int count = 0; count < batchSize; count++) {
+				Food food = newFoodWithId(random.nextInt(30));
+				batch.add(food);
+				oneByOne = oneByOne.plus(food);
+			}
+			ImmutableConsumableList before = batched;
+			batched = batched.plusAll(batch);
+			assertEquals(before.size() + batchSize, batched.size());
+		}
+
+		assertEquals(oneByOne, batched);
+	}
+
+	@Test
+	void removesBatchesInTheSameOrderAsOneByOne() {
+		Random random = new Random(214);
+		List<Consumable> items = new ArrayList<>();
+		for (int count = 0; count < 600; count++) {
+			items.add(newFoodWithId(random.nextInt(30)));
+		}
+		ImmutableConsumableList oneByOne = ImmutableConsumableList.empty().plusAll(items);
+		ImmutableConsumableList batched = oneByOne;
+
+		// a small batch is removed item by item, a large one in a single pass over the list
+		Collections.shuffle(items, random);
+		for (List<Consumable> batch : List.of(items.subList(0, 3), items.subList(3, 400))) {
+			for (Consumable item : batch) {
+				oneByOne = oneByOne.minus(item);
+			}
+			batched = batched.minusItems(batch);
+			assertEquals(oneByOne, batched);
+		}
+		assertEquals(200, batched.size());
+	}
+
+	@Test
+	void leavesEarlierVersionsUnchanged() {
+		Food first = newFood(1);
+		Food second = newFood(2);
+		ImmutableConsumableList before = ImmutableConsumableList.empty().plus(second).plus(first);
+
+		ImmutableConsumableList after = before.minus(first).plus(newFood(3));
+
+		assertEquals(List.of(first, second), before);
+		assertEquals(2, after.size());
+		assertSame(second, after.get(0));
+		assertSame(before, before.minus(newFood(2)));
+	}
+
+	@Test
+	void findsItemsExpiringBetweenTwoDays() {
+		Random random = new Random(213);
+		List<Consumable> allItems = new ArrayList<>();
+		ImmutableConsumableList items = ImmutableConsumableList.empty();
+		for (int count = 0; count < 300; count++) {
+			Food food = newFood(random.nextInt(60));
+			allItems.add(food);
+			items = items.plus(food);
+		}
+		Collections.sort(allItems);
+
+		LocalDate firstDay = LocalDate.of(2069, 4, 11);
+		LocalDate lastDay = firstDay.plusDays(7);
+		List<Consumable> expectedItems = new ArrayList<>();
+		for (Consumable item : allItems) {
+			LocalDate expiryDay = item.getExpiryDate().toLocalDate();
+			if (!expiryDay.isBefore(firstDay) && !expiryDay.isAfter(lastDay)) {
+				expectedItems.add(item);
+			}
+		}
+
+		assertEquals(expectedItems, items.expiringBetween(firstDay, lastDay));
+		assertEquals(allItems.subList(0, allItems.indexOf(expectedItems.get(0))),
+				items.expiringBetween(null, firstDay.minusDays(1)));
+		assertEquals(allItems, items.expiringBetween(null, null));
+		assertEquals(List.of(), items.expiringBetween(lastDay, firstDay));
+	}
+
+	@Test
+	void findsAndRemovesItemsByIdAmongItemsOfTheSameDay() {
+		List<Food> sameDayItems = new ArrayList<>();
+		ImmutableConsumableList items = ImmutableConsumableList.empty().plus(newFoodWithId(1)).plus(newFoodWithId(3));
+		for (int count = 0; count < 5; count++) {
+			Food food = newFoodWithId(2);
+			sameDayItems.add(food);
+			items = items.plus(food);
+		}
+		Collections.sort(sameDayItems);
+		long epochDay = sameDayItems.get(0).getExpiryDate().toLocalDate().toEpochDay();
+
+		assertEquals(4, items.indexOf(sameDayItems.get(3).getItemId(), epochDay));
+		assertEquals(-1, items.indexOf(sameDayItems.get(3).getItemId(), epochDay + 1));
+		assertEquals(-1, items.indexOf(UUID.randomUUID(), epochDay));
+
+		ImmutableConsumableList remainingItems = items.minusItemId(sameDayItems.get(3).getItemId(), epochDay);
+		assertEquals(6, remainingItems.size());
+		assertSame(sameDayItems.get(4), remainingItems.get(4));
+		assertSame(items, items.minusItemId(UUID.randomUUID(), epochDay));
+	}
+
+	@Test
+	void ordersItemsOfTheSameDayByIdWhateverTheyWereAddedIn() {
+		List<Consumable> sameDayItems = new ArrayList<>();
+		for (int count = 0; count < 20; count++) {
+			sameDayItems.add(newFoodWithId(2));
+		}
+		Food distantPast = new Food("Sushi", null, 1, 1, LocalDateTime.of(-3_000_000, 1, 1, 0, 0));
+		Food distantFuture = new Food("Sushi", null, 1, 1, LocalDateTime.of(3_000_000, 1, 1, 0, 0));
+
+		ImmutableConsumableList items = ImmutableConsumableList.of(sameDayItems).plus(distantFuture).plus(distantPast);
+		List<Consumable> expectedItems = new ArrayList<>(sameDayItems);
+		expectedItems.sort((first, second) -> first.getItemId().compareTo(second.getItemId()));
+		expectedItems.add(0, distantPast);
+		expectedItems.add(distantFuture);
+
+		assertEquals(expectedItems, items);
+		assertTrue(distantFuture.compareTo(distantPast) > 0);
+	}
+
+	private static Food newFood(int daysFromNow) {
+		return new Food("Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, 1, 12, 0).plusDays(daysFromNow));
+	}
+
+	private static Food newFoodWithId(int daysFromNow) {
+		Food food = newFood(daysFromNow);
+		food.setItemId(UUID.randomUUID());
+		return food;
+	}
+}
@@ -0,0 +1,60 @@
+package expiryTracker.webappserver.control.persistence;
+
+import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonItemListReaderTests {
+
+	private final Gson gson = ConsumableManager.newCustomGsonBuilder().setPrettyPrinting().create();
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void streamsItemsAndReportsBytesRead() throws IOException {
+		Path itemListPath = writeItemList();
+		LoadProgress progress = new LoadProgress();
+
+		List<Consumable> items = new ArrayList<>();
+		assertEquals(2, JsonItemListReader.read(itemListPath, gson, progress, items::add));
+
+		assertTrue(items.get(0) instanceof Food);
+		assertTrue(items.get(1) instanceof Drink);
+		assertEquals(Files.size(itemListPath), progress.getBytesRead());
+	}
+
+	@Test
+	void failsOnTruncatedFile() throws IOException {
+		Path itemListPath = writeItemList();
+		String json = Files.readString(itemListPath);
+		Files.writeString(itemListPath, json.substring(0, json.length() / 2));
+
+		assertThrows(IOException.class,
+				() -> JsonItemListReader.read(itemListPath, gson, new LoadProgress(), item -> { }));
+	}
+
+	private Path writeItemList() throws IOException {
+		List<Consumable> items = List.of(
+				new Food("Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, 20, 23, 59)),
+				new Drink("Milk Tea", "with pearls", 5.99, 700, LocalDateTime.of(2021, 11, 10, 23, 59)));
+		Path itemListPath = tempDir.resolve("itemList.json");
+		Files.writeString(itemListPath, gson.toJson(items, List.class));
+		return itemListPath;
+	}
+}
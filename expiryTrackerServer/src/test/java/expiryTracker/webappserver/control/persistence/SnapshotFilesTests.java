@@ -0,0 +1,35 @@
+package expiryTracker.webappserver.control.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SnapshotFilesTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void deletesEveryOlderFileItCanAndSkipsTheMappedSnapshot() throws IOException {
+		SnapshotFiles snapshotFiles = new SnapshotFiles(tempDir.resolve("itemList.json"));
+		for (long generation = 1; generation <= 4; generation++) {
+			Files.write(snapshotFiles.snapshotPath(generation, SnapshotFormat.BINARY), new byte[]{1});
+			Files.write(snapshotFiles.segmentPath(generation), new byte[]{1});
+		}
+		// a snapshot which can't be deleted, as a memory-mapped one on Windows
+		Path undeletableSnapshot = snapshotFiles.snapshotPath(2, SnapshotFormat.BINARY);
+		Files.delete(undeletableSnapshot);
+		Files.createDirectories(undeletableSnapshot.resolve("in-use"));
+
+		snapshotFiles.deleteOlderThan(4, 1);
+
+		assertEquals(List.of(4L, 2L, 1L), snapshotFiles.snapshotGenerations());
+		assertEquals(List.of(4L), snapshotFiles.segmentGenerations());
+	}
+}
@@ -0,0 +1,141 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.config.PersistenceProperties;
+import expiryTracker.webappserver.control.persistence.FailingFileChannel;
+import expiryTracker.webappserver.control.persistence.SnapshotFiles;
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Food;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileConsumableStoreTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void doesNotRecordItemsWhichCantBeAdded() {
+		PersistenceProperties properties = newProperties();
+		Food food = newFood(LocalDateTime.of(2069, 4, 20, 23, 59));
+
+		try (FileConsumableStore store = new FileConsumableStore(properties)) {
+			assertThrows(IllegalArgumentException.class, () -> store.add(newFood(null)));
+			store.add(food);
+		}
+
+		try (FileConsumableStore store = new FileConsumableStore(properties)) {
+			assertEquals(List.of(food.getItemId()), store.findAll().stream().map(Consumable::getItemId).toList());
+		}
+	}
+
+	@Test
+	void takesBackChangesWhichCantBeRecordedInTheJournal() {
+		PersistenceProperties properties = newProperties();
+		List<FailingFileChannel> segments = new ArrayList<>();
+		Food kept = newFood(LocalDateTime.of(2069, 4, 20, 23, 59));
+		Food lost = newFood(LocalDateTime.of(2069, 4, 21, 23, 59));
+		List<String> changes = new ArrayList<>();
+
+		try (FileConsumableStore store = new FileConsumableStore(properties, segmentPath -> {
+			FailingFileChannel segment = new FailingFileChannel(segmentPath);
+			segments.add(segment);
+			return segment;
+		})) {
+			store.add(kept);
+			store.setChangeListener(new StoreChangeListener() {
+				@Override
+				public void itemAdded(Consumable item) {
+					changes.add("add " + item.getItemId());
+				}
+
+				@Override
+				public void itemRemoved(Consumable item) {
+					changes.add("remove " + item.getItemId());
+				}
+			});
+
+			segments.get(0).failWrites(true);
+			assertThrows(CompletionException.class, () -> store.add(lost));
+			assertThrows(CompletionException.class, () -> store.remove(store.findById(kept.getItemId())));
+			assertNull(store.findById(lost.getItemId()));
+			assertNotNull(store.findById(kept.getItemId()));
+			assertEquals(List.of(kept.getItemId()), store.findAll().stream().map(Consumable::getItemId).toList());
+			// subscribers are told about the changes taken back
+			assertEquals(List.of("add " + lost.getItemId(), "remove " + lost.getItemId(),
+					"remove " + kept.getItemId(), "add " + kept.getItemId()), changes);
+
+			// once the torn record can't be cut off, nothing more can be saved
+			segments.get(0).failTruncates(true);
+			assertThrows(CompletionException.class, () -> store.add(lost));
+			segments.get(0).failWrites(false);
+			segments.get(0).failTruncates(false);
+			assertThrows(IllegalStateException.class, () -> store.add(newFood(LocalDateTime.of(2069, 4, 22, 23, 59))));
+			assertNotNull(store.getPersistenceStats().getJournalFailure());
+		}
+
+		try (FileConsumableStore store = new FileConsumableStore(properties)) {
+			assertEquals(List.of(kept.getItemId()), store.findAll().stream().map(Consumable::getItemId).toList());
+		}
+	}
+
+	@Test
+	void keepsTheLastSnapshotOnDiskAsFallbackWhenASnapshotFails() throws Exception {
+		PersistenceProperties properties = newProperties();
+		SnapshotFiles snapshotFiles = new SnapshotFiles(Path.of(properties.getFilePath()));
+		Path failingSnapshot = snapshotFiles.snapshotPath(2, properties.getSnapshotFormat());
+		Path failingSnapshotTempFile = failingSnapshot.resolveSibling(failingSnapshot.getFileName() + ".tmp");
+		List<Food> foods = List.of(newFood(LocalDateTime.of(2069, 4, 20, 23, 59)),
+				newFood(LocalDateTime.of(2069, 4, 21, 23, 59)), newFood(LocalDateTime.of(2069, 4, 22, 23, 59)));
+
+		try (FileConsumableStore store = new FileConsumableStore(properties)) {
+			store.add(foods.get(0));
+			store.writeToFile();
+			store.add(foods.get(1));
+			// a directory in place of its temporary file keeps snapshot 2 from being written
+			Files.createDirectory(failingSnapshotTempFile);
+			store.writeToFile();
+			assertEquals(1, store.getPersistenceStats().getSnapshotFailures());
+			assertNotNull(store.getPersistenceStats().getLastSnapshotFailure());
+			Files.delete(failingSnapshotTempFile);
+			store.add(foods.get(2));
+			store.writeToFile();
+		}
+
+		assertFalse(Files.exists(failingSnapshot));
+		Files.write(snapshotFiles.snapshotPath(3, properties.getSnapshotFormat()), new byte[]{1, 2, 3});
+
+		try (FileConsumableStore store = new FileConsumableStore(properties)) {
+			assertEquals(foods.stream().map(Consumable::getItemId).toList(),
+					store.findAll().stream().map(Consumable::getItemId).toList());
+			assertEquals(1, store.getRecoveryStats().getSnapshotGeneration());
+		}
+	}
+
+	private PersistenceProperties newProperties() {
+		PersistenceProperties properties = new PersistenceProperties();
+		properties.setFilePath(tempDir.resolve("itemList.json").toString());
+		properties.setSnapshotInterval(Duration.ZERO);
+		return properties;
+	}
+
+	private static Food newFood(LocalDateTime expiryDate) {
+		Food food = new Food("Sushi", "is very yummy", 10.69, 420, expiryDate);
+		food.setItemId(UUID.randomUUID());
+		return food;
+	}
+}
@@ -0,0 +1,132 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.control.persistence.DurabilityMode;
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class H2ConsumableStoreTests {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void keepsItemsInNaturalOrderAcrossRestarts() {
+		String databaseUrl = "jdbc:h2:file:" + tempDir.resolve("itemList").toAbsolutePath();
+		Food lateFood = newFood(LocalDateTime.of(2069, 4, 20, 23, 59));
+		Drink earlyDrink = newDrink(LocalDateTime.of(2021, 11, 10, 8, 0));
+		Food nextDayFood = newFood(LocalDateTime.of(2021, 11, 11, 0, 0));
+		Food removedFood = newFood(LocalDateTime.of(2030, 1, 1, 12, 0));
+
+		try (H2ConsumableStore store = new H2ConsumableStore(databaseUrl, DurabilityMode.SYNC)) {
+			store.add(lateFood);
+			store.add(earlyDrink);
+			store.add(nextDayFood);
+			store.add(removedFood);
+			store.remove(removedFood);
+		}
+
+		try (H2ConsumableStore store = new H2ConsumableStore(databaseUrl, DurabilityMode.SYNC)) {
+			List<Consumable> items = store.findAll();
+			assertEquals(List.of(earlyDrink.getItemId(), nextDayFood.getItemId(), lateFood.getItemId()),
+					items.stream().map(Consumable::getItemId).toList());
+			assertTrue(items.get(0) instanceof Drink);
+			assertEquals(earlyDrink.getExpiryDate(), items.get(0).getExpiryDate());
+			assertEquals(700, ((Drink) items.get(0)).getVolume());
+			assertEquals(3, store.getLoadProgress().getItemsLoaded());
+			assertEquals(lateFood.getName(), store.findById(lateFood.getItemId()).getName());
+			assertNull(store.findById(removedFood.getItemId()));
+		}
+	}
+
+	@Test
+	void findsItemsExpiringBetweenTwoDays() {
+		String databaseUrl = "jdbc:h2:file:" + tempDir.resolve("itemList").toAbsolutePath();
+		Food expired = newFood(LocalDateTime.of(2021, 11, 9, 23, 59));
+		Food firstDay = newFood(LocalDateTime.of(2021, 11, 10, 0, 0));
+		Food lastDay = newFood(LocalDateTime.of(2021, 11, 17, 23, 59));
+
+		try (H2ConsumableStore store = new H2ConsumableStore(databaseUrl, DurabilityMode.ASYNC)) {
+			store.add(lastDay);
+			store.add(expired);
+			store.add(firstDay);
+
+			LocalDate today = LocalDate.of(2021, 11, 10);
+			assertEquals(List.of(firstDay.getItemId(), lastDay.getItemId()),
+					store.findByExpiryDateBetween(today, today.plusDays(7)).stream()
+							.map(Consumable::getItemId).toList());
+			assertEquals(List.of(expired.getItemId()),
+					store.findByExpiryDateBetween(null, today.minusDays(1)).stream()
+							.map(Consumable::getItemId).toList());
+		}
+	}
+
+	@Test
+	void removesBatchesOfItemsInOneTransaction() {
+		String databaseUrl = "jdbc:h2:file:" + tempDir.resolve("itemList").toAbsolutePath();
+		Food longExpired = newFood(LocalDateTime.of(2021, 11, 1, 12, 0));
+		Drink expired = newDrink(LocalDateTime.of(2021, 11, 9, 23, 59));
+		Food today = newFood(LocalDateTime.of(2021, 11, 10, 0, 0));
+		Food later = newFood(LocalDateTime.of(2021, 12, 24, 18, 0));
+
+		try (H2ConsumableStore store = new H2ConsumableStore(databaseUrl, DurabilityMode.SYNC)) {
+			store.addAll(List.of(later, expired, today, longExpired));
+
+			List<Consumable> removed = store.removeExpiringBefore(LocalDate.of(2021, 11, 10));
+			assertEquals(List.of(longExpired.getItemId(), expired.getItemId()),
+					removed.stream().map(Consumable::getItemId).toList());
+			assertTrue(removed.get(1) instanceof Drink);
+
+			// ids of items which aren't stored are skipped
+			removed = store.removeAll(List.of(later.getItemId(), expired.getItemId()));
+			assertEquals(List.of(later.getItemId()), removed.stream().map(Consumable::getItemId).toList());
+			assertEquals(List.of(today.getItemId()), store.findAll().stream().map(Consumable::getItemId).toList());
+		}
+	}
+
+	@Test
+	void keepsExpiryDatesInADaylightSavingGapOfTheDefaultTimeZone() {
+		String databaseUrl = "jdbc:h2:file:" + tempDir.resolve("itemList").toAbsolutePath();
+		TimeZone defaultTimeZone = TimeZone.getDefault();
+		// clocks in New York went from 2:00 straight to 3:00 that night
+		Food food = newFood(LocalDateTime.of(2021, 3, 14, 2, 30));
+
+		TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+		try {
+			try (H2ConsumableStore store = new H2ConsumableStore(databaseUrl, DurabilityMode.SYNC)) {
+				store.add(food);
+			}
+
+			try (H2ConsumableStore store = new H2ConsumableStore(databaseUrl, DurabilityMode.SYNC)) {
+				assertEquals(food.getExpiryDate(), store.findById(food.getItemId()).getExpiryDate());
+			}
+		} finally {
+			TimeZone.setDefault(defaultTimeZone);
+		}
+	}
+
+	private static Food newFood(LocalDateTime expiryDate) {
+		Food food = new Food("Sushi", "is very yummy", 10.69, 420, expiryDate);
+		food.setItemId(UUID.randomUUID());
+		return food;
+	}
+
+	private static Drink newDrink(LocalDateTime expiryDate) {
+		Drink drink = new Drink("Milk Tea", "with pearls", 5.99, 700, expiryDate);
+		drink.setItemId(UUID.randomUUID());
+		return drink;
+	}
+}
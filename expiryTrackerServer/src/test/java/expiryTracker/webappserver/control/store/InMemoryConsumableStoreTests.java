@@ -0,0 +1,82 @@
+package expiryTracker.webappserver.control.store;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Food;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemoryConsumableStoreTests {
+
+	@Test
+	void readersSeeConsistentSnapshotsWhileWritersChangeTheItems() throws Exception {
+		InMemoryConsumableStore store = new InMemoryConsumableStore();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		AtomicBoolean writing = new AtomicBoolean(true);
+
+		List<Future<?>> writers = new ArrayList<>();
+		for (int writer = 0; writer < 4; writer++) {
+			int seed = writer;
+			writers.add(executor.submit(() -> {
+				Random random = new Random(seed);
+				for (int count = 0; count < 2_000; count++) {
+					Food food = newFood(random.nextInt(30));
+					store.add(food);
+					if (count % 2 == 0) {
+						store.remove(store.findById(food.getItemId()));
+					}
+				}
+			}));
+		}
+
+		List<Future<?>> readers = new ArrayList<>();
+		for (int reader = 0; reader < 4; reader++) {
+			readers.add(executor.submit(() -> {
+				while (writing.get()) {
+					List<Consumable> items = store.findAll();
+					List<Consumable> firstPass = new ArrayList<>(items);
+					for (int index = 1; index < firstPass.size(); index++) {
+						assertTrue(firstPass.get(index - 1).compareTo(firstPass.get(index)) < 0);
+					}
+					assertEquals(firstPass, new ArrayList<>(items));
+
+					LocalDate firstDay = LocalDate.of(2069, 4, 10);
+					for (Consumable item : store.findByExpiryDateBetween(firstDay, firstDay.plusDays(7))) {
+						LocalDate expiryDay = item.getExpiryDate().toLocalDate();
+						assertTrue(!expiryDay.isBefore(firstDay) && !expiryDay.isAfter(firstDay.plusDays(7)));
+					}
+				}
+				return null;
+			}));
+		}
+
+		for (Future<?> writer : writers) {
+			writer.get();
+		}
+		writing.set(false);
+		for (Future<?> reader : readers) {
+			reader.get();
+		}
+		executor.shutdown();
+
+		assertEquals(4 * 1_000, store.findAll().size());
+	}
+
+	private static Food newFood(int daysFromNow) {
+		Food food = new Food("Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, 1, 12, 0).plusDays(daysFromNow));
+		food.setItemId(UUID.randomUUID());
+		return food;
+	}
+}
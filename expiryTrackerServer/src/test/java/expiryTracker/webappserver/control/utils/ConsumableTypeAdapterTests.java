@@ -0,0 +1,66 @@
+package expiryTracker.webappserver.control.utils;
+
+import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConsumableTypeAdapterTests {
+	private static final Type CONSUMABLE_LIST_TYPE = new TypeToken<List<Consumable>>() {
+	}.getType();
+
+	private final Gson gson = ConsumableManager.newCustomGsonBuilder().create();
+
+	@Test
+	void listsRoundTripWithCompactTags() {
+		Food food = new Food("Special Sushi", "is very yummy", 10.69, 420, LocalDateTime.of(2069, 4, 20, 23, 59));
+		food.setItemId(UUID.randomUUID());
+		Drink drink = new Drink("Milk Tea with Pearls", null, 5.99, 700, LocalDateTime.of(2021, 11, 10, 23, 59));
+		drink.setItemId(UUID.randomUUID());
+
+		String json = gson.toJson(List.of(food, drink), CONSUMABLE_LIST_TYPE);
+		assertTrue(json.startsWith("[{\"type\":\"food\",\"itemId\":\"" + food.getItemId() + "\""), json);
+		assertTrue(json.contains("{\"type\":\"drink\""), json);
+
+		List<Consumable> items = gson.fromJson(json, CONSUMABLE_LIST_TYPE);
+		Food readFood = assertInstanceOf(Food.class, items.get(0));
+		assertEquals(food.getItemId(), readFood.getItemId());
+		assertEquals(food.getName(), readFood.getName());
+		assertEquals(food.getNotes(), readFood.getNotes());
+		assertEquals(food.getPrice(), readFood.getPrice());
+		assertEquals(food.getWeight(), readFood.getWeight());
+		assertEquals(food.getExpiryDate(), readFood.getExpiryDate());
+		Drink readDrink = assertInstanceOf(Drink.class, items.get(1));
+		assertNull(readDrink.getNotes());
+		assertEquals(drink.getVolume(), readDrink.getVolume());
+	}
+
+	@Test
+	void itemsTaggedWithClassNamesAreStillRead() {
+		String json = "[{\"weight\":420.0,\"name\":\"Sushi\",\"price\":10.69,\"expiryDate\":\"2069-04-20T23:59\","
+				+ "\"unknown\":{\"nested\":[1,2]},\"type\":\"expiryTracker.webappserver.model.Food\"},"
+				+ "{\"volume\":700,\"name\":\"Tea\",\"price\":5.99,\"expiryDate\":\"2021-11-10T23:59:00\","
+				+ "\"type\":\"ca.cmpt213.a4.client.model.Drink\"}]";
+		List<Consumable> items = gson.fromJson(json, CONSUMABLE_LIST_TYPE);
+
+		assertEquals(420, assertInstanceOf(Food.class, items.get(0)).getWeight());
+		assertEquals(700, assertInstanceOf(Drink.class, items.get(1)).getVolume());
+		assertThrows(JsonParseException.class, () -> gson.fromJson("{\"name\":\"Sushi\"}", Consumable.class));
+		assertInstanceOf(Food.class, gson.fromJson("{\"name\":\"Sushi\"}", Food.class));
+	}
+}
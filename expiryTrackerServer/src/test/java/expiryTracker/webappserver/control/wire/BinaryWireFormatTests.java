@@ -0,0 +1,69 @@
+package expiryTracker.webappserver.control.wire;
+
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryWireFormatTests {
+
+	@Test
+	void listsRoundTripWithEveryField() throws IOException {
+		Food food = new Food("Special Sushi", "is very yummy 🍣", 10.69, 420,
+				LocalDateTime.of(2069, 4, 20, 23, 59, 58, 123_456_789));
+		food.setItemId(UUID.randomUUID());
+		Drink drink = new Drink("Água", null, 0, 1.5, LocalDateTime.of(1969, 12, 31, 0, 0));
+		drink.setItemId(UUID.randomUUID());
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		BinaryWireFormat.writeListHeader(2, outputStream);
+		outputStream.write(BinaryWireFormat.encode(food));
+		outputStream.write(BinaryWireFormat.encode(drink));
+		List<Consumable> items = BinaryWireFormat.readList(new ByteArrayInputStream(outputStream.toByteArray()));
+
+		assertEquals(2, items.size());
+		Food readFood = assertInstanceOf(Food.class, items.get(0));
+		assertEquals(food.getItemId(), readFood.getItemId());
+		assertEquals(food.getName(), readFood.getName());
+		assertEquals(food.getNotes(), readFood.getNotes());
+		assertEquals(food.getPrice(), readFood.getPrice());
+		assertEquals(food.getWeight(), readFood.getWeight());
+		assertEquals(food.getExpiryDate(), readFood.getExpiryDate());
+
+		Drink readDrink = assertInstanceOf(Drink.class, items.get(1));
+		assertEquals(drink.getItemId(), readDrink.getItemId());
+		assertEquals(drink.getName(), readDrink.getName());
+		assertNull(readDrink.getNotes());
+		assertEquals(drink.getVolume(), readDrink.getVolume());
+		assertEquals(drink.getExpiryDate(), readDrink.getExpiryDate());
+	}
+
+	@Test
+	void singleItemsRoundTripAndOtherVersionsAreRejected() throws IOException {
+		Food food = new Food("Bread", "", 2.5, 500, LocalDateTime.of(2024, 2, 29, 12, 0));
+		food.setItemId(UUID.randomUUID());
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		BinaryWireFormat.writeItemHeader(outputStream);
+		outputStream.write(BinaryWireFormat.encode(food));
+		byte[] bytes = outputStream.toByteArray();
+		Consumable item = BinaryWireFormat.readItem(new ByteArrayInputStream(bytes));
+		assertEquals(food.getItemId(), item.getItemId());
+		assertEquals(food.getExpiryDate(), item.getExpiryDate());
+
+		bytes[0] = 2;
+		assertThrows(IOException.class, () -> BinaryWireFormat.readItem(new ByteArrayInputStream(bytes)));
+	}
+}
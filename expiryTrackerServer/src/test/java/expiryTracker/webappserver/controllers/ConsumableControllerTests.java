@@ -0,0 +1,263 @@
+package expiryTracker.webappserver.controllers;
+
+import expiryTracker.webappserver.control.ConsumableManager;
+import expiryTracker.webappserver.model.Consumable;
+import expiryTracker.webappserver.model.Drink;
+import expiryTracker.webappserver.model.Food;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// the ConsumableManager is a Singleton, so the context is closed after the tests for the next one to create its own
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "expirytracker.persistence.store=memory")
+@AutoConfigureMockMvc
+@DirtiesContext
+class ConsumableControllerTests {
+	private static final String NDJSON = "application/x-ndjson";
+	private static final String FOOD_JSON = "{\"name\":\"Special Sushi\",\"notes\":\"is very yummy\",\"price\":10.69,"
+			+ "\"weight\":420,\"expiryDate\":\"2069-04-20T23:59:00\",\"type\":\"food\"}";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ConsumableManager consumableManager;
+
+	@LocalServerPort
+	private int port;
+
+	private final Gson gson = ConsumableManager.newCustomGsonBuilder().create();
+
+	@BeforeEach
+	void addItems() {
+		// an expired and a fresh item, so that every filtered list has something in it
+		for (int count = 0; count < 10; count++) {
+			consumableManager.addConsumableItem(newFood(LocalDateTime.now().minusDays(count + 1)));
+			consumableManager.addConsumableItem(newDrink(LocalDateTime.now().plusDays(count)));
+		}
+	}
+
+	@Test
+	void listsAreAnsweredWithNotModifiedWhileTheirETagMatches() throws Exception {
+		MvcResult first = mockMvc.perform(get("/listAll"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+				.andReturn();
+		String eTag = first.getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotNull(eTag);
+		assertTrue(eTag.startsWith("W/\""));
+
+		mockMvc.perform(get("/listAll").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag))
+				.andExpect(content().bytes(new byte[0]));
+
+		// the same version of the list in another format is another representation
+		String ndjsonETag = mockMvc.perform(get("/listAll").header(HttpHeaders.ACCEPT, NDJSON)
+						.header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(eTag, ndjsonETag);
+
+		consumableManager.addConsumableItem(newFood(LocalDateTime.now()));
+		String changedETag = mockMvc.perform(get("/listAll").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(eTag, changedETag);
+	}
+
+	@Test
+	void filteredListTagsNoLongerMatchOnceTheDayChanges() throws Exception {
+		long today = LocalDate.now().toEpochDay();
+		String eTag = mockMvc.perform(get("/listExpired"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotNull(eTag);
+		assertTrue(eTag.endsWith("-" + today + "\""), eTag);
+
+		mockMvc.perform(get("/listExpired").header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified());
+
+		// a tag from before midnight of an unchanged list, which has to be sent again since items expired overnight
+		String yesterdaysETag = eTag.replace("-" + today + "\"", "-" + (today - 1) + "\"");
+		mockMvc.perform(get("/listExpired").header(HttpHeaders.IF_NONE_MATCH, yesterdaysETag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, eTag));
+
+		// the whole list doesn't depend on the day
+		String allETag = mockMvc.perform(get("/listAll"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotNull(allETag);
+		assertTrue(!allETag.endsWith("-" + today + "\""), allETag);
+	}
+
+	@Test
+	void listsAreTheSameBytesAsGsonWrites() throws Exception {
+		byte[] all = mockMvc.perform(get("/listAll"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/json"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertArrayEquals(gson.toJson(consumableManager.getFridge(), List.class).getBytes(StandardCharsets.UTF_8), all);
+
+		byte[] expired = mockMvc.perform(get("/listExpired"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertArrayEquals(gson.toJson(consumableManager.filterList("Expired"), List.class)
+				.getBytes(StandardCharsets.UTF_8), expired);
+
+		// the second time the list comes from the cache of views
+		assertArrayEquals(expired, mockMvc.perform(get("/listExpired"))
+				.andReturn().getResponse().getContentAsByteArray());
+	}
+
+	@Test
+	void listsAreSentAsNewlineDelimitedJsonWhenAccepted() throws Exception {
+		String body = mockMvc.perform(get("/listNonExpired").header(HttpHeaders.ACCEPT, NDJSON))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(NDJSON))
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+		List<Consumable> nonExpired = consumableManager.filterList("Not Expired");
+		StringBuilder expected = new StringBuilder();
+		for (Consumable item : nonExpired) {
+			expected.append(gson.toJson(item, item.getClass())).append('\n');
+		}
+		assertEquals(expected.toString(), body);
+		assertEquals(nonExpired.size(), body.split("\n").length);
+	}
+
+	@Test
+	void newlineDelimitedJsonIsOnlySentForListsAndWhenNotRefused() throws Exception {
+		mockMvc.perform(get("/listAll").header(HttpHeaders.ACCEPT, "application/json, " + NDJSON + ";q=0"))
+				.andExpect(content().contentTypeCompatibleWith("application/json"));
+		mockMvc.perform(get("/listAll").header(HttpHeaders.ACCEPT, "application/json;q=0.5, " + NDJSON))
+				.andExpect(content().contentTypeCompatibleWith(NDJSON));
+
+		Consumable item = consumableManager.getFridge().get(0);
+		mockMvc.perform(get("/item/" + item.getItemId()).header(HttpHeaders.ACCEPT, NDJSON))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/json"))
+				.andExpect(content().string(gson.toJson(item, item.getClass())));
+		mockMvc.perform(post("/addItem/Food").contentType("application/json").content(FOOD_JSON)
+						.header(HttpHeaders.ACCEPT, NDJSON).param("response", "delta"))
+				.andExpect(status().isCreated())
+				.andExpect(content().contentTypeCompatibleWith("application/json"));
+	}
+
+	@Test
+	void mutationsAnswerWithOnlyTheChangeWhenPreferredMinimalOrAskedForADelta() throws Exception {
+		String minimal = mockMvc.perform(post("/addItem/Food").contentType("application/json").content(FOOD_JSON)
+						.header("Prefer", "return=minimal"))
+				.andExpect(status().isCreated())
+				.andExpect(header().string("Preference-Applied", "return=minimal"))
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		JsonObject change = JsonParser.parseString(minimal).getAsJsonObject();
+		assertEquals(consumableManager.getVersion(), change.get("version").getAsLong());
+		UUID itemId = UUID.fromString(change.getAsJsonObject("item").get("itemId").getAsString());
+		assertNotNull(consumableManager.findConsumableItem(itemId));
+
+		String delta = mockMvc.perform(post("/removeItem/" + itemId).param("response", "delta"))
+				.andExpect(status().isCreated())
+				.andExpect(header().doesNotExist("Preference-Applied"))
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		JsonObject removal = JsonParser.parseString(delta).getAsJsonObject();
+		assertEquals(consumableManager.getVersion(), removal.get("version").getAsLong());
+		assertEquals(itemId.toString(), removal.getAsJsonObject("item").get("itemId").getAsString());
+
+		// without either, the whole updated list is sent
+		byte[] list = mockMvc.perform(post("/addItem/Food").contentType("application/json").content(FOOD_JSON))
+				.andExpect(status().isCreated())
+				.andExpect(header().doesNotExist("Preference-Applied"))
+				.andReturn().getResponse().getContentAsByteArray();
+		assertArrayEquals(gson.toJson(consumableManager.getFridge(), List.class).getBytes(StandardCharsets.UTF_8),
+				list);
+	}
+
+	@Test
+	void listsAreGzippedForClientsAcceptingIt() throws Exception {
+		byte[] expected = mockMvc.perform(get("/listAll"))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		HttpResponse<byte[]> response = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/listAll"))
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+						.build(),
+				HttpResponse.BodyHandlers.ofByteArray());
+
+		assertEquals(200, response.statusCode());
+		assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+		assertTrue(response.body().length < expected.length);
+		assertArrayEquals(expected, gunzip(response.body()));
+	}
+
+	@Test
+	void unknownItemsAreNotFoundAndInvalidRequestsSayWhatIsWrong() throws Exception {
+		UUID unknownId = UUID.randomUUID();
+		mockMvc.perform(get("/item/" + unknownId))
+				.andExpect(status().isNotFound());
+		mockMvc.perform(post("/removeItem/" + unknownId))
+				.andExpect(status().isNotFound());
+
+		mockMvc.perform(get("/item/not-a-uuid"))
+				.andExpect(status().isBadRequest())
+				.andExpect(content().string("Invalid UUID string: not-a-uuid"));
+		Consumable item = consumableManager.getFridge().get(0);
+		String message = mockMvc.perform(get("/item/" + item.getItemId()).header(HttpHeaders.ACCEPT, "application/"))
+				.andExpect(status().isBadRequest())
+				.andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+		assertTrue(message.contains("application/"), message);
+	}
+
+	private static byte[] gunzip(byte[] bytes) throws IOException {
+		try (InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			return inputStream.readAllBytes();
+		}
+	}
+
+	private static Food newFood(LocalDateTime expiryDate) {
+		Food food = new Food("Special Sushi", "is very yummy", 10.69, 420, expiryDate.withNano(0));
+		food.setItemId(UUID.randomUUID());
+		return food;
+	}
+
+	private static Drink newDrink(LocalDateTime expiryDate) {
+		Drink drink = new Drink("Milk Tea with Pearls", "Milk Tea is the best", 5.99, 700, expiryDate.withNano(0));
+		drink.setItemId(UUID.randomUUID());
+		return drink;
+	}
+}